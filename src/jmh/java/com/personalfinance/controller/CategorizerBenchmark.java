@@ -0,0 +1,80 @@
+package com.personalfinance.controller;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分类模型的学习与推荐耗时：用合成的带标签交易训练，在留出集上逐条推荐
+ * <p>
+ * 运行：{@code mvn -Pbenchmark package && java -jar target/benchmarks.jar CategorizerBenchmark}，
+ * 准确率由单元测试检查。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategorizerBenchmark {
+    private static final String[][] VOCABULARY = {
+            {"Food", "restaurant", "lunch", "dinner", "coffee", "pizza", "午餐", "外卖", "火锅"},
+            {"Transportation", "taxi", "metro", "bus", "uber", "fuel", "地铁", "打车", "加油"},
+            {"Shopping", "mall", "clothes", "shoes", "amazon", "jd", "淘宝", "衣服", "超市"},
+            {"Entertainment", "movie", "game", "concert", "ktv", "netflix", "电影", "游戏", "演唱会"},
+            {"Housing", "rent", "water", "electricity", "property", "房租", "水费", "电费"},
+            {"Health", "hospital", "pharmacy", "clinic", "dentist", "医院", "药店", "体检"},
+    };
+    private static final String[] NOISE = {"card", "online", "weekend", "store", "pay", "order", "北京", "上海"};
+
+    @Param({"1000", "20000"})
+    private int samples;
+
+    private String[] descriptions;
+    private BigDecimal[] amounts;
+    private String[] categories;
+    private int trainSize;
+    private NaiveBayesCategorizer trained;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        descriptions = new String[samples];
+        amounts = new BigDecimal[samples];
+        categories = new String[samples];
+        for (int i = 0; i < samples; i++) {
+            String[] words = VOCABULARY[random.nextInt(VOCABULARY.length)];
+            descriptions[i] = words[1 + random.nextInt(words.length - 1)] + " " + NOISE[random.nextInt(NOISE.length)];
+            amounts[i] = BigDecimal.valueOf(1 + random.nextInt(2000));
+            categories[i] = words[0];
+        }
+        trainSize = samples * 4 / 5;
+        trained = train();
+    }
+
+    /**
+     * 从头训练一个模型，耗时随训练样本数线性增长
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NaiveBayesCategorizer train() {
+        NaiveBayesCategorizer categorizer = new NaiveBayesCategorizer();
+        for (int i = 0; i < trainSize; i++) {
+            categorizer.learn(descriptions[i], "EXPENSE", amounts[i], categories[i]);
+        }
+        return categorizer;
+    }
+
+    /**
+     * 对留出集中的一条交易做一次推荐
+     */
+    @Benchmark
+    public String classify() {
+        int i = trainSize + next;
+        next = (next + 1) % (samples - trainSize);
+        return trained.classify(descriptions[i], "EXPENSE", amounts[i]);
+    }
+}
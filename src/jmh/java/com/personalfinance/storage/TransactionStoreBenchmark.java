@@ -0,0 +1,92 @@
+package com.personalfinance.storage;
+
+import com.personalfinance.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JSON 快照与二进制列式文件的加载、保存耗时对比
+ * <p>
+ * 运行：{@code mvn -Pbenchmark package && java -jar target/benchmarks.jar TransactionStoreBenchmark}，
+ * 数据写入临时目录，结束后删除。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionStoreBenchmark {
+    private static final String[] CATEGORIES = {"Food", "Transport", "Shopping", "Entertainment", "Housing", "Salary"};
+    private static final String[] DESCRIPTIONS = {"Lunch at cafe", "Taxi ride", "Supermarket", "Cinema tickets", "Rent", "Monthly salary"};
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private List<Transaction> transactions;
+    private Path dataDir;
+    private String username;
+    private JournaledTransactionStore jsonStore;
+    private BinaryTransactionStore binaryStore;
+
+    @Setup
+    public void setup() throws IOException {
+        dataDir = Files.createTempDirectory("jmh-bench");
+        JsonDataManager dataManager = new JsonDataManager(dataDir.toString());
+        jsonStore = new JournaledTransactionStore(dataManager);
+        binaryStore = new BinaryTransactionStore(dataManager);
+        username = "jmh-bench-" + size;
+
+        transactions = new ArrayList<>(size);
+        long day = 24L * 60 * 60 * 1000;
+        long start = System.currentTimeMillis() - size * day / 20;
+        for (int i = 0; i < size; i++) {
+            int kind = i % CATEGORIES.length;
+            transactions.add(new Transaction(BigDecimal.valueOf(100 + i % 5000, 2), CATEGORIES[kind],
+                    kind == 5 ? Transaction.TYPE_INCOME : Transaction.TYPE_EXPENSE,
+                    new Date(start + i / 20 * day), DESCRIPTIONS[kind] + " " + (i % 50)));
+        }
+        jsonStore.saveTransactions(username, transactions);
+        binaryStore.saveTransactions(username, transactions);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(dataDir)) {
+            // 先删文件再删目录
+            for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Transaction> loadJson() {
+        return jsonStore.loadTransactions(username);
+    }
+
+    @Benchmark
+    public List<Transaction> loadBinary() {
+        return binaryStore.loadTransactions(username);
+    }
+
+    @Benchmark
+    public void saveJson() {
+        jsonStore.saveTransactions(username, transactions);
+    }
+
+    @Benchmark
+    public void saveBinary() {
+        binaryStore.saveTransactions(username, transactions);
+    }
+}
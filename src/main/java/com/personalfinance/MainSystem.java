@@ -1,6 +1,7 @@
 package com.personalfinance;
 
 import com.personalfinance.controller.FinanceController;
+import com.personalfinance.storage.StorageRecovery;
 import com.personalfinance.view.LoginDialog;
 import com.personalfinance.view.MainFrame;
 
@@ -14,6 +15,10 @@ public class MainSystem {
         SwingUtilities.invokeLater(() -> {
             // 初始化控制器
             FinanceController controller = new FinanceController();
+            if (!reportRecovery(controller.getStorageRecoveryReport())) {
+                System.exit(1);
+                return;
+            }
 
             // 显示登录对话框
             LoginDialog loginDialog = new LoginDialog(null, controller);
@@ -31,6 +36,34 @@ public class MainSystem {
     }
 
 
+    /**
+     * 提示启动时恢复检查修复过的数据
+     * @return 用户列表无法读取时返回 false，不能继续启动
+     */
+    private static boolean reportRecovery(StorageRecovery.Report recovery) {
+        if (!recovery.getUnreadableFiles().isEmpty()) {
+            JOptionPane.showMessageDialog(null,
+                    "The user list could not be read and was left unchanged:\n"
+                            + recovery.getUnreadableFiles() + "\n\nRestore it from a backup and start again.",
+                    "Data Recovery Failed",
+                    JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        if (!recovery.getQuarantinedFiles().isEmpty() || !recovery.getTruncatedJournals().isEmpty()) {
+            StringBuilder message = new StringBuilder("The previous session did not shut down cleanly.\n");
+            if (!recovery.getQuarantinedFiles().isEmpty()) {
+                message.append("\nUnreadable files were renamed to *").append(StorageRecovery.CORRUPT_SUFFIX)
+                        .append(":\n").append(recovery.getQuarantinedFiles()).append('\n');
+            }
+            if (!recovery.getTruncatedJournals().isEmpty()) {
+                message.append("\nThe last unfinished change was discarded in:\n")
+                        .append(recovery.getTruncatedJournals()).append('\n');
+            }
+            JOptionPane.showMessageDialog(null, message.toString(), "Data Recovery", JOptionPane.WARNING_MESSAGE);
+        }
+        return true;
+    }
+
     public void startApplication() {
         // 重新启动应用
         MainSystem.main(new String[]{});
@@ -6,16 +6,31 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * AI财务分析引擎
  */
 public class AIAnalyzer {
     private static final int RECENT_MONTHS = 6; // 分析最近6个月数据
+    // 主要节假日及其日期范围 [开始, 结束]（示例数据，可按需扩展）
+    private static final Map<String, LocalDate[]> HOLIDAYS = new HashMap<>();
+
+    static {
+        HOLIDAYS.put("春节", new LocalDate[]{LocalDate.of(2025, 1, 28), LocalDate.of(2025, 2, 4)});
+        HOLIDAYS.put("劳动节", new LocalDate[]{LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 5)});
+        HOLIDAYS.put("儿童节", new LocalDate[]{LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 1)});
+    }
+
+    // 分类关键词映射表，只构建一次
+    private static final Map<String, List<String>> CATEGORY_KEYWORDS = createCategoryKeywordsMap();
+
     private final        FinanceController controller;
+    // 按当前用户分类编译好的关键词自动机，分类变化时才重建
+    private List<String>   matcherCategories;
+    private KeywordMatcher keywordMatcher;
 
     public AIAnalyzer(FinanceController controller) {
         this.controller = controller;
@@ -23,33 +38,39 @@ public class AIAnalyzer {
 
     /**
      * 获取消费习惯分析报告
+     * <p>
+     * 报告所需的逐笔统计在一次遍历中收集到 {@link ReportAccumulator}，
+     * 分类、月度和总额直接读取控制器的预聚合结果，然后再渲染文本。
      */
     public String getSpendingHabitsReport() {
-        List<Transaction> transactions = controller.getTransactions();
+        Collection<Transaction> transactions = controller.getTransactionView();
         if (transactions.isEmpty()) {
             return "No transaction data available for analysis at the moment";
         }
 
+        ReportAccumulator stats = ReportAccumulator.collect(transactions);
+        BigDecimal totalSpending = controller.getTotalSpending();
+        Map<String, BigDecimal> monthlyTrend = getMonthlyTrend();
+
         StringBuilder report = new StringBuilder();
         report.append("=== Consumer Habit Analysis Report ===\n\n");
 
         // 1. 主要消费分类
         report.append("1. Main consumption categories:\n");
-            Map<String, BigDecimal> categorySpending = getCategorySpending(transactions);
-        categorySpending.entrySet().stream()
+        getCategorySpending().entrySet().stream()
                 .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
                 .forEach(entry -> {
                     report.append(String.format(" - %s: %s (%.1f%%)\n",
                             entry.getKey(),
                             formatMoney(entry.getValue()),
-                            getPercentage(entry.getValue(), getTotalSpending(transactions))
+                            getPercentage(entry.getValue(), totalSpending)
                     ));
                 });
         report.append("\n");
 
         // 2. 新增节假日消费分析
         report.append("2. Analysis of holiday consumption:\n");
-        Map<String, HolidaySpending> holidayAnalysis = analyzeHolidaySpending(transactions);
+        Map<String, HolidaySpending> holidayAnalysis = stats.holidaySpending();
         if (holidayAnalysis.isEmpty()) {
             report.append(" - No consumption records detected during holidays\n");
         } else {
@@ -64,7 +85,6 @@ public class AIAnalyzer {
 
         // 3. 月度消费趋势
         report.append("3. Monthly consumption trend:\n");
-        Map<String, BigDecimal> monthlyTrend = getMonthlyTrend(transactions);
         monthlyTrend.forEach((month, amount) -> {
             report.append(String.format(" - %s: %s\n", month, formatMoney(amount)));
         });
@@ -72,28 +92,29 @@ public class AIAnalyzer {
 
         // 4. 异常消费检测
         report.append("4. Abnormal consumption detection:\n");
-        detectAnomalies(transactions).forEach(anomaly -> {
+        List<Map<String, String>> anomalies = stats.anomalies();
+        anomalies.forEach(anomaly -> {
             report.append(String.format(" - [Exception] %s: %s (%s)\n",
                     anomaly.get("date"),
                     formatMoney(new BigDecimal(anomaly.get("amount"))),
                     anomaly.get("description")
             ));
         });
-        if (detectAnomalies(transactions).isEmpty()) {
+        if (anomalies.isEmpty()) {
             report.append(" - No obvious abnormal consumption detected\n");
         }
         report.append("\n");
 
         // 5. 预算执行情况
         report.append("5. Budget recommendations:\n");
-        generateBudgetAdvice().forEach(advice -> {
+        generateBudgetAdvice(totalSpending, monthlyTrend).forEach(advice -> {
             report.append(String.format(" - %s\n", advice));
         });
 
 
         // ==== 新增：6. 下月消费预测 ====
         report.append("\n6. Next Month Spending Forecast:\n");
-        Map<String, BigDecimal> forecast = getSpendingForecast();
+        Map<String, BigDecimal> forecast = getSpendingForecast(monthlyTrend);
 
         // 仅获取下个月的预测值（第一个键值对）
         Optional<Map.Entry<String, BigDecimal>> nextMonthForecast =
@@ -118,40 +139,19 @@ public class AIAnalyzer {
      * 检测异常消费（超过平均值的2倍标准差）
      */
     public List<Map<String, String>> detectAnomalies(List<Transaction> transactions) {
-        List<Transaction> expenses = transactions.stream()
-                .filter(t -> t.isExpense())
-                .collect(Collectors.toList());
-
-        if (expenses.isEmpty()) { return Collections.emptyList(); }
-
-        // 计算平均值和标准差
-        BigDecimal average = getAverageSpending(expenses);
-        BigDecimal stdDev = calculateStandardDeviation(expenses, average);
-
-        // 检测异常（平均值 + 2倍标准差）
-        BigDecimal threshold = average.add(stdDev.multiply(new BigDecimal(2)));
-
-        return expenses.stream()
-                .filter(t -> t.getAmount().compareTo(threshold) > 0)
-                .sorted((t1, t2) -> t2.getAmount().compareTo(t1.getAmount()))
-                .map(t -> {
-                    Map<String, String> anomaly = new HashMap<>();
-                    anomaly.put("date", formatDate(t.getDate()));
-                    anomaly.put("amount", t.getAmount().toString());
-                    anomaly.put("description", t.getDescription());
-                    anomaly.put("category", t.getCategory());
-                    return anomaly;
-                })
-                .collect(Collectors.toList());
+        return ReportAccumulator.collect(transactions).anomalies();
     }
 
     /**
      * 生成预算优化建议
      */
     public List<String> generateBudgetAdvice() {
+        return generateBudgetAdvice(controller.getTotalSpending(), getMonthlyTrend());
+    }
+
+    private List<String> generateBudgetAdvice(BigDecimal totalSpending, Map<String, BigDecimal> monthlyTrend) {
         List<String> advice = new ArrayList<>();
-        BigDecimal totalIncome = getTotalIncome();
-        BigDecimal totalSpending = getTotalSpending(controller.getTransactions());
+        BigDecimal totalIncome = controller.getTotalIncome();
 
         // 储蓄率分析
         BigDecimal savingsRate = totalIncome.compareTo(BigDecimal.ZERO) > 0 ?
@@ -165,7 +165,7 @@ public class AIAnalyzer {
         }
 
         // 分类支出建议
-        getCategorySpending(controller.getTransactions()).entrySet().stream()
+        getCategorySpending().entrySet().stream()
                 .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
                 .limit(3)
                 .forEach(entry -> {
@@ -176,7 +176,7 @@ public class AIAnalyzer {
                 });
 
         // 月度波动建议
-        if (hasSignificantMonthlyVariation()) {
+        if (hasSignificantMonthlyVariation(monthlyTrend)) {
             advice.add("Detected significant fluctuations in monthly expenses, it is recommended to balance monthly consumption!");
         }
 
@@ -187,8 +187,10 @@ public class AIAnalyzer {
      * 获取未来3个月支出预测
      */
     public Map<String, BigDecimal> getSpendingForecast() {
-        Map<String, BigDecimal> monthlyTrend = getMonthlyTrend(controller.getTransactions());
+        return getSpendingForecast(getMonthlyTrend());
+    }
 
+    private Map<String, BigDecimal> getSpendingForecast(Map<String, BigDecimal> monthlyTrend) {
         // 简单预测：取最近3个月平均值
         BigDecimal avgLast3Months = monthlyTrend.values().stream()
                 .limit(3)
@@ -207,73 +209,24 @@ public class AIAnalyzer {
 
     // ========== 辅助方法 ==========
 
-    private Map<String, BigDecimal> getCategorySpending(List<Transaction> transactions) {
-        return transactions.stream()
-                .filter(Transaction::isExpense)
-                .collect(Collectors.groupingBy(
-                        Transaction::getCategory,
-                        Collectors.reducing(
-                                BigDecimal.ZERO,
-                                Transaction::getAmount,
-                                BigDecimal::add
-                        )
-                ));
+    private Map<String, BigDecimal> getCategorySpending() {
+        return controller.getRollup().getCategoryTotals(Transaction.TYPE_EXPENSE);
     }
 
-    private Map<String, BigDecimal> getMonthlyTrend(List<Transaction> transactions) {
+    private Map<String, BigDecimal> getMonthlyTrend() {
         Map<String, BigDecimal> trend = new TreeMap<>();
-        LocalDate now = LocalDate.now();
+        SpendingRollup rollup = controller.getRollup();
+        YearMonth now = YearMonth.now();
 
         for (int i = RECENT_MONTHS - 1; i >= 0; i--) {
-            LocalDate month = now.minusMonths(i);
-            String monthKey = month.getMonthValue() + "Month";
-
-            BigDecimal monthlyTotal = transactions.stream()
-                    .filter(t -> isSameMonth(t.getDate(), month))
-                    .filter(Transaction::isExpense)
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            trend.put(monthKey, monthlyTotal);
+            YearMonth month = now.minusMonths(i);
+            trend.put(month.getMonthValue() + "Month", rollup.getMonthTotal(month, Transaction.TYPE_EXPENSE));
         }
 
         return trend;
     }
 
-    private BigDecimal getTotalSpending(List<Transaction> transactions) {
-        return transactions.stream()
-                .filter(Transaction::isExpense)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal getTotalIncome() {
-        return controller.getTransactions().stream()
-                .filter(Transaction::isIncome)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal getAverageSpending(List<Transaction> transactions) {
-        if (transactions.isEmpty()) { return BigDecimal.ZERO; }
-        BigDecimal total = getTotalSpending(transactions);
-        return total.divide(new BigDecimal(transactions.size()), 2, RoundingMode.HALF_UP);
-    }
-
-    private BigDecimal calculateStandardDeviation(List<Transaction> transactions, BigDecimal mean) {
-        if (transactions.size() < 2) { return BigDecimal.ZERO; }
-
-        BigDecimal variance = transactions.stream()
-                .map(t -> t.getAmount().subtract(mean).pow(2))
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(new BigDecimal(transactions.size()), 10, RoundingMode.HALF_UP);
-
-        return new BigDecimal(Math.sqrt(variance.doubleValue()))
-                .setScale(2, RoundingMode.HALF_UP);
-    }
-
-    private boolean hasSignificantMonthlyVariation() {
-        Map<String, BigDecimal> monthlyTrend = getMonthlyTrend(controller.getTransactions());
+    private boolean hasSignificantMonthlyVariation(Map<String, BigDecimal> monthlyTrend) {
         if (monthlyTrend.size() < 3) { return false; }
 
         BigDecimal avg = monthlyTrend.values().stream()
@@ -289,12 +242,6 @@ public class AIAnalyzer {
         return stdDev.compareTo(avg.multiply(new BigDecimal("0.3"))) > 0;
     }
 
-    private boolean isSameMonth(Date date, LocalDate localDate) {
-        LocalDate transactionDate = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        return transactionDate.getMonth() == localDate.getMonth() &&
-                transactionDate.getYear() == localDate.getYear();
-    }
-
     private String formatMoney(BigDecimal amount) {
         return "¥" + amount.setScale(2, RoundingMode.HALF_UP);
     }
@@ -303,10 +250,6 @@ public class AIAnalyzer {
         return decimal.multiply(new BigDecimal(100)).setScale(1, RoundingMode.HALF_UP) + "%";
     }
 
-    private String formatDate(Date date) {
-        return new SimpleDateFormat("yyyy-MM-dd").format(date);
-    }
-
     private double getPercentage(BigDecimal part, BigDecimal total) {
         if (total.compareTo(BigDecimal.ZERO) == 0) {return 0;}
         return part.divide(total, 4, RoundingMode.HALF_UP).doubleValue() * 100;
@@ -318,6 +261,17 @@ public class AIAnalyzer {
      * @return 匹配到的分类，如果无法匹配则返回null
      */
     public String matchCategory(String description) {
+        return matchCategory(description, null, null);
+    }
+
+    /**
+     * 根据交易描述、类型和金额智能匹配分类
+     * @param description 交易描述
+     * @param type 交易类型，未知时为 null
+     * @param amount 金额，未知时为 null
+     * @return 匹配到的分类，如果无法匹配则返回null
+     */
+    public String matchCategory(String description, String type, BigDecimal amount) {
         if (description == null || description.trim().isEmpty()) {
             return null;
         }
@@ -327,47 +281,81 @@ public class AIAnalyzer {
         if (categories.isEmpty()) {
             return null;
         }
+        return matchCategory(description, type, amount, categories, getKeywordMatcher(categories));
+    }
+
+    /**
+     * 批量匹配分类并写回交易，供导入使用
+     * <p>
+     * 整批只取一次分类列表和关键词自动机，描述、类型、金额完全相同的交易只匹配一次。
+     * 文件中已经带有分类的交易保持不变。
+     * @param transactions 待匹配的交易
+     */
+    public void matchCategories(List<Transaction> transactions) {
+        List<String> categories = controller.getUser().getCategories();
+        KeywordMatcher matcher = categories.isEmpty() ? null : getKeywordMatcher(categories);
+        Map<String, String> matched = new HashMap<>();
+        for (Transaction t : transactions) {
+            String description = t.getDescription();
+            if (t.getCategory() != null || matcher == null || description == null || description.trim().isEmpty()) {
+                continue;
+            }
+            String key = description + '\u0000' + t.getType() + '\u0000'
+                    + (t.getAmount() == null ? "" : t.getAmount().toPlainString());
+            t.setCategory(matched.computeIfAbsent(key,
+                    k -> matchCategory(description, t.getType(), t.getAmount(), categories, matcher)));
+        }
+    }
 
+    private String matchCategory(String description, String type, BigDecimal amount,
+                                 List<String> categories, KeywordMatcher matcher) {
         // 转换为小写方便匹配
         String descLower = description.toLowerCase();
 
-        // 1. 首先检查是否有明确的分类关键词匹配
-        Map<String, List<String>> keywordMap = createCategoryKeywordsMap();
-        for (Map.Entry<String, List<String>> entry : keywordMap.entrySet()) {
-            String category = entry.getKey();
-            if (categories.contains(category)) { // 确保该分类在当前用户分类列表中
-                for (String keyword : entry.getValue()) {
-                    if (descLower.contains(keyword)) {
-                        return category;
-                    }
-                }
-            }
+        // 1. 首先检查是否有明确的分类关键词匹配（一次扫描匹配全部关键词）
+        String keywordCategory = matcher.match(descLower);
+        if (keywordCategory != null) {
+            return keywordCategory;
         }
 
-        // 2. 如果没有明确匹配，查找用户历史交易中最相似的描述
-        Map<String, Integer> categoryMatchCount = new HashMap<>();
-        List<Transaction> userTransactions = controller.getTransactions();
-
-        for (Transaction t : userTransactions) {
-            if (t.getDescription() != null && t.getDescription().toLowerCase().contains(descLower)) {
-                categoryMatchCount.merge(t.getCategory(), 1, Integer::sum);
-            }
+        // 2. 由在线训练的分类模型根据历史交易推荐
+        String learnedCategory = controller.getCategorizer().classify(description, type, amount);
+        if (learnedCategory != null && categories.contains(learnedCategory)) {
+            return learnedCategory;
         }
 
-        if (!categoryMatchCount.isEmpty()) {
-            // 返回匹配次数最多的分类
-            return categoryMatchCount.entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse(null);
+        // 3. 如果模型没有把握，通过描述倒排索引查找历史上相似描述最常用的分类
+        String similarCategory = controller.getDescriptionIndex().suggest(descLower);
+        if (similarCategory != null) {
+            return similarCategory;
         }
 
-        // 3. 如果还是没有匹配，使用默认分类
+        // 4. 如果还是没有匹配，使用默认分类
         return getDefaultCategory(descLower);
     }
 
+    /**
+     * 获取当前用户分类对应的关键词自动机，用户分类变化时重建
+     * <p>
+     * 表单的分类推荐在后台线程调用，需要同步
+     */
+    private synchronized KeywordMatcher getKeywordMatcher(List<String> categories) {
+        if (keywordMatcher == null || !categories.equals(matcherCategories)) {
+            // 只保留当前用户分类列表中的分类，优先级沿用关键词表的遍历顺序
+            Map<String, List<String>> active = new LinkedHashMap<>();
+            CATEGORY_KEYWORDS.forEach((category, keywords) -> {
+                if (categories.contains(category)) {
+                    active.put(category, keywords);
+                }
+            });
+            keywordMatcher = new KeywordMatcher(active);
+            matcherCategories = new ArrayList<>(categories);
+        }
+        return keywordMatcher;
+    }
+
     // 创建分类关键词映射表
-    private Map<String, List<String>> createCategoryKeywordsMap() {
+    private static Map<String, List<String>> createCategoryKeywordsMap() {
         Map<String, List<String>> keywordMap = new HashMap<>();
 
         // 餐饮相关 Food & Dining
@@ -424,132 +412,123 @@ public class AIAnalyzer {
     }
 
     /**
-     * 分析节假日消费数据
+     * 报告统计累加器：一次遍历收集异常检测和节假日分析所需的全部数据
      */
-    private Map<String, HolidaySpending> analyzeHolidaySpending(List<Transaction> transactions) {
-        Map<String, HolidaySpending> result = new LinkedHashMap<>();
-
-        // 定义主要节假日及其日期范围（示例数据，可按需扩展）
-        Map<String, List<LocalDate>> holidays = new HashMap<>();
-
-        List<LocalDate> springFestivalHolidays = new ArrayList<>();
-        springFestivalHolidays.add(LocalDate.of(2025, 1, 28));
-        springFestivalHolidays.add(LocalDate.of(2025, 2, 4));
-        holidays.put("春节", springFestivalHolidays);
-
-        List<LocalDate> nationalDayHolidays = new ArrayList<>();
-        nationalDayHolidays.add(LocalDate.of(2025, 5, 1));
-        nationalDayHolidays.add(LocalDate.of(2025, 5, 5));
-        holidays.put("劳动节", nationalDayHolidays);
-
-        List<LocalDate> ChildrenDay = new ArrayList<>();
-        ChildrenDay.add(LocalDate.of(2025, 6, 1));
-        ChildrenDay.add(LocalDate.of(2025, 6, 1));
-        holidays.put("儿童节", ChildrenDay);
-
-
-        // 计算平常日平均消费
-        BigDecimal normalAverage = calculateNormalDailyAverage(transactions, holidays);
-        if (normalAverage.compareTo(BigDecimal.ZERO) == 0) {
-            return result;
+    private static class ReportAccumulator {
+        private final List<Transaction> expenses = new ArrayList<>();
+        private BigDecimal expenseSum = BigDecimal.ZERO;
+        private BigDecimal expenseSumOfSquares = BigDecimal.ZERO;
+        // 非节假日每天的支出合计
+        private final Map<LocalDate, BigDecimal> normalDaySpending = new HashMap<>();
+        // 节假日名称 -> [笔数, 合计]
+        private final Map<String, BigDecimal[]> holidayTotals = new HashMap<>();
+
+        static ReportAccumulator collect(Collection<Transaction> transactions) {
+            ReportAccumulator accumulator = new ReportAccumulator();
+            ZoneId zone = ZoneId.systemDefault();
+            for (Transaction t : transactions) {
+                accumulator.accept(t, zone);
+            }
+            return accumulator;
         }
 
-        // 分析每个节假日的消费
-        for (Map.Entry<String, List<LocalDate>> entry : holidays.entrySet()) {
-            String holidayName = entry.getKey();
-            LocalDate startDate = entry.getValue().get(0);
-            LocalDate endDate = entry.getValue().get(1);
-
-            HolidaySpending holidayData = calculateHolidaySpending(
-                    transactions, startDate, endDate, normalAverage);
-
-            if (holidayData.getTransactionCount() > 0) {
-                result.put(holidayName, holidayData);
+        private void accept(Transaction t, ZoneId zone) {
+            if (!t.isExpense()) {
+                return;
+            }
+            BigDecimal amount = t.getAmount();
+            expenses.add(t);
+            expenseSum = expenseSum.add(amount);
+            expenseSumOfSquares = expenseSumOfSquares.add(amount.multiply(amount));
+
+            LocalDate day = t.getDate().toInstant().atZone(zone).toLocalDate();
+            boolean holiday = false;
+            for (Map.Entry<String, LocalDate[]> entry : HOLIDAYS.entrySet()) {
+                LocalDate[] range = entry.getValue();
+                if (!day.isBefore(range[0]) && !day.isAfter(range[1])) {
+                    BigDecimal[] tally = holidayTotals.computeIfAbsent(entry.getKey(),
+                            k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                    tally[0] = tally[0].add(BigDecimal.ONE);
+                    tally[1] = tally[1].add(amount);
+                    holiday = true;
+                }
+            }
+            if (!holiday) {
+                normalDaySpending.merge(day, amount, BigDecimal::add);
             }
         }
 
-        return result;
-    }
-
-    /**
-     * 计算平常日平均消费（排除节假日）
-     */
-    private BigDecimal calculateNormalDailyAverage(List<Transaction> transactions,
-                                                   Map<String, List<LocalDate>> holidays) {
-        // 获取所有节假日日期
-        Set<LocalDate> allHolidayDates = new HashSet<>();
-        holidays.values().forEach(dates -> {
-            LocalDate start = dates.get(0);
-            LocalDate end = dates.get(1);
-            LocalDate current = start;
-            while (!current.isAfter(end)) {
-                allHolidayDates.add(current);
-                current = current.plusDays(1);
+        /**
+         * 异常消费：金额超过 平均值 + 2倍标准差 的支出，按金额倒序
+         */
+        List<Map<String, String>> anomalies() {
+            if (expenses.isEmpty()) { return Collections.emptyList(); }
+
+            BigDecimal count = new BigDecimal(expenses.size());
+            BigDecimal average = expenseSum.divide(count, 2, RoundingMode.HALF_UP);
+            BigDecimal stdDev = BigDecimal.ZERO;
+            if (expenses.size() >= 2) {
+                // Σ(x-m)² = Σx² - 2mΣx + n·m²，与逐笔求差的结果完全相同
+                BigDecimal squares = expenseSumOfSquares
+                        .subtract(average.multiply(expenseSum).multiply(new BigDecimal(2)))
+                        .add(average.pow(2).multiply(count));
+                BigDecimal variance = squares.divide(count, 10, RoundingMode.HALF_UP);
+                stdDev = new BigDecimal(Math.sqrt(variance.doubleValue()))
+                        .setScale(2, RoundingMode.HALF_UP);
             }
-        });
-
-        // 计算非节假日的消费
-        List<BigDecimal> normalDaySpending = transactions.stream()
-                .filter(t -> t.isExpense())
-                .filter(t -> !isHoliday(t.getDate(), allHolidayDates))
-                .collect(Collectors.groupingBy(
-                        t -> t.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate(),
-                        Collectors.reducing(
-                                BigDecimal.ZERO,
-                                Transaction::getAmount,
-                                BigDecimal::add
-                        )
-                ))
-                .values().stream()
-                .filter(amount -> amount.compareTo(BigDecimal.ZERO) > 0)
-                .collect(Collectors.toList());
-
-        if (normalDaySpending.isEmpty()) {return BigDecimal.ZERO;}
-
-        BigDecimal total = normalDaySpending.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return total.divide(new BigDecimal(normalDaySpending.size()), 2, RoundingMode.HALF_UP);
-    }
-
-    /**
-     * 计算特定节假日的消费数据
-     */
-    private HolidaySpending calculateHolidaySpending(List<Transaction> transactions,
-                                                     LocalDate startDate, LocalDate endDate,
-                                                     BigDecimal normalAverage) {
-        List<BigDecimal> holidaySpending = transactions.stream()
-                .filter(t -> t.isExpense())
-                .filter(t -> isDateBetween(t.getDate(), startDate, endDate))
-                .map(Transaction::getAmount)
-                .collect(Collectors.toList());
-
-        if (holidaySpending.isEmpty()) {
-            return new HolidaySpending(BigDecimal.ZERO, 0, normalAverage.doubleValue());
+            BigDecimal threshold = average.add(stdDev.multiply(new BigDecimal(2)));
+
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+            List<Map<String, String>> result = new ArrayList<>();
+            expenses.stream()
+                    .filter(t -> t.getAmount().compareTo(threshold) > 0)
+                    .sorted((t1, t2) -> t2.getAmount().compareTo(t1.getAmount()))
+                    .forEach(t -> {
+                        Map<String, String> anomaly = new HashMap<>();
+                        anomaly.put("date", dateFormat.format(t.getDate()));
+                        anomaly.put("amount", t.getAmount().toString());
+                        anomaly.put("description", t.getDescription());
+                        anomaly.put("category", t.getCategory());
+                        result.add(anomaly);
+                    });
+            return result;
         }
 
-        BigDecimal total = holidaySpending.stream()
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal average = total.divide(
-                new BigDecimal(holidaySpending.size()), 2, RoundingMode.HALF_UP);
-
-        double increasePercentage = normalAverage.compareTo(BigDecimal.ZERO) > 0 ?
-                average.subtract(normalAverage).divide(normalAverage, 4, RoundingMode.HALF_UP)
-                        .doubleValue() * 100 : 0;
-
-        return new HolidaySpending(average, holidaySpending.size(), increasePercentage);
-    }
-
-    // 辅助方法
-    private boolean isHoliday(Date date, Set<LocalDate> holidays) {
-        LocalDate localDate = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        return holidays.contains(localDate);
-    }
+        /**
+         * 各节假日的平均单笔消费及相对平常日均消费的涨幅
+         */
+        Map<String, HolidaySpending> holidaySpending() {
+            Map<String, HolidaySpending> result = new LinkedHashMap<>();
+
+            // 平常日平均消费（只统计有支出的日子）
+            BigDecimal normalTotal = BigDecimal.ZERO;
+            int normalDays = 0;
+            for (BigDecimal amount : normalDaySpending.values()) {
+                if (amount.compareTo(BigDecimal.ZERO) > 0) {
+                    normalTotal = normalTotal.add(amount);
+                    normalDays++;
+                }
+            }
+            if (normalDays == 0) {
+                return result;
+            }
+            BigDecimal normalAverage = normalTotal.divide(new BigDecimal(normalDays), 2, RoundingMode.HALF_UP);
+            if (normalAverage.compareTo(BigDecimal.ZERO) == 0) {
+                return result;
+            }
 
-    private boolean isDateBetween(Date date, LocalDate start, LocalDate end) {
-        LocalDate localDate = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        return !localDate.isBefore(start) && !localDate.isAfter(end);
+            for (String holidayName : HOLIDAYS.keySet()) {
+                BigDecimal[] tally = holidayTotals.get(holidayName);
+                if (tally == null) {
+                    continue;
+                }
+                BigDecimal average = tally[1].divide(tally[0], 2, RoundingMode.HALF_UP);
+                double increasePercentage = average.subtract(normalAverage)
+                        .divide(normalAverage, 4, RoundingMode.HALF_UP).doubleValue() * 100;
+                result.put(holidayName, new HolidaySpending(average, tally[0].intValue(), increasePercentage));
+            }
+            return result;
+        }
     }
 
     /**
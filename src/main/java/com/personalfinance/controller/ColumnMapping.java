@@ -0,0 +1,120 @@
+package com.personalfinance.controller;
+
+/**
+ * 导入文件的列映射：每个字段所在的列号，-1 表示文件中没有该列
+ * <p>
+ * 根据表头按前缀识别列（不区分大小写，中英文均可），
+ * 表头中找不到金额或日期列时退回模板的固定顺序：金额, 类型, 日期, 描述。
+ */
+public class ColumnMapping {
+    public static final ColumnMapping TEMPLATE = new ColumnMapping(0, 1, 2, 3, -1, -1);
+
+    private static final String[] AMOUNT_NAMES = {"amount", "金额"};
+    private static final String[] TYPE_NAMES = {"type", "类型", "收支"};
+    private static final String[] DATE_NAMES = {"date", "日期"};
+    private static final String[] DESCRIPTION_NAMES = {"desc", "memo", "描述", "备注"};
+    private static final String[] ACCOUNT_NAMES = {"account", "账户"};
+    private static final String[] CATEGORY_NAMES = {"category", "分类"};
+
+    private final int amount;
+    private final int type;
+    private final int date;
+    private final int description;
+    private final int account;
+    private final int category;
+
+    public ColumnMapping(int amount, int type, int date, int description, int account, int category) {
+        this.amount = amount;
+        this.type = type;
+        this.date = date;
+        this.description = description;
+        this.account = account;
+        this.category = category;
+    }
+
+    /**
+     * 根据表头记录识别列
+     * @param header 已读到表头记录的读取器
+     */
+    public static ColumnMapping fromHeader(CsvReader header) {
+        String[] names = new String[header.getFieldCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = header.field(i);
+        }
+        return fromHeader(names);
+    }
+
+    /**
+     * 根据表头各列的名称识别列，null 表示空单元格
+     */
+    public static ColumnMapping fromHeader(String[] header) {
+        int amount = -1, type = -1, date = -1, description = -1, account = -1, category = -1;
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] == null) {
+                continue;
+            }
+            String name = header[i].trim().toLowerCase();
+            if (name.startsWith("\uFEFF")) {
+                name = name.substring(1); // UTF-8 BOM
+            }
+            if (amount < 0 && startsWithAny(name, AMOUNT_NAMES)) {
+                amount = i;
+            } else if (type < 0 && startsWithAny(name, TYPE_NAMES)) {
+                type = i;
+            } else if (date < 0 && startsWithAny(name, DATE_NAMES)) {
+                date = i;
+            } else if (description < 0 && startsWithAny(name, DESCRIPTION_NAMES)) {
+                description = i;
+            } else if (account < 0 && startsWithAny(name, ACCOUNT_NAMES)) {
+                account = i;
+            } else if (category < 0 && startsWithAny(name, CATEGORY_NAMES)) {
+                category = i;
+            }
+        }
+        if (amount < 0 || date < 0) {
+            return TEMPLATE;
+        }
+        return new ColumnMapping(amount, type, date, description, account, category);
+    }
+
+    private static boolean startsWithAny(String name, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getAmount() {
+        return amount;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getDate() {
+        return date;
+    }
+
+    public int getDescription() {
+        return description;
+    }
+
+    public int getAccount() {
+        return account;
+    }
+
+    public int getCategory() {
+        return category;
+    }
+
+    /**
+     * 用到的最大列号加一，即读取一行时需要保留的列数
+     */
+    public int getWidth() {
+        return Math.max(Math.max(Math.max(amount, type), Math.max(date, description)),
+                Math.max(account, category)) + 1;
+    }
+}
@@ -0,0 +1,220 @@
+package com.personalfinance.controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * RFC 4180 CSV 读取器
+ * <p>
+ * 支持双引号包围的字段（字段内可以包含分隔符、换行，"" 表示一个引号）、可配置的分隔符，
+ * 行尾可以是 CRLF、LF 或 CR。每条记录的字符写入同一个复用的缓冲区，
+ * 字段只记录起止位置，调用 {@link #field(int)} 时才创建字符串，不需要的列不产生任何分配。
+ */
+public class CsvReader implements Closeable {
+    private final Reader in;
+    private final char delimiter;
+
+    // 输入缓冲
+    private final char[] input = new char[8192];
+    private int inputPos;
+    private int inputLimit;
+
+    // 当前记录：去掉引号和转义后的字符，以及每个字段的起止位置
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+
+    private int line;         // 下一个字符所在的物理行
+    private int recordLine;   // 当前记录起始的物理行
+    private int recordLines;  // 当前记录占用的物理行数
+
+    public CsvReader(Reader in) {
+        this(in, ',');
+    }
+
+    public CsvReader(Reader in, char delimiter) {
+        this(in, delimiter, 1);
+    }
+
+    /**
+     * @param firstLine 输入第一行的行号；从文件中间开始读取时传入该处在整个文件中的行号
+     */
+    public CsvReader(Reader in, char delimiter, int firstLine) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        this.in = in;
+        this.delimiter = delimiter;
+        this.line = firstLine;
+    }
+
+    /**
+     * 读取下一条记录
+     * @return 读到记录返回 true，已到文件末尾返回 false
+     * @throws IllegalArgumentException 引号字段直到文件末尾都没有闭合
+     */
+    public boolean next() throws IOException {
+        recordLength = 0;
+        fieldCount = 0;
+        recordLine = line;
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+
+        int fieldStart = 0;
+        boolean quoted = false;
+        boolean atFieldStart = true;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IllegalArgumentException("Unterminated quoted field starting in line " + recordLine);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                        line++;
+                    }
+                    append((char) c);
+                }
+            } else if (c == '"' && atFieldStart) {
+                quoted = true;
+                atFieldStart = false;
+            } else if (c == delimiter) {
+                endField(fieldStart);
+                fieldStart = recordLength;
+                atFieldStart = true;
+            } else if (c == '\n' || c == '\r' || c < 0) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (c >= 0) {
+                    line++;
+                }
+                endField(fieldStart);
+                break;
+            } else {
+                // 闭合引号之后的多余字符按原样保留
+                append((char) c);
+                atFieldStart = false;
+            }
+            c = read();
+        }
+        recordLines = Math.max(1, line - recordLine);
+        return true;
+    }
+
+    /**
+     * 当前记录的字段数
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 第 index 个字段的值，超出字段数返回 null
+     */
+    public String field(int index) {
+        if (index < 0 || index >= fieldCount) {
+            return null;
+        }
+        return new String(record, starts[index], ends[index] - starts[index]);
+    }
+
+    /**
+     * 第 index 个字段去掉首尾空白后是否为空，不创建字符串
+     */
+    public boolean isBlank(int index) {
+        if (index < 0 || index >= fieldCount) {
+            return true;
+        }
+        for (int i = starts[index]; i < ends[index]; i++) {
+            if (!Character.isWhitespace(record[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前记录是否为空行
+     */
+    public boolean isBlank() {
+        for (int i = 0; i < fieldCount; i++) {
+            if (!isBlank(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前记录起始的物理行号（从 1 开始）
+     */
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * 当前记录占用的物理行数，引号字段内含换行时大于 1
+     */
+    public int getRecordLines() {
+        return recordLines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void endField(int fieldStart) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = fieldStart;
+        ends[fieldCount] = recordLength;
+        fieldCount++;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private int read() throws IOException {
+        if (inputPos == inputLimit && !fill()) {
+            return -1;
+        }
+        return input[inputPos++];
+    }
+
+    private int peek() throws IOException {
+        if (inputPos == inputLimit && !fill()) {
+            return -1;
+        }
+        return input[inputPos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(input, 0, input.length);
+        if (n <= 0) {
+            return false;
+        }
+        inputPos = 0;
+        inputLimit = n;
+        return true;
+    }
+}
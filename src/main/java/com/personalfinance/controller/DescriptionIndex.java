@@ -0,0 +1,169 @@
+package com.personalfinance.controller;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 交易描述的倒排索引：词 -> 分类 -> 出现次数
+ * <p>
+ * 由 {@link FinanceController} 随交易增删改增量维护，
+ * 用于在关键词未命中时根据历史上相似描述的分类给出建议。
+ * 英文/数字按连续字母数字切词，中文按相邻两字切分。
+ * 查询可能来自后台线程或并行导入的多个线程，用读写锁保护：查询之间互不阻塞。
+ */
+public class DescriptionIndex {
+    private static final int MIN_PREFIX_LENGTH = 2;  // 最后一个词按前缀匹配的最小长度
+    private static final int MAX_PREFIX_TERMS = 64;  // 前缀最多展开的词数
+
+    private final NavigableMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(String description, String category) {
+        update(description, category, 1);
+    }
+
+    public void remove(String description, String category) {
+        update(description, category, -1);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 根据描述推荐分类
+     * <p>
+     * 每个查询词得到一组分类计数（最后一个词按前缀匹配，以便边输入边推荐），
+     * 只有所有查询词都出现过的分类才参与比较，得分取各词计数的最小值。
+     * @param description 查询描述
+     * @return 得分最高的分类，没有匹配返回 null
+     */
+    public String suggest(String description) {
+        lock.readLock().lock();
+        try {
+            List<String> terms = tokenize(description);
+            if (terms.isEmpty()) {
+                return null;
+            }
+
+            Map<String, Integer> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                boolean prefix = i == terms.size() - 1 && term.length() >= MIN_PREFIX_LENGTH;
+                Map<String, Integer> counts = lookup(term, prefix);
+                if (scores == null) {
+                    scores = counts;
+                } else {
+                    scores.keySet().retainAll(counts.keySet());
+                    for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+                        entry.setValue(Math.min(entry.getValue(), counts.get(entry.getKey())));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return null;
+                }
+            }
+
+            return scores.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Integer> lookup(String term, boolean prefix) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (!prefix) {
+            Map<String, Integer> exact = postings.get(term);
+            if (exact != null) {
+                counts.putAll(exact);
+            }
+            return counts;
+        }
+        int expanded = 0;
+        for (Map<String, Integer> byCategory : postings.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+            byCategory.forEach((category, count) -> counts.merge(category, count, Integer::sum));
+            if (++expanded >= MAX_PREFIX_TERMS) {
+                break;
+            }
+        }
+        return counts;
+    }
+
+    private void update(String description, String category, int delta) {
+        lock.writeLock().lock();
+        try {
+            if (description == null || category == null) {
+                return;
+            }
+            // 同一描述中重复的词只计一次
+            for (String term : new HashSet<>(tokenize(description))) {
+                Map<String, Integer> byCategory = postings.computeIfAbsent(term, k -> new HashMap<>());
+                int count = byCategory.getOrDefault(category, 0) + delta;
+                if (count > 0) {
+                    byCategory.put(category, count);
+                } else {
+                    byCategory.remove(category);
+                    if (byCategory.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 切词：连续的字母数字为一个词，中文等表意文字按相邻两字切分
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder word = new StringBuilder();
+        StringBuilder ideographs = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isIdeographic(c)) {
+                flushWord(word, terms);
+                ideographs.append(c);
+            } else if (Character.isLetterOrDigit(c)) {
+                flushIdeographs(ideographs, terms);
+                word.append(Character.toLowerCase(c));
+            } else {
+                flushWord(word, terms);
+                flushIdeographs(ideographs, terms);
+            }
+        }
+        flushWord(word, terms);
+        flushIdeographs(ideographs, terms);
+        return terms;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> terms) {
+        if (word.length() > 0) {
+            terms.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushIdeographs(StringBuilder ideographs, List<String> terms) {
+        if (ideographs.length() == 1) {
+            terms.add(ideographs.toString());
+        }
+        for (int i = 0; i + 1 < ideographs.length(); i++) {
+            terms.add(ideographs.substring(i, i + 2));
+        }
+        ideographs.setLength(0);
+    }
+}
@@ -0,0 +1,22 @@
+package com.personalfinance.controller;
+
+/**
+ * 导入时某个字段的值不合法
+ */
+public class FieldFormatException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final String field;
+
+    public FieldFormatException(String field, String message) {
+        super(message);
+        this.field = field;
+    }
+
+    /**
+     * 出错的字段名，例如 amount、date
+     */
+    public String getField() {
+        return field;
+    }
+}
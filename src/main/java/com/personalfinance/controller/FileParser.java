@@ -4,10 +4,59 @@ import com.personalfinance.model.Transaction;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 // 定义文件解析器接口
 public interface FileParser {
+    // 流式解析时每块的默认条数
+    int DEFAULT_CHUNK_SIZE = 1000;
+
     // 解析文件的方法
     List<Transaction> parse(File file) throws IOException;
+
+    /**
+     * 流式解析：每解析出 chunkSize 条交易就回调一次，最后一块可能不足 chunkSize
+     * 默认实现基于 {@link #parse(File)}，支持流式读取的解析器应覆盖此方法
+     * @param file 待解析文件
+     * @param chunkSize 每块的最大条数
+     * @param consumer 接收每块交易的回调
+     */
+    default void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        List<Transaction> all = parse(file);
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, all.size());
+            consumer.accept(new ArrayList<>(all.subList(from, to)));
+        }
+    }
+
+    /**
+     * 容错解析：跳过不合法的数据行并记入报告，其余行照常返回
+     * @param file 待解析文件
+     * @param report 接收错误明细的报告
+     * @return 合法的交易
+     */
+    default List<Transaction> parse(File file, ImportReport report) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        parse(file, DEFAULT_CHUNK_SIZE, transactions::addAll, report);
+        return transactions;
+    }
+
+    /**
+     * 容错的流式解析
+     * 默认实现不支持逐行容错：遇到错误时把它记入报告并停止，之前回调过的块仍然有效
+     * @param report 接收错误明细的报告
+     */
+    default void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                       ImportReport report) throws IOException {
+        try {
+            parse(file, chunkSize, consumer);
+        } catch (IllegalArgumentException e) {
+            report.addError(0, e);
+        }
+    }
 }
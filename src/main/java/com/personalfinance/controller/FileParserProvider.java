@@ -0,0 +1,33 @@
+package com.personalfinance.controller;
+
+import java.util.List;
+
+/**
+ * 文件解析器的服务提供者，通过 {@link java.util.ServiceLoader} 发现
+ * <p>
+ * 新增导入格式时实现本接口，并在 META-INF/services/com.personalfinance.controller.FileParserProvider
+ * 中登记实现类，无需修改界面代码。
+ */
+public interface FileParserProvider {
+    /**
+     * 格式名称，用于文件选择框的说明
+     */
+    String getName();
+
+    /**
+     * 支持的扩展名（小写，不含点）
+     */
+    List<String> getExtensions();
+
+    /**
+     * 根据文件开头的若干字节判断内容是否为本格式
+     * @param head 文件开头
+     * @param length head 中有效字节数
+     */
+    boolean sniff(byte[] head, int length);
+
+    /**
+     * 创建解析器
+     */
+    FileParser create(FinanceController controller);
+}
@@ -0,0 +1,123 @@
+package com.personalfinance.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * 文件解析器注册表
+ * <p>
+ * 通过 ServiceLoader 加载所有 {@link FileParserProvider}，按扩展名和文件开头内容选择解析器。
+ * 只读取文件开头 {@link #SNIFF_BYTES} 字节，选择耗时与文件大小无关。
+ */
+public class FileParserRegistry {
+    public static final int SNIFF_BYTES = 4096;
+
+    private final List<FileParserProvider> providers = new ArrayList<>();
+
+    public FileParserRegistry() {
+        this(ServiceLoader.load(FileParserProvider.class));
+    }
+
+    public FileParserRegistry(Iterable<FileParserProvider> providers) {
+        providers.forEach(this.providers::add);
+    }
+
+    public List<FileParserProvider> getProviders() {
+        return Collections.unmodifiableList(providers);
+    }
+
+    /**
+     * 所有已注册的扩展名（小写，不含点），按注册顺序
+     */
+    public Set<String> getExtensions() {
+        Set<String> extensions = new LinkedHashSet<>();
+        providers.forEach(provider -> extensions.addAll(provider.getExtensions()));
+        return extensions;
+    }
+
+    /**
+     * 为文件选择解析器
+     * <p>
+     * 优先选择扩展名匹配且内容也匹配的提供者；扩展名匹配但内容都不匹配时，
+     * 改为在全部提供者中按内容选择（例如把 OFX 文件存成了 .txt）；仍然没有时按扩展名选择。
+     * @return 解析器，没有可用的提供者时返回 null
+     */
+    public FileParser select(File file, FinanceController controller) throws IOException {
+        FileParserProvider provider = selectProvider(file);
+        return provider == null ? null : provider.create(controller);
+    }
+
+    public FileParserProvider selectProvider(File file) throws IOException {
+        byte[] head = new byte[SNIFF_BYTES];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+                length += read;
+            }
+        }
+
+        String extension = extensionOf(file);
+        FileParserProvider byExtension = null;
+        for (FileParserProvider provider : providers) {
+            if (provider.getExtensions().contains(extension)) {
+                if (provider.sniff(head, length)) {
+                    return provider;
+                }
+                if (byExtension == null) {
+                    byExtension = provider;
+                }
+            }
+        }
+        for (FileParserProvider provider : providers) {
+            if (provider != byExtension && provider.sniff(head, length)) {
+                return provider;
+            }
+        }
+        return byExtension;
+    }
+
+    private static String extensionOf(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+    }
+
+    /**
+     * 文件开头（跳过 BOM 和空白）是否以指定文本开头，不区分大小写，供各提供者嗅探使用
+     */
+    public static boolean startsWithText(byte[] head, int length, String prefix) {
+        int start = skipBomAndWhitespace(head, length);
+        if (length - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase((char) head[start + i]) != Character.toLowerCase(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 文件开头是否包含指定文本（按 ISO-8859-1 解码），供各提供者嗅探使用
+     */
+    public static boolean containsText(byte[] head, int length, String text) {
+        return new String(head, 0, length, StandardCharsets.ISO_8859_1).contains(text);
+    }
+
+    private static int skipBomAndWhitespace(byte[] head, int length) {
+        int start = 0;
+        if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            start = 3;
+        }
+        while (start < length && Character.isWhitespace((char) head[start])) {
+            start++;
+        }
+        return start;
+    }
+}
@@ -1,35 +1,85 @@
 package com.personalfinance.controller;
 
-import com.google.gson.reflect.TypeToken;
 import com.personalfinance.model.Budget;
 import com.personalfinance.model.Transaction;
 import com.personalfinance.model.User;
-import com.personalfinance.storage.JsonDataManager;
+import com.personalfinance.storage.BudgetStore;
+import com.personalfinance.storage.DocumentStore;
+import com.personalfinance.storage.MonthSummary;
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.StorageFactory;
+import com.personalfinance.storage.StorageRecovery;
+import com.personalfinance.storage.TransactionStore;
+import com.personalfinance.storage.UserStore;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class FinanceController {
+    private static final String CATEGORY_MODEL_FILE = "category_model.json";
+    private static final String IMPORT_FINGERPRINTS_FILE = "import_fingerprints.json";
+    private static final int    MODEL_SAVE_INTERVAL = 100; // 分类模型累计多少次更新后写盘
+    private static final int    RECENT_MONTHS = 3;         // 按月加载时，登录只加载最近几个月（含当月）
+
     private final AIAnalyzer        aiAnalyzer;
-    private final JsonDataManager   dataManager;
-    private       List<Transaction> transactions;
-    private       List<Budget>      budgets;
+    private final TransactionStore  transactionStore;
+    private final BudgetStore       budgetStore;
+    private final UserStore         userStore;
+    private final DocumentStore     documentStore;
+    private final StorageBackend    storage;
+    // 主键索引：ID -> 记录，LinkedHashMap 保持插入顺序，增删改均为 O(1)
+    private       Map<String, Transaction> transactions;
+    private       Map<String, Budget>      budgets;
     private       User              user;
+    // 按日期排序的索引：epoch-day -> 当天的交易（按插入顺序）
+    private final NavigableMap<Long, List<Transaction>> dateIndex = new TreeMap<>();
+    // 交易ID -> 建索引时记录的关键字段，修改/删除时据此定位并撤销
+    private final Map<String, IndexedKey> indexedKeys = new HashMap<>();
+    // 物化汇总：按类型累计的金额与笔数，每次增删改时更新
+    private       BigDecimal incomeTotal  = BigDecimal.ZERO;
+    private       BigDecimal expenseTotal = BigDecimal.ZERO;
+    private       long       incomeCount;
+    private       long       expenseCount;
+    // 按 (年月, 分类, 类型) 预聚合的汇总
+    private final SpendingRollup rollup = new SpendingRollup();
+    // 描述倒排索引，用于分类推荐
+    private final DescriptionIndex descriptionIndex = new DescriptionIndex();
+    // 在线训练的分类模型，随交易增删改更新
+    private volatile NaiveBayesCategorizer categorizer = new NaiveBayesCategorizer();
+    private       int                   unsavedModelChanges;
+    // 已导入交易的内容指纹，重复导入时跳过
+    private       ImportDeduplicator    importDeduplicator = new ImportDeduplicator();
+    private       boolean               fingerprintsDirty; // 指纹有尚未保存的变化
+    // 预算区间索引：分类 -> 开始日(epoch-day) -> 预算窗口
+    private final Map<String, NavigableMap<Long, List<BudgetWindow>>> budgetIndex = new HashMap<>();
+    // 按月加载时尚未加载的月份 -> 登录时该月的笔数；存储不支持按月加载时为空
+    private final NavigableMap<YearMonth, Integer> unloadedMonths = new TreeMap<>();
+    private       int                   unloadedCount; // 尚未加载的月份中的交易笔数
 
+    /**
+     * 使用系统属性选择的存储，见 {@link StorageFactory}
+     */
     public FinanceController() {
+        this(StorageFactory.fromSystemProperties());
+    }
+
+    public FinanceController(StorageBackend storage) {
         this.aiAnalyzer = new AIAnalyzer(this);
-        this.dataManager = new JsonDataManager();
+        this.storage = storage;
+        this.transactionStore = storage.getTransactionStore();
+        this.budgetStore = storage.getBudgetStore();
+        this.userStore = storage.getUserStore();
+        this.documentStore = storage.getDocumentStore();
         //loadAllData();
         //initializeDefaultData();
     }
 
-    public String getUserFilePath( String fileName){
-        return dataManager.getUserDataPath(this.user.getUsername(), fileName);
-    }
-
     public AIAnalyzer getAIAnalyzer() {
         return aiAnalyzer;
     }
@@ -38,10 +88,10 @@ public class FinanceController {
     // ==============================================
     private void initializeDefaultData() {
         if (transactions == null) {
-            transactions = new ArrayList<>();
+            transactions = new LinkedHashMap<>();
         }
         if (budgets == null) {
-            budgets = new ArrayList<>();
+            budgets = new LinkedHashMap<>();
         }
         // 如果没有任何交易记录，初始化一些示例数据
         if (transactions.isEmpty()) {
@@ -81,78 +131,423 @@ public class FinanceController {
             cal.add(Calendar.MONTH, 1);
             Date endDate = cal.getTime(); // 示例：2025-06-01 14:30:45（实际存储为 "2025-06-01"）
 
-            budgets.add(new Budget("Food", new BigDecimal("1000.00"), startDate, endDate));
-            budgets.add(new Budget("Transportation", new BigDecimal("500.00"), startDate, endDate));
-            budgets.add(new Budget("Shopping", new BigDecimal("1500.00"), startDate, endDate));
-            budgets.add(new Budget("Housing", new BigDecimal("1500.00"), startDate, endDate));
-            budgets.add(new Budget("Education", new BigDecimal("800.00"), startDate, endDate));
+            putBudget(new Budget("Food", new BigDecimal("1000.00"), startDate, endDate));
+            putBudget(new Budget("Transportation", new BigDecimal("500.00"), startDate, endDate));
+            putBudget(new Budget("Shopping", new BigDecimal("1500.00"), startDate, endDate));
+            putBudget(new Budget("Housing", new BigDecimal("1500.00"), startDate, endDate));
+            putBudget(new Budget("Education", new BigDecimal("800.00"), startDate, endDate));
 
             saveBudgets();
         }
 
-        // 更新预算的实际支出
-        updateBudgetSpending();
+        // 加载时全量计算一次预算的实际支出，之后增量维护
+        rebuildBudgetSpending();
     }
 
-    private void updateBudgetSpending() {
-        budgets.forEach(budget -> {
-            BigDecimal spent = transactions.stream()
-                    .filter(t -> t.getCategory() != null)
-                    .filter(t -> t.getCategory().equals(budget.getCategory()))
-                    .filter(t -> t.getType().equals("EXPENSE"))
-                    .filter(t -> !t.getDate().before(budget.getStartDate()))
-                    .filter(t -> !t.getDate().after(budget.getEndDate()))
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            budget.setSpentAmount(spent);
-        });
+    // 预算支出维护
+    // ==============================================
+
+    /**
+     * 全量重算所有预算的实际支出，只在加载时调用
+     */
+    private void rebuildBudgetSpending() {
+        rebuildBudgetIndex();
+        budgets.values().forEach(budget -> budget.setSpentAmount(BigDecimal.ZERO));
+        indexedKeys.values().forEach(key -> applyToBudgets(key, true));
+    }
+
+    private void rebuildBudgetIndex() {
+        budgetIndex.clear();
+        for (Budget budget : budgets.values()) {
+            if (budget.getCategory() == null || budget.getStartDate() == null || budget.getEndDate() == null) {
+                continue;
+            }
+            long startDay = toEpochDay(budget.getStartDate());
+            long endDay = toEpochDay(budget.getEndDate());
+            budgetIndex.computeIfAbsent(budget.getCategory(), k -> new TreeMap<>())
+                    .computeIfAbsent(startDay, k -> new ArrayList<>(1))
+                    .add(new BudgetWindow(budget, endDay));
+        }
+    }
+
+    /**
+     * 交易变更时需要增量维护的派生数据：预算支出和分类模型
+     */
+    private void applyChange(IndexedKey key, boolean add) {
+        applyChangeInMemory(key, add);
+        if (unsavedModelChanges >= MODEL_SAVE_INTERVAL) {
+            saveCategoryModel();
+        }
+    }
+
+    /**
+     * 只更新内存中的派生数据，分类模型由调用方保存（批量添加时整批只写一次）
+     */
+    private void applyChangeInMemory(IndexedKey key, boolean add) {
+        applyToBudgets(key, add);
+        if (key == null) {
+            return;
+        }
+        if (add) {
+            categorizer.learn(key.description, key.type, key.amount, key.category);
+        } else {
+            categorizer.unlearn(key.description, key.type, key.amount, key.category);
+        }
+        unsavedModelChanges++;
+    }
+
+    /**
+     * 把一笔支出计入（或撤出）覆盖其分类和日期的预算
+     */
+    private void applyToBudgets(IndexedKey key, boolean add) {
+        if (key == null || key.day == null || !Transaction.TYPE_EXPENSE.equals(key.type)
+                || key.category == null || key.amount == null) {
+            return;
+        }
+        NavigableMap<Long, List<BudgetWindow>> windows = budgetIndex.get(key.category);
+        if (windows == null) {
+            return;
+        }
+        for (List<BudgetWindow> sameStart : windows.headMap(key.day, true).values()) {
+            for (BudgetWindow window : sameStart) {
+                if (window.endDay >= key.day) {
+                    Budget budget = window.budget;
+                    budget.setSpentAmount(add ? budget.getSpentAmount().add(key.amount)
+                            : budget.getSpentAmount().subtract(key.amount));
+                }
+            }
+        }
+    }
+
+    /**
+     * 通过日期索引计算单个预算窗口内的支出
+     */
+    private BigDecimal computeBudgetSpent(Budget budget) {
+        if (budget.getCategory() == null || budget.getStartDate() == null || budget.getEndDate() == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal spent = BigDecimal.ZERO;
+        long startDay = toEpochDay(budget.getStartDate());
+        long endDay = toEpochDay(budget.getEndDate());
+        for (List<Transaction> sameDay : dateIndex.subMap(startDay, true, endDay, true).values()) {
+            for (Transaction t : sameDay) {
+                IndexedKey key = indexedKeys.get(t.getId());
+                if (key != null && key.amount != null && Transaction.TYPE_EXPENSE.equals(key.type)
+                        && budget.getCategory().equals(key.category)) {
+                    spent = spent.add(key.amount);
+                }
+            }
+        }
+        return spent;
+    }
+
+    // 日期索引维护
+    // ==============================================
+
+    private void rebuildIndexes() {
+        dateIndex.clear();
+        indexedKeys.clear();
+        incomeTotal = BigDecimal.ZERO;
+        expenseTotal = BigDecimal.ZERO;
+        incomeCount = 0;
+        expenseCount = 0;
+        rollup.clear();
+        descriptionIndex.clear();
+        transactions.values().forEach(this::indexTransaction);
+    }
+
+    private IndexedKey indexTransaction(Transaction t) {
+        IndexedKey key = indexRow(t);
+        applyToTotals(key, true);
+        return key;
+    }
+
+    /**
+     * 只建日期、主键和描述索引，不计入合计（按需加载的月份在登录时已按清单汇总计入）
+     */
+    private IndexedKey indexRow(Transaction t) {
+        Long day = t.getDate() == null ? null : toEpochDay(t.getDate());
+        IndexedKey key = new IndexedKey(day, t.getCategory(), t.getType(), t.getAmount(), t.getDescription());
+        if (day != null) {
+            dateIndex.computeIfAbsent(day, k -> new ArrayList<>(2)).add(t);
+        }
+        indexedKeys.put(t.getId(), key);
+        descriptionIndex.add(key.description, key.category);
+        return key;
+    }
+
+    private IndexedKey unindexTransaction(String transactionId) {
+        IndexedKey key = indexedKeys.remove(transactionId);
+        if (key == null) {
+            return null;
+        }
+        if (key.day != null) {
+            List<Transaction> sameDay = dateIndex.get(key.day);
+            if (sameDay != null) {
+                sameDay.removeIf(t -> t.getId().equals(transactionId));
+                if (sameDay.isEmpty()) {
+                    dateIndex.remove(key.day);
+                }
+            }
+        }
+        applyToTotals(key, false);
+        descriptionIndex.remove(key.description, key.category);
+        return key;
+    }
+
+    /**
+     * 把清单中一个月的汇总计入合计和预聚合汇总
+     */
+    private void applySummary(YearMonth month, MonthSummary summary) {
+        for (MonthSummary.Total total : summary.getTotals()) {
+            rollup.add(month, total.getCategory(), total.getType(), total.getAmount(), total.getCount());
+            if (Transaction.TYPE_INCOME.equals(total.getType())) {
+                incomeTotal = incomeTotal.add(total.getAmount());
+                incomeCount += total.getCount();
+            } else if (Transaction.TYPE_EXPENSE.equals(total.getType())) {
+                expenseTotal = expenseTotal.add(total.getAmount());
+                expenseCount += total.getCount();
+            }
+        }
+    }
+
+    // 按月加载
+    // ==============================================
+
+    private void loadMonths(YearMonth from, YearMonth to) {
+        if (!unloadedMonths.isEmpty() && !from.isAfter(to)) {
+            loadMonths(unloadedMonths.subMap(from, true, to, true));
+        }
+    }
+
+    private void loadAllMonths() {
+        loadMonths(unloadedMonths);
+    }
+
+    /**
+     * 加载尚未加载的月份：交易进入索引并计入预算，合计在登录时已按清单汇总计入
+     * @param months unloadedMonths 或它的视图，加载后从中移除
+     */
+    private void loadMonths(NavigableMap<YearMonth, Integer> months) {
+        if (months.isEmpty()) {
+            return;
+        }
+        // 先读完再建索引，读盘失败时内存中的数据不变
+        List<Transaction> rows = new ArrayList<>();
+        for (YearMonth month : months.keySet()) {
+            rows.addAll(transactionStore.loadRange(user.getUsername(), month, month));
+        }
+        // 之后加载的一般是较早的月份，排在已加载的交易之前，与存储中的顺序一致
+        Map<String, Transaction> merged = new LinkedHashMap<>();
+        for (Transaction t : rows) {
+            // 登录后新增或改到该月的交易已在内存中
+            if (!transactions.containsKey(t.getId()) && merged.putIfAbsent(t.getId(), t) == null) {
+                applyToBudgets(indexRow(t), true);
+            }
+        }
+        for (int count : months.values()) {
+            unloadedCount -= count;
+        }
+        months.clear();
+        merged.putAll(transactions);
+        transactions = merged;
+    }
+
+    // 预算的实际支出按逐笔交易计算，预算覆盖的月份需要已加载
+    private void loadBudgetMonths(Budget budget) {
+        if (budget.getStartDate() != null && budget.getEndDate() != null) {
+            loadMonths(monthOf(budget.getStartDate()), monthOf(budget.getEndDate()));
+        }
+    }
+
+    /**
+     * 全部历史的交易笔数，包括尚未加载的月份
+     */
+    private int historySize() {
+        return transactions.size() + unloadedCount;
+    }
+
+    private static YearMonth monthOf(Date date) {
+        return YearMonth.from(LocalDate.ofEpochDay(toEpochDay(date)));
+    }
+
+    private void applyToTotals(IndexedKey key, boolean add) {
+        if (key.amount == null) {
+            return;
+        }
+        rollup.apply(key.day == null ? null : YearMonth.from(LocalDate.ofEpochDay(key.day)),
+                key.category, key.type, key.amount, add);
+        BigDecimal delta = add ? key.amount : key.amount.negate();
+        int count = add ? 1 : -1;
+        if (Transaction.TYPE_INCOME.equals(key.type)) {
+            incomeTotal = incomeTotal.add(delta);
+            incomeCount += count;
+        } else if (Transaction.TYPE_EXPENSE.equals(key.type)) {
+            expenseTotal = expenseTotal.add(delta);
+            expenseCount += count;
+        }
+    }
+
+    // 旧数据可能缺少ID，入索引前补齐
+    private void putTransaction(Transaction t) {
+        if (t.getId() == null) {
+            t.setId(UUID.randomUUID().toString());
+        }
+        transactions.put(t.getId(), t);
+    }
+
+    private void putBudget(Budget b) {
+        if (b.getId() == null) {
+            b.setId(UUID.randomUUID().toString());
+        }
+        budgets.put(b.getId(), b);
+    }
+
+    private static long toEpochDay(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * 按日期倒序遍历 [fromDay, toDay] 区间内的交易，同一天内按时间倒序
+     */
+    private List<Transaction> rangeDescending(long fromDay, long toDay, int limit) {
+        List<Transaction> result = new ArrayList<>();
+        for (List<Transaction> sameDay : dateIndex.subMap(fromDay, true, toDay, true).descendingMap().values()) {
+            List<Transaction> ordered = sameDay;
+            if (sameDay.size() > 1) {
+                ordered = new ArrayList<>(sameDay);
+                ordered.sort((t1, t2) -> t2.getDate().compareTo(t1.getDate()));
+            }
+            for (Transaction t : ordered) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                result.add(t);
+            }
+        }
+        return result;
     }
 
     // 交易记录相关方法
     // ==============================================
 
     public void addTransaction(Transaction transaction) {
+        validate(transaction, "");
         transaction.setId(UUID.randomUUID().toString());
-        transactions.add(transaction);
-        saveTransactions(transactions);
-        updateBudgetSpending();
+        transactions.put(transaction.getId(), transaction);
+        applyChange(indexTransaction(transaction), true);
+        transactionStore.recordChanges(user.getUsername(),
+                Collections.singletonList(transaction), Collections.emptyList(), transactions.values());
+        recordFingerprints(Collections.singletonList(transaction));
+    }
+
+    /**
+     * 批量添加交易：统一校验、分配ID，只持久化和更新预算一次
+     * @param batch 待添加的交易
+     * @return 实际添加的条数
+     */
+    public int addTransactions(Collection<Transaction> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        // 先整体校验，避免半个批次写入
+        int row = 0;
+        for (Transaction t : batch) {
+            row++;
+            if (t == null) {
+                throw new IllegalArgumentException("Transaction " + row + " is null");
+            }
+            validate(t, " in transaction " + row);
+        }
+
+        List<Transaction> added = new ArrayList<>(batch.size());
+        for (Transaction t : batch) {
+            t.setId(UUID.randomUUID().toString());
+            added.add(t);
+        }
+        added.forEach(t -> {
+            transactions.put(t.getId(), t);
+            applyChangeInMemory(indexTransaction(t), true);
+        });
+        transactionStore.recordChanges(user.getUsername(), added, Collections.emptyList(), transactions.values());
+        saveCategoryModel();
+        recordFingerprints(added);
+        return added.size();
+    }
+
+    /**
+     * 导入交易：跳过内容指纹已存在的行（重复或重叠的对账单），其余整批添加
+     * @param batch 解析得到的交易
+     * @return 实际添加的条数
+     */
+    public int importTransactions(Collection<Transaction> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        int added = addTransactions(importDeduplicator.filterNew(batch));
+        saveUnsavedImportFingerprints();
+        return added;
     }
 
     public void updateTransaction(Transaction transaction) {
-        transactions.removeIf(t -> t.getId().equals(transaction.getId()));
-        transactions.add(transaction);
-        saveTransactions(transactions);
-        updateBudgetSpending();
+        validate(transaction, "");
+        // 已存在的ID原位替换，保持原有顺序
+        transactions.put(transaction.getId(), transaction);
+        // 先按旧值撤出预算，再按新值计入
+        applyChange(unindexTransaction(transaction.getId()), false);
+        applyChange(indexTransaction(transaction), true);
+        transactionStore.recordChanges(user.getUsername(),
+                Collections.singletonList(transaction), Collections.emptyList(), transactions.values());
+        // 旧指纹保留：修改过的导入行不会在重新导入同一份对账单时再出现
+        recordFingerprints(Collections.singletonList(transaction));
+    }
+
+    /**
+     * 金额、类型、日期是索引和各存储后端的必填项，写入前统一校验
+     * @param where 附加在错误信息后的位置说明，例如 " in transaction 3"
+     */
+    private static void validate(Transaction t, String where) {
+        if (t.getAmount() == null) {
+            throw new IllegalArgumentException("Missing amount" + where);
+        }
+        if (!Transaction.TYPE_INCOME.equals(t.getType()) && !Transaction.TYPE_EXPENSE.equals(t.getType())) {
+            throw new IllegalArgumentException("Invalid transaction type" + where + ": " + t.getType());
+        }
+        if (t.getDate() == null) {
+            throw new IllegalArgumentException("Missing date" + where);
+        }
     }
 
     public boolean deleteTransaction(String transactionId) {
-        boolean removed = transactions.removeIf(t -> t.getId().equals(transactionId));
-        if (removed) {
-            //dataManager.save("transactions.json", transactions,user.getUsername());
-            saveTransactions(transactions);
-            updateBudgetSpending();
+        Transaction removed = transactions.remove(transactionId);
+        if (removed != null) {
+            applyChange(unindexTransaction(transactionId), false);
+            transactionStore.recordChanges(user.getUsername(),
+                    Collections.emptyList(), Collections.singletonList(transactionId), transactions.values());
+            // 删除的行可以重新导入；指纹随下一次导入或持久化屏障写入
+            fingerprintsDirty |= importDeduplicator.forget(removed);
             return true;
         }
         return false;
     }
 
     public List<Transaction> getTransactionsByMonth(int year, int month) {
-        return transactions.stream()
-                .filter(t -> {
-                    Calendar cal = Calendar.getInstance();
-                    cal.setTime(t.getDate());
-                    return cal.get(Calendar.YEAR) == year &&
-                            cal.get(Calendar.MONTH) == month - 1;
-                })
-                .sorted((t1, t2) -> t2.getDate().compareTo(t1.getDate()))
-                .collect(Collectors.toList());
+        loadMonths(YearMonth.of(year, month), YearMonth.of(year, month));
+        LocalDate first = LocalDate.of(year, month, 1);
+        LocalDate last = first.withDayOfMonth(first.lengthOfMonth());
+        return rangeDescending(first.toEpochDay(), last.toEpochDay(), Integer.MAX_VALUE);
     }
 
     public List<Transaction> getRecentTransactions(int count) {
-        return transactions.stream()
-                .sorted((t1, t2) -> t2.getDate().compareTo(t1.getDate()))
-                .limit(count)
-                .collect(Collectors.toList());
+        List<Transaction> recent = rangeDescending(Long.MIN_VALUE, Long.MAX_VALUE, count);
+        // 已加载的不够，或最早的一笔不晚于尚未加载的最新月份时，按时间倒序继续加载
+        while (!unloadedMonths.isEmpty() && (recent.size() < count || !recent.isEmpty()
+                && !monthOf(recent.get(recent.size() - 1).getDate()).isAfter(unloadedMonths.lastKey()))) {
+            YearMonth month = unloadedMonths.lastKey();
+            loadMonths(month, month);
+            recent = rangeDescending(Long.MIN_VALUE, Long.MAX_VALUE, count);
+        }
+        return recent;
     }
 
     // 预算相关方法
@@ -160,20 +555,24 @@ public class FinanceController {
 
     public void addBudget(Budget budget) {
         budget.setId(UUID.randomUUID().toString());
-        budgets.add(budget);
+        budgets.put(budget.getId(), budget);
+        loadBudgetMonths(budget);
+        rebuildBudgetIndex();
+        budget.setSpentAmount(computeBudgetSpent(budget));
         saveBudgets();
-        updateBudgetSpending();
     }
 
     public void updateBudget(Budget budget) {
-        budgets.removeIf(b -> b.getId().equals(budget.getId()));
-        budgets.add(budget);
+        budgets.put(budget.getId(), budget);
+        loadBudgetMonths(budget);
+        rebuildBudgetIndex();
+        budget.setSpentAmount(computeBudgetSpent(budget));
         saveBudgets();
-        updateBudgetSpending();
     }
 
     public void deleteBudget(String budgetId) {
-        budgets.removeIf(b -> b.getId().equals(budgetId));
+        budgets.remove(budgetId);
+        rebuildBudgetIndex();
         saveBudgets();
     }
 
@@ -187,102 +586,237 @@ public class FinanceController {
         user.getCategories().forEach(category ->
                 result.put(category, BigDecimal.ZERO));
 
-        // 计算实际支出
-        transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .forEach(t -> result.merge(t.getCategory(), t.getAmount(), BigDecimal::add));
-
+        // 实际支出直接取自预聚合汇总
+        result.putAll(rollup.getCategoryTotals(Transaction.TYPE_EXPENSE));
         return result;
     }
 
     public Map<String, BigDecimal> getMonthlySpendingTrend() {
         Map<String, BigDecimal> trend = new LinkedHashMap<>();
-        SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
 
-        // 初始化最近12个月
-        Calendar cal = Calendar.getInstance();
+        // 最近12个月，从当月开始倒序
+        YearMonth month = YearMonth.now();
         for (int i = 0; i < 12; i++) {
-            String month = monthFormat.format(cal.getTime());
-            trend.put(month, BigDecimal.ZERO);
-            cal.add(Calendar.MONTH, -1);
+            trend.put(month.toString(), rollup.getMonthTotal(month, Transaction.TYPE_EXPENSE));
+            month = month.minusMonths(1);
         }
-
-        // 填充实际数据
-        transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .forEach(t -> {
-                    String month = monthFormat.format(t.getDate());
-                    trend.computeIfPresent(month, (k, v) -> v.add(t.getAmount()));
-                });
-
         return trend;
     }
 
     public BigDecimal getCurrentBalance() {
-        BigDecimal income = getTotalIncome();
-        BigDecimal expense = getTotalSpending();
-        return income.subtract(expense);
+        return incomeTotal.subtract(expenseTotal);
     }
 
     public BigDecimal getTotalIncome() {
-        return transactions.stream()
-                .filter(t -> "INCOME".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return incomeTotal;
     }
 
     public BigDecimal getTotalSpending() {
-        return transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return expenseTotal;
     }
 
     public BigDecimal getAverageSpending() {
-        long count = transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .count();
-
-        return count > 0 ? getTotalSpending().divide(new BigDecimal(count), 2, RoundingMode.HALF_UP)
+        return expenseCount > 0 ? expenseTotal.divide(new BigDecimal(expenseCount), 2, RoundingMode.HALF_UP)
                 : BigDecimal.ZERO;
     }
 
+    /**
+     * 从原始交易重新计算汇总值，与物化汇总比较（用于测试和排查）
+     * @return 物化汇总与全量重算结果是否一致
+     */
+    public boolean verifyAggregates() {
+        loadAllMonths();
+        BigDecimal income = BigDecimal.ZERO;
+        BigDecimal expense = BigDecimal.ZERO;
+        long incomes = 0;
+        long expenses = 0;
+        for (Transaction t : transactions.values()) {
+            if (t.getAmount() == null) {
+                continue;
+            }
+            if (t.isIncome()) {
+                income = income.add(t.getAmount());
+                incomes++;
+            } else if (t.isExpense()) {
+                expense = expense.add(t.getAmount());
+                expenses++;
+            }
+        }
+        return income.compareTo(incomeTotal) == 0 && expense.compareTo(expenseTotal) == 0
+                && incomes == incomeCount && expenses == expenseCount;
+    }
+
     public BigDecimal getMonthlyIncome() {
-        Calendar cal = Calendar.getInstance();
-        return getTransactionsByMonth(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1).stream()
-                .filter(t -> "INCOME".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return rollup.getMonthTotal(YearMonth.now(), Transaction.TYPE_INCOME);
     }
 
     public BigDecimal getMonthlyExpense() {
-        Calendar cal = Calendar.getInstance();
-        return getTransactionsByMonth(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1).stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return rollup.getMonthTotal(YearMonth.now(), Transaction.TYPE_EXPENSE);
+    }
+
+    /**
+     * 预聚合汇总，供同包的分析器直接读取
+     */
+    SpendingRollup getRollup() {
+        return rollup;
+    }
+
+    /**
+     * 描述倒排索引，供同包的分析器推荐分类
+     */
+    DescriptionIndex getDescriptionIndex() {
+        return descriptionIndex;
+    }
+
+    /**
+     * 在线训练的分类模型，供同包的分析器推荐分类
+     */
+    NaiveBayesCategorizer getCategorizer() {
+        return categorizer;
     }
 
     // 数据持久化方法
     // ==============================================
 
+    /**
+     * 持久化屏障：返回时之前的修改都已写入存储
+     */
+    public void flush() {
+        saveUnsavedCategoryModel();
+        saveUnsavedImportFingerprints();
+        storage.flush();
+    }
+
+    /**
+     * 启动时存储恢复检查的结果，见 {@link StorageRecovery}
+     */
+    public StorageRecovery.Report getStorageRecoveryReport() {
+        return storage.getRecoveryReport();
+    }
+
+    /**
+     * 设置后台写入失败时的回调（在后台线程上调用），用于提示用户修改尚未保存
+     */
+    public void setStorageFailureHandler(Consumer<RuntimeException> handler) {
+        storage.setFailureHandler(handler);
+    }
+
+    /**
+     * 退出登录或关闭程序前调用：写入未完成的修改并释放存储的后台线程
+     */
+    public void close() {
+        saveUnsavedCategoryModel();
+        saveUnsavedImportFingerprints();
+        storage.close();
+    }
+
+    // 分类模型只是每隔 MODEL_SAVE_INTERVAL 次更新写一次，持久化前补上尚未写入的更新
+    private void saveUnsavedCategoryModel() {
+        if (user != null && unsavedModelChanges > 0) {
+            saveCategoryModel();
+        }
+    }
+
+    /**
+     * 写入完整快照（同时清空追加日志）
+     */
     public void saveTransactions(List<Transaction> transactions) {
-        dataManager.save("transactions.json", transactions, user.getUsername());
+        transactionStore.saveTransactions(user.getUsername(), transactions);
+    }
+
+    /**
+     * 保存分类模型
+     */
+    public void saveCategoryModel() {
+        documentStore.saveDocument(user.getUsername(), CATEGORY_MODEL_FILE, categorizer);
+        unsavedModelChanges = 0;
+    }
+
+    /**
+     * 加载分类模型；模型缺失或与交易数据不一致（例如上次退出前未写盘）时从全部历史重新训练
+     * <p>
+     * 按样本内容的校验和比对，而不是样本数：修改分类、先增后删等笔数不变的变化也能发现
+     * @param categorized 全部历史中有分类的交易笔数
+     * @param checksum 这些交易的样本校验和之和
+     */
+    private void loadCategoryModel(long categorized, long checksum) {
+        NaiveBayesCategorizer loaded = documentStore.loadDocument(
+                user.getUsername(), CATEGORY_MODEL_FILE, NaiveBayesCategorizer.class);
+        if (loaded != null && loaded.getDocuments() == categorized && loaded.getChecksum() == checksum) {
+            categorizer = loaded;
+            unsavedModelChanges = 0;
+            return;
+        }
+        loadAllMonths();
+        categorizer = new NaiveBayesCategorizer();
+        indexedKeys.values().forEach(key ->
+                categorizer.learn(key.description, key.type, key.amount, key.category));
+        saveCategoryModel();
+    }
+
+    /**
+     * 保存导入指纹
+     */
+    public void saveImportFingerprints() {
+        importDeduplicator.setHistorySize(historySize());
+        documentStore.saveDocument(user.getUsername(), IMPORT_FINGERPRINTS_FILE, importDeduplicator);
+        fingerprintsDirty = false;
+    }
+
+    private void saveUnsavedImportFingerprints() {
+        if (user != null && fingerprintsDirty) {
+            saveImportFingerprints();
+        }
+    }
+
+    // 新增和修改的交易也计入指纹，手动录入后再导入同一笔不会重复
+    private void recordFingerprints(Collection<Transaction> saved) {
+        importDeduplicator.record(saved);
+        fingerprintsDirty = true;
+    }
+
+    /**
+     * 加载导入指纹；文件缺失或保存后交易笔数有变化（上次未正常退出）时按现有交易补齐
+     */
+    private void loadImportFingerprints() {
+        ImportDeduplicator loaded = documentStore.loadDocument(
+                user.getUsername(), IMPORT_FINGERPRINTS_FILE, ImportDeduplicator.class);
+        fingerprintsDirty = false;
+        if (loaded != null && loaded.getHistorySize() == historySize()) {
+            importDeduplicator = loaded;
+            return;
+        }
+        loadAllMonths();
+        importDeduplicator = loaded != null ? loaded : new ImportDeduplicator();
+        importDeduplicator.seed(transactions.values());
+        fingerprintsDirty = true;
     }
 
     public void saveBudgets() {
-        dataManager.save("budgets.json", budgets, user.getUsername());
+        budgetStore.saveBudgets(user.getUsername(), budgets.values());
     }
 
     // Getter方法
     // ==============================================
 
+    /**
+     * 全部交易；按月加载时先加载尚未加载的月份
+     */
     public List<Transaction> getTransactions() {
-        return new ArrayList<>(transactions);
+        loadAllMonths();
+        return new ArrayList<>(transactions.values());
+    }
+
+    /**
+     * 交易的只读视图，不复制列表；遍历期间不要修改交易。按月加载时先加载尚未加载的月份
+     */
+    public Collection<Transaction> getTransactionView() {
+        loadAllMonths();
+        return Collections.unmodifiableCollection(transactions.values());
     }
 
     public List<Budget> getBudgets() {
-        return new ArrayList<>(budgets);
+        return new ArrayList<>(budgets.values());
     }
 
     public User getUser() {
@@ -296,13 +830,13 @@ public class FinanceController {
      * @return 是否修改成功
      */
     public boolean changePassword(String username, String newPassword) {
-        List<User> users = dataManager.loadUsers();
+        List<User> users = userStore.loadUsers();
         if (users == null) {return false;}
 
         for (User user : users) {
             if (user.getUsername().equals(username)) {
                 user.setPassword(newPassword);
-                dataManager.saveUsers(users);
+                userStore.saveUsers(users);
                 this.user = user; // 更新当前用户对象
                 return true;
             }
@@ -316,13 +850,13 @@ public class FinanceController {
      * @return 是否更新成功
      */
     public boolean updateUser(User updatedUser) {
-        List<User> users = dataManager.loadUsers();
+        List<User> users = userStore.loadUsers();
         if (users == null) {return false;}
 
         for (int i = 0; i < users.size(); i++) {
             if (users.get(i).getUsername().equals(updatedUser.getUsername())) {
                 users.set(i, updatedUser);
-                dataManager.saveUsers(users);
+                userStore.saveUsers(users);
                 this.user = updatedUser; // 更新当前用户对象
                 return true;
             }
@@ -335,13 +869,13 @@ public class FinanceController {
      * 检查用户名是否存在
      */
     public boolean userExists(String username) {
-        List<User> users = dataManager.loadUsers();
+        List<User> users = userStore.loadUsers();
         return users != null && users.stream()
                 .anyMatch(u -> u.getUsername().equals(username));
     }
 
     public boolean loginUser(String username, String password) {
-        List<User> users = dataManager.loadUsers();
+        List<User> users = userStore.loadUsers();
         if (users == null) {return false;}
 
         Optional<User> userOpt = users.stream()
@@ -349,6 +883,9 @@ public class FinanceController {
                 .findFirst();
 
         if (userOpt.isPresent() && userOpt.get().validatePassword(password)) {
+            // 切换用户前写入上一位用户尚未保存的派生数据
+            saveUnsavedCategoryModel();
+            saveUnsavedImportFingerprints();
             this.user = userOpt.get();
             loadAllData(); // 加载该用户的数据
             return true;
@@ -362,24 +899,49 @@ public class FinanceController {
 
     private void loadAllData() {
         if (user == null){ return;}
-        // 加载交易记录
-        this.transactions = dataManager.loadCollection(
-                "transactions.json",
-                new TypeToken<List<Transaction>>() {},user.getUsername()
-        );
-
-        // 加载预算
-        this.budgets = dataManager.loadCollection(
-                "budgets.json",
-                new TypeToken<List<Budget>>() {},user.getUsername()
-        );
+        // 先加载预算：按月加载时需要知道预算覆盖哪些月份
+        this.budgets = new LinkedHashMap<>();
+        budgetStore.loadBudgets(user.getUsername()).forEach(this::putBudget);
+        rebuildBudgetIndex();
+
+        this.transactions = new LinkedHashMap<>();
+        unloadedMonths.clear();
+        unloadedCount = 0;
+        long categorized = 0;
+        long checksum = 0;
+        NavigableMap<YearMonth, MonthSummary> summaries = transactionStore.loadSummaries(user.getUsername());
+        if (summaries == null) {
+            // 加载全部交易记录（快照 + 日志重放）
+            transactionStore.loadTransactions(user.getUsername()).forEach(this::putTransaction);
+            rebuildIndexes();
+            for (IndexedKey key : indexedKeys.values()) {
+                if (key.category != null) {
+                    categorized++;
+                    checksum += NaiveBayesCategorizer.sampleHash(key.description, key.type, key.amount, key.category);
+                }
+            }
+        } else {
+            // 合计取自清单，交易只加载最近几个月和预算覆盖的月份，其余月份在需要时加载
+            rebuildIndexes();
+            for (Map.Entry<YearMonth, MonthSummary> entry : summaries.entrySet()) {
+                applySummary(entry.getKey(), entry.getValue());
+                unloadedMonths.put(entry.getKey(), entry.getValue().getCount());
+                unloadedCount += entry.getValue().getCount();
+                categorized += entry.getValue().getCategorized();
+                checksum += entry.getValue().getChecksum();
+            }
+            loadMonths(unloadedMonths.tailMap(YearMonth.now().minusMonths(RECENT_MONTHS - 1), true));
+            budgets.values().forEach(this::loadBudgetMonths);
+        }
+        loadCategoryModel(categorized, checksum);
+        loadImportFingerprints();
         initializeDefaultData();
     }
     /**
      * 注册新用户
      */
     public boolean registerUser(String username, String password) {
-        List<User> users = dataManager.loadUsers();
+        List<User> users = userStore.loadUsers();
         if (users == null) {
             users = new ArrayList<>();
         }
@@ -394,11 +956,11 @@ public class FinanceController {
 
 
         users.add(newUser);
-        dataManager.saveUsers(users);
+        userStore.saveUsers(users);
 
         // 初始化用户数据目录
-        dataManager.save("transactions.json", new ArrayList<Transaction>(), username);
-        dataManager.save("budgets.json", new ArrayList<Budget>(), username);
+        transactionStore.saveTransactions(username, new ArrayList<Transaction>());
+        budgetStore.saveBudgets(username, new ArrayList<Budget>());
 
         this.user = newUser;
         return true;
@@ -409,21 +971,39 @@ public class FinanceController {
         user.getCategories().forEach(category ->
                 result.put(category, BigDecimal.ZERO));
 
-        Calendar cal = Calendar.getInstance();
-        int currentYear = cal.get(Calendar.YEAR);
-        int currentMonth = cal.get(Calendar.MONTH) + 1;
-
-        transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .filter(t -> {
-                    Calendar tCal = Calendar.getInstance();
-                    tCal.setTime(t.getDate());
-                    return tCal.get(Calendar.YEAR) == currentYear
-                            && tCal.get(Calendar.MONTH) + 1 == currentMonth;
-                })
-                .forEach(t -> result.merge(t.getCategory(), t.getAmount(), BigDecimal::add));
-
+        result.putAll(rollup.getCategoryTotals(YearMonth.now(), Transaction.TYPE_EXPENSE));
         return result;
     }
 
+    /**
+     * 建索引时记录的交易关键字段：界面可能原地修改交易对象，撤销索引时不能依赖对象的当前值
+     */
+    private static final class IndexedKey {
+        private final Long       day; // 无日期的交易为 null，不进入日期索引
+        private final String     category;
+        private final String     type;
+        private final BigDecimal amount;
+        private final String     description;
+
+        IndexedKey(Long day, String category, String type, BigDecimal amount, String description) {
+            this.day = day;
+            this.category = category;
+            this.type = type;
+            this.amount = amount;
+            this.description = description;
+        }
+    }
+
+    /**
+     * 预算及其结束日(epoch-day)
+     */
+    private static final class BudgetWindow {
+        private final Budget budget;
+        private final long   endDay;
+
+        BudgetWindow(Budget budget, long endDay) {
+            this.budget = budget;
+            this.endDay = endDay;
+        }
+    }
 }
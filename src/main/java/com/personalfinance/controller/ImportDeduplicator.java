@@ -0,0 +1,129 @@
+package com.personalfinance.controller;
+
+import com.personalfinance.model.Transaction;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 导入去重：按内容指纹识别已经导入过的交易，重复导入同一份或有重叠的对账单时跳过重复行
+ * <p>
+ * 指纹是规范化后的日期、金额、类型、描述的 64 位哈希。同一天可能有多笔完全相同的交易
+ * （例如两杯同价的咖啡），所以为每个指纹记录出现次数：一批中第 k 笔相同的交易
+ * 只有在历史中出现不足 k 次时才算新交易。每行只做一次哈希表查找，与历史规模无关。
+ * 计数表可由 Gson 直接序列化，随用户数据一起持久化；同时记下保存时的交易笔数，
+ * 加载时笔数对不上（例如上次异常退出、计数没来得及保存）才需要按历史重新补齐。
+ */
+public class ImportDeduplicator {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // 指纹 -> 已记录的交易笔数
+    private Map<Long, Integer> occurrences = new HashMap<>();
+    // 保存时用户的交易笔数
+    private int historySize;
+
+    public ImportDeduplicator() {}
+
+    /**
+     * 按已有交易补齐计数：每个指纹取已记录次数与历史中出现次数的较大值
+     */
+    public void seed(Collection<Transaction> history) {
+        countByFingerprint(history).forEach((fingerprint, count) ->
+                occurrences.merge(fingerprint, count, Math::max));
+    }
+
+    /**
+     * 筛选出尚未导入过的交易，保持原有顺序；不修改计数
+     */
+    public List<Transaction> filterNew(Collection<Transaction> batch) {
+        Map<Long, Integer> seenInBatch = new HashMap<>();
+        List<Transaction> fresh = new ArrayList<>();
+        for (Transaction t : batch) {
+            long fingerprint = fingerprint(t);
+            int ordinal = seenInBatch.merge(fingerprint, 1, Integer::sum);
+            if (ordinal > occurrences.getOrDefault(fingerprint, 0)) {
+                fresh.add(t);
+            }
+        }
+        return fresh;
+    }
+
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    public void setHistorySize(int historySize) {
+        this.historySize = historySize;
+    }
+
+    /**
+     * 记录已写入的交易
+     */
+    public void record(Collection<Transaction> added) {
+        countByFingerprint(added).forEach((fingerprint, count) ->
+                occurrences.merge(fingerprint, count, Integer::sum));
+    }
+
+    /**
+     * 交易被删除后减少对应指纹的计数，重新导入时该行会再次被视为新交易
+     * @return 计数是否有变化
+     */
+    public boolean forget(Transaction removed) {
+        long fingerprint = fingerprint(removed);
+        Integer count = occurrences.get(fingerprint);
+        if (count == null) {
+            return false;
+        }
+        if (count > 1) {
+            occurrences.put(fingerprint, count - 1);
+        } else {
+            occurrences.remove(fingerprint);
+        }
+        return true;
+    }
+
+    public void clear() {
+        occurrences.clear();
+    }
+
+    /**
+     * 内容指纹：日期（天）、金额（忽略末尾的 0）、类型、描述（忽略大小写和多余空白）
+     */
+    public static long fingerprint(Transaction t) {
+        // 缺少日期或金额的交易会在写入前被拒绝，这里只需不出错
+        String day = t.getDate() == null ? null : Long.toString(
+                Instant.ofEpochMilli(t.getDate().getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+        String amount = t.getAmount() == null ? null : t.getAmount().stripTrailingZeros().toPlainString();
+        String description = t.getDescription() == null ? ""
+                : WHITESPACE.matcher(t.getDescription().trim()).replaceAll(" ").toLowerCase();
+
+        long hash = FNV_OFFSET;
+        hash = hash(hash, day);
+        hash = hash(hash, amount);
+        hash = hash(hash, t.getType());
+        hash = hash(hash, description);
+        return hash;
+    }
+
+    // FNV-1a，每个字段后追加分隔符，避免 "1|23" 与 "12|3" 相同
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return (hash ^ '|') * FNV_PRIME;
+    }
+
+    private static Map<Long, Integer> countByFingerprint(Collection<Transaction> transactions) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Transaction t : transactions) {
+            counts.merge(fingerprint(t), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
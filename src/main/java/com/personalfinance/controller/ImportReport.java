@@ -0,0 +1,120 @@
+package com.personalfinance.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 容错导入的报告：记录被跳过的数据行及原因
+ * <p>
+ * 只保留前 maxDiagnostics 条明细，之后的错误只计数，报告大小与文件大小无关。
+ */
+public class ImportReport {
+    public static final int DEFAULT_MAX_DIAGNOSTICS = 100;
+
+    private final int maxDiagnostics;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private int errorCount;
+
+    public ImportReport() {
+        this(DEFAULT_MAX_DIAGNOSTICS);
+    }
+
+    public ImportReport(int maxDiagnostics) {
+        if (maxDiagnostics < 0) {
+            throw new IllegalArgumentException("Max diagnostics must not be negative: " + maxDiagnostics);
+        }
+        this.maxDiagnostics = maxDiagnostics;
+    }
+
+    /**
+     * 记录一处错误
+     * @param line 行号（Excel 为工作表行号，OFX 为交易开始标签所在行）
+     * @param field 出错的字段，未知时为 null
+     * @param reason 原因
+     */
+    public void addError(int line, String field, String reason) {
+        errorCount++;
+        if (diagnostics.size() < maxDiagnostics) {
+            diagnostics.add(new Diagnostic(line, field, reason));
+        }
+    }
+
+    /**
+     * 记录解析异常，字段取自 {@link FieldFormatException}
+     */
+    public void addError(int line, Exception ex) {
+        String field = ex instanceof FieldFormatException ? ((FieldFormatException) ex).getField() : null;
+        addError(line, field, String.valueOf(ex.getMessage()));
+    }
+
+    /**
+     * 合并另一份报告（例如并行解析的一段），其行号加上 lineOffset
+     */
+    public void merge(ImportReport other, int lineOffset) {
+        for (Diagnostic d : other.diagnostics) {
+            if (diagnostics.size() >= maxDiagnostics) {
+                break;
+            }
+            diagnostics.add(new Diagnostic(d.line + lineOffset, d.field, d.reason));
+        }
+        errorCount += other.errorCount;
+    }
+
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    /**
+     * 错误总数，包括超出明细上限只计数的部分
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * 按行号顺序的错误明细，最多 maxDiagnostics 条
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * 明细是否因达到上限而不完整
+     */
+    public boolean isTruncated() {
+        return errorCount > diagnostics.size();
+    }
+
+    /**
+     * 一处错误：行号、字段、原因
+     */
+    public static class Diagnostic {
+        private final int line;
+        private final String field;
+        private final String reason;
+
+        public Diagnostic(int line, String field, String reason) {
+            this.line = line;
+            this.field = field;
+            this.reason = reason;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + (field == null ? "" : " [" + field + "]") + ": " + reason;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.personalfinance.controller;
+
+import java.util.*;
+
+/**
+ * 多关键词匹配器（Aho–Corasick 自动机）
+ * <p>
+ * 构建时把所有关键词编译成一个自动机，匹配时只需扫描一遍文本，
+ * 耗时与文本长度成正比，不随关键词数量增长。
+ * 多个标签同时命中时返回优先级最高（构建时顺序最靠前）的标签。
+ * 匹配不区分大小写，关键词需为小写。
+ */
+public class KeywordMatcher {
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final List<String> labels = new ArrayList<>();
+    // 每个节点的转移表
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    // 失败指针
+    private int[] failure;
+    // 到达该节点时命中的最高优先级（含失败链上的输出），NO_MATCH 表示无命中
+    private int[] output;
+
+    /**
+     * @param keywordsByLabel 标签 -> 关键词，迭代顺序即优先级顺序
+     */
+    public KeywordMatcher(Map<String, ? extends Collection<String>> keywordsByLabel) {
+        List<Integer> nodeOutput = new ArrayList<>();
+        transitions.add(new HashMap<>());
+        nodeOutput.add(NO_MATCH);
+
+        // 1. 构建字典树
+        for (Map.Entry<String, ? extends Collection<String>> entry : keywordsByLabel.entrySet()) {
+            int priority = labels.size();
+            labels.add(entry.getKey());
+            for (String keyword : entry.getValue()) {
+                if (keyword == null || keyword.isEmpty()) {
+                    continue;
+                }
+                int node = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = Character.toLowerCase(keyword.charAt(i));
+                    Integer next = transitions.get(node).get(c);
+                    if (next == null) {
+                        next = transitions.size();
+                        transitions.get(node).put(c, next);
+                        transitions.add(new HashMap<>());
+                        nodeOutput.add(NO_MATCH);
+                    }
+                    node = next;
+                }
+                nodeOutput.set(node, Math.min(nodeOutput.get(node), priority));
+            }
+        }
+
+        // 2. 广度优先计算失败指针，并把失败链上的输出合并到节点
+        failure = new int[transitions.size()];
+        output = new int[transitions.size()];
+        for (int i = 0; i < output.length; i++) {
+            output[i] = nodeOutput.get(i);
+        }
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : transitions.get(0).values()) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                char c = edge.getKey();
+                int child = edge.getValue();
+                int f = failure[node];
+                while (f != 0 && !transitions.get(f).containsKey(c)) {
+                    f = failure[f];
+                }
+                Integer target = transitions.get(f).get(c);
+                failure[child] = target != null && target != child ? target : 0;
+                output[child] = Math.min(output[child], output[failure[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 在文本中查找关键词
+     * @param text 待匹配文本
+     * @return 命中的最高优先级标签，未命中返回 null
+     */
+    public String match(CharSequence text) {
+        if (text == null) {
+            return null;
+        }
+        int best = NO_MATCH;
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            Integer next = transitions.get(node).get(c);
+            while (next == null && node != 0) {
+                node = failure[node];
+                next = transitions.get(node).get(c);
+            }
+            node = next == null ? 0 : next;
+            if (output[node] < best) {
+                best = output[node];
+                if (best == 0) {
+                    break; // 已命中最高优先级
+                }
+            }
+        }
+        return best == NO_MATCH ? null : labels.get(best);
+    }
+}
@@ -0,0 +1,205 @@
+package com.personalfinance.controller;
+
+import com.personalfinance.storage.MonthSummary;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 多项式朴素贝叶斯分类器：根据描述词、金额区间和交易类型推荐分类
+ * <p>
+ * 每保存或修改一笔交易就在线更新一次计数（修改/删除时先撤销旧计数），
+ * 模型本身可由 Gson 直接序列化，随用户数据一起持久化，启动时无需重新训练。
+ * 推荐可能来自后台线程或并行导入的多个线程，用读写锁保护：推荐之间互不阻塞。
+ */
+public class NaiveBayesCategorizer {
+    private static final int MIN_DOCUMENTS = 10;      // 样本过少时不做推荐
+    private static final double MIN_CONFIDENCE = 0.5; // 最优分类的后验概率下限
+
+    // transient：不参与序列化
+    private final transient ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long documents;
+    // 已学习样本的校验和（各样本哈希之和），加载时与交易数据比对，判断模型是否过期
+    private long checksum;
+    // 分类 -> 样本数
+    private Map<String, Long> categoryDocuments = new HashMap<>();
+    // 分类 -> 特征 -> 出现次数
+    private Map<String, Map<String, Long>> featureCounts = new HashMap<>();
+    // 分类 -> 特征总次数
+    private Map<String, Long> categoryFeatureTotals = new HashMap<>();
+    // 特征 -> 全部分类中的出现次数（键的个数即词表大小）
+    private Map<String, Long> vocabulary = new HashMap<>();
+
+    public NaiveBayesCategorizer() {}
+
+    /**
+     * 学习一条样本
+     */
+    public void learn(String description, String type, BigDecimal amount, String category) {
+        update(description, type, amount, category, 1);
+    }
+
+    /**
+     * 撤销一条之前学习过的样本
+     */
+    public void unlearn(String description, String type, BigDecimal amount, String category) {
+        update(description, type, amount, category, -1);
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents = 0;
+            checksum = 0;
+            categoryDocuments.clear();
+            featureCounts.clear();
+            categoryFeatureTotals.clear();
+            vocabulary.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 已学习的样本数
+     */
+    public long getDocuments() {
+        lock.readLock().lock();
+        try {
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已学习样本的校验和：与样本顺序无关，学习后再撤销同一样本会回到原值
+     */
+    public long getChecksum() {
+        lock.readLock().lock();
+        try {
+            return checksum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 一条样本对校验和的贡献；没有分类的样本不参与学习，贡献为 0。
+     * 与按月存储清单中的校验和算法相同，见 {@link MonthSummary#sampleHash}
+     */
+    public static long sampleHash(String description, String type, BigDecimal amount, String category) {
+        return MonthSummary.sampleHash(description, type, amount, category);
+    }
+
+    /**
+     * 推荐分类
+     * @param description 交易描述
+     * @param type 交易类型，可以为 null
+     * @param amount 金额，可以为 null
+     * @return 后验概率足够高的分类，否则返回 null
+     */
+    public String classify(String description, String type, BigDecimal amount) {
+        lock.readLock().lock();
+        try {
+            if (documents < MIN_DOCUMENTS) {
+                return null;
+            }
+            List<String> features = features(description, type, amount);
+            boolean known = false;
+            for (String feature : features) {
+                if (vocabulary.containsKey(feature) && !feature.startsWith("amt:") && !feature.startsWith("type:")) {
+                    known = true;
+                    break;
+                }
+            }
+            if (!known) {
+                return null; // 描述中没有见过的词，金额和类型不足以判断
+            }
+
+            double vocabularySize = vocabulary.size();
+            String best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            Map<String, Double> scores = new HashMap<>();
+            for (Map.Entry<String, Long> entry : categoryDocuments.entrySet()) {
+                String category = entry.getKey();
+                Map<String, Long> counts = featureCounts.getOrDefault(category, Collections.emptyMap());
+                double denominator = categoryFeatureTotals.getOrDefault(category, 0L) + vocabularySize;
+                double score = Math.log((double) entry.getValue() / documents);
+                for (String feature : features) {
+                    // 拉普拉斯平滑
+                    score += Math.log((counts.getOrDefault(feature, 0L) + 1.0) / denominator);
+                }
+                scores.put(category, score);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = category;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+
+            // 归一化得到最优分类的后验概率
+            double sum = 0;
+            for (double score : scores.values()) {
+                sum += Math.exp(score - bestScore);
+            }
+            return 1.0 / sum >= MIN_CONFIDENCE ? best : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void update(String description, String type, BigDecimal amount, String category, int delta) {
+        lock.writeLock().lock();
+        try {
+            if (category == null) {
+                return;
+            }
+            documents += delta;
+            checksum += delta * sampleHash(description, type, amount, category);
+            decrementOrRemove(categoryDocuments, category, delta);
+
+            List<String> features = features(description, type, amount);
+            Map<String, Long> counts = featureCounts.computeIfAbsent(category, k -> new HashMap<>());
+            for (String feature : features) {
+                decrementOrRemove(counts, feature, delta);
+                decrementOrRemove(vocabulary, feature, delta);
+            }
+            if (counts.isEmpty()) {
+                featureCounts.remove(category);
+            }
+            decrementOrRemove(categoryFeatureTotals, category, (long) delta * features.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void decrementOrRemove(Map<String, Long> map, String key, long delta) {
+        long value = map.getOrDefault(key, 0L) + delta;
+        if (value > 0) {
+            map.put(key, value);
+        } else {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * 特征：描述词、金额数量级、交易类型
+     */
+    private static List<String> features(String description, String type, BigDecimal amount) {
+        List<String> features = new ArrayList<>(DescriptionIndex.tokenize(description));
+        if (amount != null && amount.signum() > 0) {
+            // 按数量级分桶：<10, <100, <1000 ...
+            features.add("amt:" + (amount.precision() - amount.scale()));
+        }
+        if (type != null) {
+            features.add("type:" + type);
+        }
+        return features;
+    }
+}
@@ -0,0 +1,275 @@
+package com.personalfinance.controller;
+
+import com.personalfinance.model.Transaction;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * OFX/QFX 银行对账单解析器，同时支持 OFX 1.x（SGML，叶子元素没有结束标签）和 OFX 2.x（XML）
+ * <p>
+ * 逐个字符扫描标签，只保留当前这笔 STMTTRN 的字段，读完一笔输出一笔，内存占用与文件大小无关。
+ * 金额为负是支出，否则是收入；描述由收款方（NAME/PAYEE）和备注（MEMO）组成。
+ */
+public class OfxFileParser implements FileParser {
+    private static final int HEADER_SNIFF_BYTES = 1024;
+    private static final Pattern SGML_CHARSET = Pattern.compile("CHARSET:\\s*(\\S+)");
+    private static final Pattern XML_ENCODING = Pattern.compile("encoding=[\"']([^\"']+)[\"']");
+
+    private final FinanceController controller;
+
+    public OfxFileParser(FinanceController controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public List<Transaction> parse(File file) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        parse(file, DEFAULT_CHUNK_SIZE, transactions::addAll);
+        return transactions;
+    }
+
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer) throws IOException {
+        parse(file, chunkSize, consumer, null, true);
+    }
+
+    /**
+     * 容错解析：不合法的交易按其 STMTTRN 所在行记入报告后跳过
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                      ImportReport report) throws IOException {
+        parse(file, chunkSize, consumer, Objects.requireNonNull(report), false);
+    }
+
+    private void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                       ImportReport report, boolean strict) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        Charset charset = detectCharset(file);
+        List<Transaction> chunk = new ArrayList<>(chunkSize);
+        try (Reader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), charset))) {
+            Map<String, String> fields = null; // 当前 STMTTRN 的字段，不在交易中时为 null
+            String leaf = null;                // 最近一个开始标签，其后的文本为它的值
+            StringBuilder text = new StringBuilder();
+            StringBuilder tag = new StringBuilder();
+            int count = 0;
+            int line = 1;
+            int recordLine = 0;
+
+            int c;
+            while ((c = reader.read()) >= 0) {
+                if (c == '\n') {
+                    line++;
+                }
+                if (c != '<') {
+                    text.append((char) c);
+                    continue;
+                }
+                // 标签开始：先把前面的文本归给上一个叶子元素
+                if (fields != null && leaf != null) {
+                    String value = decodeEntities(text.toString().trim());
+                    if (!value.isEmpty()) {
+                        fields.put(leaf, value);
+                    }
+                }
+                text.setLength(0);
+                leaf = null;
+
+                tag.setLength(0);
+                while ((c = reader.read()) >= 0 && c != '>') {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    tag.append((char) c);
+                }
+                String name = tagName(tag);
+                if (name.isEmpty() || name.charAt(0) == '?' || name.charAt(0) == '!') {
+                    continue; // XML 声明、注释
+                }
+                boolean closing = name.charAt(0) == '/';
+                if (closing) {
+                    name = name.substring(1);
+                }
+
+                if ("STMTTRN".equals(name)) {
+                    if (!closing) {
+                        fields = new HashMap<>();
+                        recordLine = line;
+                    } else if (fields != null) {
+                        count++;
+                        try {
+                            chunk.add(toTransaction(fields));
+                        } catch (Exception ex) {
+                            if (strict) {
+                                throw new IllegalArgumentException("Data format error in transaction " + count + ": " + ex.getMessage());
+                            }
+                            report.addError(recordLine, ex);
+                        }
+                        fields = null;
+                        if (chunk.size() >= chunkSize) {
+                            controller.getAIAnalyzer().matchCategories(chunk);
+                            consumer.accept(chunk);
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    }
+                } else if (!closing && tag.charAt(tag.length() - 1) != '/') {
+                    leaf = name;
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            controller.getAIAnalyzer().matchCategories(chunk);
+            consumer.accept(chunk);
+        }
+    }
+
+    private static Transaction toTransaction(Map<String, String> fields) {
+        String amount = fields.get("TRNAMT");
+        String posted = fields.get("DTPOSTED");
+        if (amount == null) {
+            throw new FieldFormatException("TRNAMT", "Missing TRNAMT");
+        }
+        if (posted == null) {
+            throw new FieldFormatException("DTPOSTED", "Missing DTPOSTED");
+        }
+        BigDecimal value;
+        try {
+            // 部分银行用逗号作小数点
+            value = new BigDecimal(amount.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new FieldFormatException("TRNAMT", "Invalid amount: " + amount);
+        }
+
+        Transaction t = new Transaction();
+        t.setAmount(value.abs());
+        t.setType(value.signum() < 0 ? "EXPENSE" : "INCOME");
+        try {
+            t.setDate(parseDate(posted));
+        } catch (RuntimeException e) {
+            throw new FieldFormatException("DTPOSTED", "Invalid date: " + posted);
+        }
+        t.setDescription(describe(fields.getOrDefault("NAME", fields.get("PAYEE")), fields.get("MEMO")));
+        t.setId(UUID.randomUUID().toString());
+        return t;
+    }
+
+    /**
+     * 收款方和备注拼成描述，备注与收款方相同时只保留一个
+     */
+    static String describe(String payee, String memo) {
+        if (payee == null || payee.isEmpty()) {
+            return memo == null ? "" : memo;
+        }
+        if (memo == null || memo.isEmpty() || memo.equalsIgnoreCase(payee)) {
+            return payee;
+        }
+        return payee + " - " + memo;
+    }
+
+    /**
+     * OFX 日期：YYYYMMDD[HHMMSS[.XXX]][[-5:EST]]，只取日期部分
+     */
+    private static Date parseDate(String value) {
+        if (value.length() < 8) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+        LocalDate date = LocalDate.of(Integer.parseInt(value.substring(0, 4)),
+                Integer.parseInt(value.substring(4, 6)), Integer.parseInt(value.substring(6, 8)));
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static String tagName(StringBuilder tag) {
+        int end = tag.length() > 0 && tag.charAt(0) == '/' ? 1 : 0;
+        while (end < tag.length() && !Character.isWhitespace(tag.charAt(end)) && tag.charAt(end) != '/') {
+            end++;
+        }
+        return tag.substring(0, end).toUpperCase();
+    }
+
+    private static String decodeEntities(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&nbsp;", " ").replace("&amp;", "&");
+    }
+
+    /**
+     * 根据 SGML 头的 CHARSET 或 XML 声明的 encoding 确定编码，默认 UTF-8
+     */
+    private static Charset detectCharset(File file) throws IOException {
+        byte[] head = new byte[HEADER_SNIFF_BYTES];
+        int read;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            read = Math.max(0, in.read(head));
+        }
+        String header = new String(head, 0, read, StandardCharsets.ISO_8859_1);
+        Matcher xml = XML_ENCODING.matcher(header);
+        if (xml.find() && isSupported(xml.group(1))) {
+            return Charset.forName(xml.group(1));
+        }
+        Matcher sgml = SGML_CHARSET.matcher(header);
+        if (sgml.find()) {
+            String charset = sgml.group(1);
+            // OFX 1.x 用代码页编号表示编码，例如 1252
+            if (charset.matches("\\d+") && isSupported("windows-" + charset)) {
+                return Charset.forName("windows-" + charset);
+            }
+            if (isSupported(charset)) {
+                return Charset.forName(charset);
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static boolean isSupported(String charset) {
+        try {
+            return Charset.isSupported(charset);
+        } catch (IllegalArgumentException e) {
+            return false; // 非法的编码名
+        }
+    }
+
+    /**
+     * 服务提供者：.ofx/.qfx，内容以 OFXHEADER 开头（SGML）或包含 &lt;OFX&gt; 元素（XML）
+     */
+    public static class Provider implements FileParserProvider {
+        @Override
+        public String getName() {
+            return "OFX statements";
+        }
+
+        @Override
+        public List<String> getExtensions() {
+            return Arrays.asList("ofx", "qfx");
+        }
+
+        @Override
+        public boolean sniff(byte[] head, int length) {
+            return FileParserRegistry.startsWithText(head, length, "OFXHEADER")
+                    || FileParserRegistry.containsText(head, length, "<OFX>");
+        }
+
+        @Override
+        public FileParser create(FinanceController controller) {
+            return new OfxFileParser(controller);
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.personalfinance.controller;
+
+import com.personalfinance.model.Transaction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * 并行 txt 文件解析器，格式与 {@link TxtFileParser} 相同
+ * <p>
+ * 把文件按字节切分成若干段（切分点对齐到行尾之后，行尾可以是 LF、CRLF 或 CR，每段不超过 {@link #MAX_SPLIT_BYTES}），
+ * 在 ForkJoinPool 上并行解析，同时在途的段数有上限。段按原顺序取回，结果立即交给回调，
+ * 内存占用与文件大小无关。每段只统计自己的行数，取回时累加前面各段的行数得到全局行号，
+ * 因此出错时报告的行号与顺序解析完全一致。分类匹配按段批量进行。
+ * <p>
+ * 按字节切分要求每条记录只占一行；如果某段发现引号字段内含换行（或切分点落在引号字段中间），
+ * 前面各段的结果仍然有效，从该段起退回顺序解析直到文件末尾。
+ */
+public class ParallelTxtFileParser implements FileParser {
+    private static final int MIN_SPLIT_BYTES = 256 * 1024;           // 小于该大小的段不再切分
+    private static final int MAX_SPLIT_BYTES = MIN_SPLIT_BYTES * 8;  // 每段的上限，限制单段结果的内存
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;            // 查找换行符时每次读取的字节数
+
+    private final FinanceController controller;
+    private final ForkJoinPool pool;
+    private final char delimiter;
+
+    public ParallelTxtFileParser(FinanceController controller) {
+        this(controller, ForkJoinPool.commonPool(), ',');
+    }
+
+    public ParallelTxtFileParser(FinanceController controller, ForkJoinPool pool) {
+        this(controller, pool, ',');
+    }
+
+    public ParallelTxtFileParser(FinanceController controller, ForkJoinPool pool, char delimiter) {
+        this.controller = controller;
+        this.pool = pool;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public List<Transaction> parse(File file) throws IOException {
+        return parse(file, (ImportReport) null);
+    }
+
+    /**
+     * 流式解析：各段按顺序回调，每块 chunkSize 条
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer) throws IOException {
+        parse(file, chunkSize, consumer, null, true);
+    }
+
+    /**
+     * 容错解析：各段独立收集错误，取回时换算为全局行号
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                      ImportReport report) throws IOException {
+        parse(file, chunkSize, consumer, Objects.requireNonNull(report), false);
+    }
+
+    /**
+     * @param report 为 null 时遇到第一处错误即抛出异常，否则记入报告并跳过
+     */
+    @Override
+    public List<Transaction> parse(File file, ImportReport report) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        parse(file, DEFAULT_CHUNK_SIZE, transactions::addAll, report, report == null);
+        return transactions;
+    }
+
+    private void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                       ImportReport report, boolean strict) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long dataStart = nextLineStart(channel, 0, size); // 跳过表头
+            if (dataStart >= size) {
+                return;
+            }
+            ColumnMapping mapping = readHeader(channel, dataStart);
+
+            // 每个工作线程至少分到几段，便于负载均衡
+            long splitSize = Math.min(MAX_SPLIT_BYTES,
+                    Math.max(MIN_SPLIT_BYTES, (size - dataStart) / (pool.getParallelism() * 4L)));
+            int window = pool.getParallelism() * 2;
+            int maxDiagnostics = strict ? 1 : ImportReport.DEFAULT_MAX_DIAGNOSTICS;
+            Chunker chunker = new Chunker(chunkSize, consumer);
+            Deque<ChunkTask> inFlight = new ArrayDeque<>();
+            long next = dataStart;
+            int lineOffset = 1; // 段内行号从 1 开始，加上表头行和前面各段的行数
+            try {
+                while (next < size || !inFlight.isEmpty()) {
+                    while (next < size && inFlight.size() < window) {
+                        long end = nextLineStart(channel, Math.min(next + splitSize, size), size);
+                        ChunkTask task = new ChunkTask(channel, mapping, next, end, strict, maxDiagnostics);
+                        pool.execute(task);
+                        inFlight.add(task);
+                        next = end;
+                    }
+                    ChunkTask task = inFlight.poll();
+                    ChunkResult result = join(task);
+                    if (result.multiLine) {
+                        // 前面各段都在记录边界结束，从这一段起顺序解析
+                        cancel(inFlight);
+                        parseSequential(channel, mapping, task.start, lineOffset, chunker, report, strict);
+                        break;
+                    }
+                    if (result.errors.hasErrors()) {
+                        if (strict) {
+                            ImportReport.Diagnostic first = result.errors.getDiagnostics().get(0);
+                            throw new IllegalArgumentException("Data format error in line "
+                                    + (first.getLine() + lineOffset) + ": " + first.getReason());
+                        }
+                        report.merge(result.errors, lineOffset);
+                    }
+                    chunker.addAll(result.transactions);
+                    lineOffset += result.lines;
+                }
+            } finally {
+                cancel(inFlight);
+            }
+            chunker.finish();
+        }
+    }
+
+    /**
+     * 从 start（记录边界）顺序解析到文件末尾，允许记录跨行
+     * @param lineOffset start 之前的行数
+     */
+    private void parseSequential(FileChannel channel, ColumnMapping mapping, long start, int lineOffset,
+                                 Chunker chunker, ImportReport report, boolean strict) throws IOException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        List<Transaction> batch = new ArrayList<>();
+        CsvReader reader = new CsvReader(openRange(channel, start, channel.size()), delimiter, lineOffset + 1);
+        while (true) {
+            try {
+                if (!reader.next()) {
+                    break;
+                }
+            } catch (IllegalArgumentException e) {
+                // 与顺序解析一致：引号直到文件末尾都未闭合
+                if (strict) {
+                    throw e;
+                }
+                report.addError(reader.getRecordLine(), e);
+                break;
+            }
+            if (reader.isBlank()) {
+                continue;
+            }
+            try {
+                Transaction t = TxtFileParser.parseRecord(reader, mapping, dateFormat);
+                t.setId(UUID.randomUUID().toString());
+                batch.add(t);
+            } catch (Exception ex) {
+                if (strict) {
+                    throw new IllegalArgumentException("Data format error in line " + reader.getRecordLine()
+                            + ": " + ex.getMessage());
+                }
+                report.addError(reader.getRecordLine(), ex);
+            }
+            if (batch.size() >= DEFAULT_CHUNK_SIZE) {
+                controller.getAIAnalyzer().matchCategories(batch);
+                chunker.addAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        controller.getAIAnalyzer().matchCategories(batch);
+        chunker.addAll(batch);
+    }
+
+    private ColumnMapping readHeader(FileChannel channel, long headerEnd) throws IOException {
+        CsvReader reader = new CsvReader(openRange(channel, 0, headerEnd), delimiter);
+        return reader.next() ? ColumnMapping.fromHeader(reader) : ColumnMapping.TEMPLATE;
+    }
+
+    private static Reader openRange(FileChannel channel, long start, long end) {
+        return new InputStreamReader(new RangeInputStream(channel, start, end), StandardCharsets.UTF_8);
+    }
+
+    private static ChunkResult join(ChunkTask task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 提前结束时取消尚未取回的段，正在运行的段结果被丢弃
+    private static void cancel(Deque<ChunkTask> inFlight) {
+        for (ChunkTask task : inFlight) {
+            task.cancel(false);
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * 从 position 开始查找下一个行尾（LF、CRLF 或单独的 CR，与 {@link CsvReader} 一致），
+     * 返回下一行第一个字节的位置；找不到返回 limit
+     */
+    private static long nextLineStart(FileChannel channel, long position, long limit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean afterCr = false; // 上一块以 CR 结尾，需要看下一个字节是不是 LF
+        while (position < limit) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && position + i < limit; i++) {
+                byte b = buffer.get(i);
+                if (afterCr) {
+                    return b == '\n' ? position + i + 1 : position + i;
+                }
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                afterCr = b == '\r';
+            }
+            position += read;
+        }
+        return limit;
+    }
+
+    /**
+     * 按位置读取文件 [start, end) 区间的输入流，不移动通道的位置，多个线程可以共用一个通道；
+     * 同时统计读过的行数
+     */
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        private int newlines;
+        private boolean afterCr;     // 上一个字节是 CR，紧跟的 LF 不再计为一行
+        private boolean partialLine; // 最后读到的字节不是行尾
+
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read <= 0) {
+                return -1; // 文件在读取期间被截短
+            }
+            for (int i = off; i < off + read; i++) {
+                if (b[i] == '\r' || b[i] == '\n' && !afterCr) {
+                    newlines++;
+                }
+                afterCr = b[i] == '\r';
+            }
+            partialLine = b[off + read - 1] != '\n' && b[off + read - 1] != '\r';
+            position += read;
+            return read;
+        }
+
+        // 读完整个区间后的行数，末尾没有行尾的最后一行也算一行
+        int getLines() {
+            return newlines + (partialLine ? 1 : 0);
+        }
+    }
+
+    /**
+     * 把各段的交易按原顺序攒成 chunkSize 条一块交给回调
+     */
+    private static class Chunker {
+        private final int chunkSize;
+        private final Consumer<List<Transaction>> consumer;
+        private List<Transaction> chunk;
+
+        Chunker(int chunkSize, Consumer<List<Transaction>> consumer) {
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+            this.chunk = new ArrayList<>(chunkSize);
+        }
+
+        void addAll(List<Transaction> transactions) {
+            for (Transaction t : transactions) {
+                chunk.add(t);
+                if (chunk.size() >= chunkSize) {
+                    consumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+
+        void finish() {
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+            }
+        }
+    }
+
+    /**
+     * 一段的解析结果，错误行号相对于段首（从 1 开始）
+     */
+    private static class ChunkResult {
+        // 记录跨行，不能按行切分
+        static final ChunkResult MULTI_LINE = new ChunkResult(null, 0, null, true);
+
+        private final List<Transaction> transactions;
+        private final int lines;
+        private final ImportReport errors;
+        private final boolean multiLine;
+
+        ChunkResult(List<Transaction> transactions, int lines, ImportReport errors, boolean multiLine) {
+            this.transactions = transactions;
+            this.lines = lines;
+            this.errors = errors;
+            this.multiLine = multiLine;
+        }
+    }
+
+    /**
+     * 解析 [start, end) 字节区间，start 必须位于行首
+     */
+    private class ChunkTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final ColumnMapping mapping;
+        private final long start;
+        private final long end;
+        private final boolean strict;
+        private final int maxDiagnostics;
+
+        ChunkTask(FileChannel channel, ColumnMapping mapping, long start, long end,
+                  boolean strict, int maxDiagnostics) {
+            this.channel = channel;
+            this.mapping = mapping;
+            this.start = start;
+            this.end = end;
+            this.strict = strict;
+            this.maxDiagnostics = maxDiagnostics;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            try {
+                return parseRange();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private ChunkResult parseRange() throws IOException {
+            // 切分点都在换行符之后，不会截断 UTF-8 多字节字符
+            RangeInputStream in = new RangeInputStream(channel, start, end);
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd"); // 每个任务独占
+            List<Transaction> transactions = new ArrayList<>();
+            ImportReport errors = new ImportReport(maxDiagnostics);
+            CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8), delimiter);
+            while (true) {
+                try {
+                    if (!reader.next()) {
+                        break;
+                    }
+                } catch (IllegalArgumentException e) {
+                    return ChunkResult.MULTI_LINE; // 引号直到段尾都未闭合
+                }
+                if (reader.getRecordLines() > 1) {
+                    return ChunkResult.MULTI_LINE;
+                }
+                if (reader.isBlank()) {
+                    continue;
+                }
+                try {
+                    Transaction t = TxtFileParser.parseRecord(reader, mapping, dateFormat);
+                    t.setId(UUID.randomUUID().toString());
+                    transactions.add(t);
+                } catch (Exception ex) {
+                    errors.addError(reader.getRecordLine(), ex);
+                    if (strict) {
+                        // 严格模式下段内遇到第一处错误即停止，取回这一段时抛出
+                        return new ChunkResult(transactions, 0, errors, false);
+                    }
+                }
+            }
+
+            // 整段一次批量匹配分类
+            controller.getAIAnalyzer().matchCategories(transactions);
+            return new ChunkResult(transactions, in.getLines(), errors, false);
+        }
+    }
+
+    /**
+     * 服务提供者：.txt/.csv 逗号分隔文本，第一行不含 NUL 字节且包含逗号
+     */
+    public static class Provider implements FileParserProvider {
+        @Override
+        public String getName() {
+            return "CSV text";
+        }
+
+        @Override
+        public List<String> getExtensions() {
+            return Arrays.asList("txt", "csv");
+        }
+
+        @Override
+        public boolean sniff(byte[] head, int length) {
+            boolean comma = false;
+            for (int i = 0; i < length && head[i] != '\n'; i++) {
+                if (head[i] == 0) {
+                    return false; // 二进制文件
+                }
+                comma |= head[i] == ',';
+            }
+            return comma && !FileParserRegistry.startsWithText(head, length, "<");
+        }
+
+        @Override
+        public FileParser create(FinanceController controller) {
+            return new ParallelTxtFileParser(controller);
+        }
+    }
+}
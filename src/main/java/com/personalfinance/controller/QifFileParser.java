@@ -0,0 +1,240 @@
+package com.personalfinance.controller;
+
+import com.personalfinance.model.Transaction;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * QIF 对账单解析器
+ * <p>
+ * 逐行读取，每行首字母表示字段：D 日期、T/U 金额、P 收款方、M 备注、L 分类，^ 结束一笔交易。
+ * 以 ! 开头的类型声明、拆分明细（S/E/$）和其他字段忽略。
+ * 金额为负是支出，否则是收入；L 字段的主分类与用户分类同名时直接采用，否则按描述匹配。
+ * <p>
+ * QIF 没有编码声明：有 BOM 时按 BOM，文件开头是合法的 UTF-8 时按 UTF-8，否则按 GB18030（兼容 GBK）。
+ * 无法解码的字节替换为 U+FFFD，不会中断导入。
+ */
+public class QifFileParser implements FileParser {
+    private static final int CHARSET_SNIFF_BYTES = 64 * 1024;
+    private static final Charset LEGACY_CHARSET = Charset.forName("GB18030");
+
+    private final FinanceController controller;
+
+    public QifFileParser(FinanceController controller) {
+        this.controller = controller;
+    }
+
+    @Override
+    public List<Transaction> parse(File file) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        parse(file, DEFAULT_CHUNK_SIZE, transactions::addAll);
+        return transactions;
+    }
+
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer) throws IOException {
+        parse(file, chunkSize, consumer, null, true);
+    }
+
+    /**
+     * 容错解析：不合法的交易记入报告后跳过
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                      ImportReport report) throws IOException {
+        parse(file, chunkSize, consumer, Objects.requireNonNull(report), false);
+    }
+
+    private void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                       ImportReport report, boolean strict) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        Map<String, String> categories = new HashMap<>();
+        for (String category : controller.getUser().getCategories()) {
+            categories.put(category.toLowerCase(), category);
+        }
+
+        List<Transaction> chunk = new ArrayList<>(chunkSize);
+        Charset charset = detectCharset(file);
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), decoder))) {
+            Map<Character, String> fields = new HashMap<>();
+            int lineNumber = 0;
+            int recordLine = 0;
+            String line;
+            while ((line = reader.readLine()) != null || !fields.isEmpty()) {
+                // 最后一笔交易缺少结束符 ^ 时按文件末尾结束处理
+                line = line == null ? "^" : line.trim();
+                lineNumber++;
+                if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1).trim(); // BOM
+                }
+                if (line.isEmpty() || line.charAt(0) == '!') {
+                    continue;
+                }
+                char code = line.charAt(0);
+                if (code != '^') {
+                    if (fields.isEmpty()) {
+                        recordLine = lineNumber;
+                    }
+                    fields.putIfAbsent(code, line.substring(1).trim());
+                    continue;
+                }
+
+                if (!fields.isEmpty()) {
+                    try {
+                        chunk.add(toTransaction(fields, categories));
+                    } catch (Exception ex) {
+                        if (strict) {
+                            throw new IllegalArgumentException("Data format error in line " + recordLine + ": " + ex.getMessage());
+                        }
+                        report.addError(recordLine, ex);
+                    }
+                    fields.clear();
+                    if (chunk.size() >= chunkSize) {
+                        controller.getAIAnalyzer().matchCategories(chunk);
+                        consumer.accept(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            controller.getAIAnalyzer().matchCategories(chunk);
+            consumer.accept(chunk);
+        }
+    }
+
+    /**
+     * 按 BOM 或开头的内容判断编码
+     */
+    private static Charset detectCharset(File file) throws IOException {
+        byte[] head = new byte[CHARSET_SNIFF_BYTES];
+        int read = 0;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while (read < head.length && (n = in.read(head, read, head.length - read)) > 0) {
+                read += n;
+            }
+        }
+        if (read >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (read >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // 没读完整个文件时，末尾被截断的多字节字符不算错误
+        boolean valid = !utf8.decode(ByteBuffer.wrap(head, 0, read), CharBuffer.allocate(read), read < head.length)
+                .isError();
+        return valid ? StandardCharsets.UTF_8 : LEGACY_CHARSET;
+    }
+
+    private static Transaction toTransaction(Map<Character, String> fields, Map<String, String> categories) {
+        String amount = fields.containsKey('T') ? fields.get('T') : fields.get('U');
+        String date = fields.get('D');
+        if (amount == null) {
+            throw new FieldFormatException("amount", "Missing amount (T)");
+        }
+        if (date == null) {
+            throw new FieldFormatException("date", "Missing date (D)");
+        }
+        BigDecimal value;
+        try {
+            value = new BigDecimal(amount.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new FieldFormatException("amount", "Invalid amount: " + amount);
+        }
+
+        Transaction t = new Transaction();
+        t.setAmount(value.abs());
+        t.setType(value.signum() < 0 ? "EXPENSE" : "INCOME");
+        try {
+            t.setDate(parseDate(date));
+        } catch (RuntimeException e) {
+            throw new FieldFormatException("date", "Invalid date: " + date);
+        }
+        t.setDescription(OfxFileParser.describe(fields.get('P'), fields.get('M')));
+
+        // L 字段：主分类:子分类，[账户] 表示转账
+        String category = fields.get('L');
+        if (category != null && !category.startsWith("[")) {
+            int colon = category.indexOf(':');
+            String main = (colon < 0 ? category : category.substring(0, colon)).trim().toLowerCase();
+            t.setCategory(categories.get(main));
+        }
+        t.setId(UUID.randomUUID().toString());
+        return t;
+    }
+
+    /**
+     * QIF 日期：美式 M/D/YYYY、M/D'YY、M/D/YY，或 YYYY-MM-DD
+     */
+    private static Date parseDate(String value) {
+        LocalDate date;
+        if (value.matches("\\d{4}-\\d{1,2}-\\d{1,2}")) {
+            String[] parts = value.split("-");
+            date = LocalDate.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        } else {
+            String[] parts = value.replace(" ", "").split("[/'.-]");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid date: " + value);
+            }
+            int year = Integer.parseInt(parts[2]);
+            if (parts[2].length() <= 2) {
+                // 两位年份取不晚于今年的最近年份，例如 99 -> 1999，24 -> 2024
+                year += year + 2000 > LocalDate.now().getYear() ? 1900 : 2000;
+            }
+            date = LocalDate.of(year, Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        }
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * 服务提供者：.qif，内容以 !Type、!Account 或 !Option 声明开头
+     */
+    public static class Provider implements FileParserProvider {
+        @Override
+        public String getName() {
+            return "QIF statements";
+        }
+
+        @Override
+        public List<String> getExtensions() {
+            return Collections.singletonList("qif");
+        }
+
+        @Override
+        public boolean sniff(byte[] head, int length) {
+            return FileParserRegistry.startsWithText(head, length, "!Type")
+                    || FileParserRegistry.startsWithText(head, length, "!Account")
+                    || FileParserRegistry.startsWithText(head, length, "!Option");
+        }
+
+        @Override
+        public FileParser create(FinanceController controller) {
+            return new QifFileParser(controller);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.personalfinance.controller;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * 预聚合汇总：按 (年月, 分类, 类型) 累计金额与笔数
+ * <p>
+ * 由 {@link FinanceController} 在加载时一次性构建（按月加载时直接计入存储清单中的月份汇总）、在增删改时增量维护，
+ * 分类统计、月度趋势等查询直接读取汇总结果而不再扫描原始交易。
+ */
+public class SpendingRollup {
+    // 类型 -> 年月 -> 分类 -> 汇总
+    private final Map<String, NavigableMap<YearMonth, Map<String, Cell>>> monthly = new HashMap<>();
+    // 类型 -> 年月 -> 当月合计
+    private final Map<String, Map<YearMonth, Cell>> monthTotals = new HashMap<>();
+    // 类型 -> 分类 -> 全部历史合计（包含没有日期的交易）
+    private final Map<String, Map<String, Cell>> allTime = new HashMap<>();
+
+    /**
+     * 计入或撤出一笔交易
+     * @param month 交易所在年月，没有日期时为 null（只计入全部历史合计）
+     * @param category 分类，可以为 null
+     * @param type 交易类型
+     * @param amount 金额
+     * @param add true 为计入，false 为撤出
+     */
+    public void apply(YearMonth month, String category, String type, BigDecimal amount, boolean add) {
+        if (type == null || amount == null) {
+            return;
+        }
+        add(month, category, type, add ? amount : amount.negate(), add ? 1 : -1);
+    }
+
+    /**
+     * 计入一组已汇总的交易，例如存储清单中某个月某个分类的合计
+     * @param sum 这些交易的金额合计
+     * @param count 笔数
+     */
+    public void add(YearMonth month, String category, String type, BigDecimal sum, long count) {
+        update(allTime.computeIfAbsent(type, k -> new HashMap<>()), category, sum, count);
+        if (month != null) {
+            NavigableMap<YearMonth, Map<String, Cell>> byMonth = monthly.computeIfAbsent(type, k -> new TreeMap<>());
+            Map<String, Cell> categories = byMonth.computeIfAbsent(month, k -> new HashMap<>());
+            update(categories, category, sum, count);
+            if (categories.isEmpty()) {
+                byMonth.remove(month);
+            }
+            update(monthTotals.computeIfAbsent(type, k -> new HashMap<>()), month, sum, count);
+        }
+    }
+
+    public void clear() {
+        monthly.clear();
+        monthTotals.clear();
+        allTime.clear();
+    }
+
+    /**
+     * 全部历史中各分类的合计
+     */
+    public Map<String, BigDecimal> getCategoryTotals(String type) {
+        return sums(allTime.get(type));
+    }
+
+    /**
+     * 指定月份各分类的合计
+     */
+    public Map<String, BigDecimal> getCategoryTotals(YearMonth month, String type) {
+        NavigableMap<YearMonth, Map<String, Cell>> byMonth = monthly.get(type);
+        return sums(byMonth == null ? null : byMonth.get(month));
+    }
+
+    /**
+     * 指定月份的合计金额
+     */
+    public BigDecimal getMonthTotal(YearMonth month, String type) {
+        Map<YearMonth, Cell> totals = monthTotals.get(type);
+        Cell cell = totals == null ? null : totals.get(month);
+        return cell == null ? BigDecimal.ZERO : cell.sum;
+    }
+
+    /**
+     * 指定月份的交易笔数
+     */
+    public long getMonthCount(YearMonth month, String type) {
+        Map<YearMonth, Cell> totals = monthTotals.get(type);
+        Cell cell = totals == null ? null : totals.get(month);
+        return cell == null ? 0 : cell.count;
+    }
+
+    private static <K> void update(Map<K, Cell> cells, K key, BigDecimal delta, long count) {
+        Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+        cell.sum = cell.sum.add(delta);
+        cell.count += count;
+        if (cell.count <= 0) {
+            cells.remove(key);
+        }
+    }
+
+    private static Map<String, BigDecimal> sums(Map<String, Cell> cells) {
+        Map<String, BigDecimal> result = new HashMap<>();
+        if (cells != null) {
+            cells.forEach((category, cell) -> result.put(category, cell.sum));
+        }
+        return result;
+    }
+
+    /**
+     * 汇总单元：金额合计与笔数
+     */
+    private static class Cell {
+        private BigDecimal sum = BigDecimal.ZERO;
+        private long count;
+    }
+}
@@ -5,53 +5,177 @@ import com.personalfinance.model.Transaction;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 // 实现 txt 文件解析器
 public class TxtFileParser implements FileParser {
     private final FinanceController controller;
+    private final char delimiter;
 
     public TxtFileParser(FinanceController controller) {
+        this(controller, ',');
+    }
+
+    /**
+     * @param delimiter 字段分隔符，例如 ',' 或 ';' 或 '\t'
+     */
+    public TxtFileParser(FinanceController controller, char delimiter) {
         this.controller = controller;
+        this.delimiter = delimiter;
     }
 
     @Override
     public List<Transaction> parse(File file) throws IOException {
         List<Transaction> transactions = new ArrayList<>();
-        List<String> lines = Files.readAllLines(file.toPath());
+        parse(file, DEFAULT_CHUNK_SIZE, transactions::addAll);
+        return transactions;
+    }
+
+    /**
+     * 逐条读取 CSV 记录，每攒够 chunkSize 条交易回调一次，内存占用与文件大小无关
+     * 第一行为表头，按表头识别列，识别不出时按模板顺序
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer) throws IOException {
+        parse(file, chunkSize, consumer, null, true);
+    }
+
+    /**
+     * 容错解析：不合法的行记入报告后跳过
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                      ImportReport report) throws IOException {
+        parse(file, chunkSize, consumer, Objects.requireNonNull(report), false);
+    }
+
+    private void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                       ImportReport report, boolean strict) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
         SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        List<Transaction> chunk = new ArrayList<>(chunkSize);
 
-        for (int i = 1; i < lines.size(); i++) {
-            String line = lines.get(i).trim();
-            if (line.isEmpty()) {
-                continue;
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8), delimiter)) {
+            if (!reader.next()) {
+                return;
             }
+            ColumnMapping mapping = ColumnMapping.fromHeader(reader);
+            while (nextRecord(reader, report, strict)) {
+                if (reader.isBlank()) {
+                    continue;
+                }
+
+                int lineNumber = reader.getRecordLine();
+                try {
+                    Transaction t = parseRecord(reader, mapping, dateFormat);
+                    if (t.getCategory() == null) {
+                        t.setCategory(controller.getAIAnalyzer().matchCategory(
+                                t.getDescription(), t.getType(), t.getAmount()));
+                    }
+                    t.setId(UUID.randomUUID().toString());
 
-            try {
-                String[] parts = line.split(",");
-                if (parts.length != 4) {
-                    throw new IllegalArgumentException("Incorrect number of fields in line " + (i + 1));
+                    chunk.add(t);
+                } catch (Exception ex) {
+                    if (strict) {
+                        ex.printStackTrace();
+                        throw new IllegalArgumentException("Data format error in line " + lineNumber + ": " + ex.getMessage());
+                    }
+                    report.addError(lineNumber, ex);
                 }
 
-                Transaction t = new Transaction();
-                t.setAmount(new BigDecimal(parts[0].trim()));
-                t.setType(parts[1].trim().equalsIgnoreCase("Income") ? "INCOME" : "EXPENSE");
-                t.setDate(dateFormat.parse(parts[2].trim()));
-                t.setDescription(parts[3].trim());
-                String matchedCategory = controller.getAIAnalyzer().matchCategory(t.getDescription());
-                t.setCategory(matchedCategory);
-                t.setId(UUID.randomUUID().toString());
-
-                transactions.add(t);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                throw new IllegalArgumentException("Data format error in line " + (i + 1) + ": " + ex.getMessage());
+                if (chunk.size() >= chunkSize) {
+                    consumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
             }
         }
-        return transactions;
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+        }
+    }
+
+    /**
+     * 读取下一条记录；容错模式下引号未闭合记入报告并结束（此时已读到文件末尾）
+     */
+    private static boolean nextRecord(CsvReader reader, ImportReport report, boolean strict) throws IOException {
+        try {
+            return reader.next();
+        } catch (IllegalArgumentException e) {
+            if (strict) {
+                throw e;
+            }
+            report.addError(reader.getRecordLine(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 把当前记录按列映射转换为交易，不含ID；文件中没有分类列时分类为 null
+     * @param reader 已读到数据记录的读取器
+     * @param mapping 列映射
+     * @param dateFormat 调用方独占的日期格式
+     * @throws FieldFormatException 字段缺失或格式不正确
+     */
+    static Transaction parseRecord(CsvReader reader, ColumnMapping mapping, SimpleDateFormat dateFormat) {
+        Transaction t = new Transaction();
+        String amount = required(reader, mapping.getAmount(), "amount");
+        try {
+            t.setAmount(new BigDecimal(amount));
+        } catch (NumberFormatException e) {
+            throw new FieldFormatException("amount", "Invalid amount: " + amount);
+        }
+        t.setType(parseType(mapping.getType() < 0 ? "" : required(reader, mapping.getType(), "type")));
+        t.setDate(parseDate(required(reader, mapping.getDate(), "date"), dateFormat));
+        t.setDescription(optional(reader, mapping.getDescription()));
+        String account = optional(reader, mapping.getAccount());
+        if (!account.isEmpty()) {
+            t.setAccount(account);
+        }
+        String category = optional(reader, mapping.getCategory());
+        if (!category.isEmpty()) {
+            t.setCategory(category);
+        }
+        return t;
+    }
+
+    /**
+     * 类型列的文本转换为 INCOME / EXPENSE，不是“收入”的都按支出处理
+     */
+    static String parseType(String type) {
+        return type.equalsIgnoreCase("Income") || type.equals("收入") ? "INCOME" : "EXPENSE";
+    }
+
+    /**
+     * 按 yyyy-MM-dd 解析日期
+     * @throws FieldFormatException 日期格式不正确
+     */
+    static Date parseDate(String date, SimpleDateFormat dateFormat) {
+        try {
+            return dateFormat.parse(date);
+        } catch (ParseException e) {
+            throw new FieldFormatException("date", "Invalid date: " + date);
+        }
+    }
+
+    private static String required(CsvReader reader, int column, String name) {
+        if (column >= reader.getFieldCount()) {
+            throw new FieldFormatException(name, "Incorrect number of fields, missing " + name);
+        }
+        return reader.field(column).trim();
+    }
+
+    private static String optional(CsvReader reader, int column) {
+        return column < 0 || reader.isBlank(column) ? "" : reader.field(column).trim();
     }
 }
@@ -2,19 +2,424 @@ package com.personalfinance.controller;
 
 import com.personalfinance.model.Transaction;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
- * 预留 xls 文件解析器接口
+ * xlsx 文件解析器，第一个非空行为表头，按表头识别列（规则与 txt 相同，见 {@link ColumnMapping}），
+ * 识别不出时按模板顺序：金额, 类型, 日期, 描述
+ * <p>
+ * 直接读取压缩包中的工作表 XML，用 StAX 逐行解析而不构建 DOM，
+ * 内存占用只与共享字符串表和每块的条数有关，与行数无关。
+ * 旧版二进制 .xls（BIFF）格式不支持，需要先另存为 .xlsx。
  */
 public class XlsFileParser implements FileParser {
+    private static final String WORKBOOK = "xl/workbook.xml";
+    private static final String WORKBOOK_RELS = "xl/_rels/workbook.xml.rels";
+    private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+    private static final String DEFAULT_SHEET = "xl/worksheets/sheet1.xml";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final int MAX_HEADER_COLUMNS = 256; // 表头只看前这么多列
+
+    // OLE2 复合文档（旧版 .xls）的文件头
+    private static final long OLE2_SIGNATURE = 0xD0CF11E0A1B11AE1L;
+    // Excel 日期序列号的起点（1900 日期系统，已包含 1900-02-29 的历史误差）
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+
+    private final FinanceController controller;
+    private final XMLInputFactory xmlFactory;
+
+    public XlsFileParser(FinanceController controller) {
+        this.controller = controller;
+        this.xmlFactory = XMLInputFactory.newInstance();
+        // 禁用 DTD 和外部实体
+        xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
     @Override
     public List<Transaction> parse(File file) throws IOException {
-        // 这里是解析 xls 文件的具体实现
-        // 目前只是占位，需要根据实际情况编写逻辑
-        return new ArrayList<>();
+        List<Transaction> transactions = new ArrayList<>();
+        parse(file, DEFAULT_CHUNK_SIZE, transactions::addAll);
+        return transactions;
+    }
+
+    /**
+     * 逐行读取第一个工作表，每攒够 chunkSize 条交易批量匹配分类后回调一次
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer) throws IOException {
+        parse(file, chunkSize, consumer, null, true);
+    }
+
+    /**
+     * 容错解析：不合法的行按工作表行号记入报告后跳过
+     */
+    @Override
+    public void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                      ImportReport report) throws IOException {
+        parse(file, chunkSize, consumer, Objects.requireNonNull(report), false);
+    }
+
+    private void parse(File file, int chunkSize, Consumer<List<Transaction>> consumer,
+                       ImportReport report, boolean strict) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        if (isLegacyWorkbook(file)) {
+            throw new IOException("Legacy .xls workbooks are not supported, please save the file as .xlsx");
+        }
+
+        try (ZipFile zip = new ZipFile(file)) {
+            List<String> sharedStrings = readSharedStrings(zip);
+            ZipEntry sheet = zip.getEntry(firstSheetPath(zip));
+            if (sheet == null) {
+                throw new IOException("No worksheet found in " + file.getName());
+            }
+
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+            List<Transaction> chunk = new ArrayList<>(chunkSize);
+            try (InputStream in = zip.getInputStream(sheet)) {
+                XMLStreamReader reader = xmlFactory.createXMLStreamReader(in);
+                try {
+                    String[] row = new String[MAX_HEADER_COLUMNS];
+                    ColumnMapping mapping = null;
+                    int rowNumber = 0;
+                    while ((rowNumber = nextRow(reader, row, sharedStrings, rowNumber)) > 0) {
+                        if (isBlank(row)) {
+                            continue;
+                        }
+                        if (mapping == null) {
+                            mapping = ColumnMapping.fromHeader(row); // 第一个非空行为表头
+                            row = new String[mapping.getWidth()];
+                            continue;
+                        }
+                        try {
+                            chunk.add(toTransaction(row, mapping, dateFormat));
+                        } catch (Exception ex) {
+                            if (strict) {
+                                throw new IllegalArgumentException("Data format error in row " + rowNumber + ": " + ex.getMessage());
+                            }
+                            report.addError(rowNumber, ex);
+                        }
+                        if (chunk.size() >= chunkSize) {
+                            controller.getAIAnalyzer().matchCategories(chunk);
+                            consumer.accept(chunk);
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Malformed worksheet: " + e.getMessage(), e);
+            }
+            if (!chunk.isEmpty()) {
+                controller.getAIAnalyzer().matchCategories(chunk);
+                consumer.accept(chunk);
+            }
+        }
+    }
+
+    private static boolean isLegacyWorkbook(File file) throws IOException {
+        if (file.length() < 8) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+            return in.readLong() == OLE2_SIGNATURE;
+        }
+    }
+
+    /**
+     * 一行单元格按列映射转换为交易；文件中没有分类列时分类为 null，由调用方批量匹配
+     */
+    private static Transaction toTransaction(String[] row, ColumnMapping mapping, SimpleDateFormat dateFormat) {
+        Transaction t = new Transaction();
+        String amount = required(row, mapping.getAmount(), "amount");
+        try {
+            t.setAmount(new BigDecimal(amount));
+        } catch (NumberFormatException e) {
+            throw new FieldFormatException("amount", "Invalid amount: " + amount);
+        }
+        t.setType(TxtFileParser.parseType(mapping.getType() < 0 ? "" : required(row, mapping.getType(), "type")));
+        t.setDate(parseDate(required(row, mapping.getDate(), "date"), dateFormat));
+        t.setDescription(optional(row, mapping.getDescription()));
+        String account = optional(row, mapping.getAccount());
+        if (!account.isEmpty()) {
+            t.setAccount(account);
+        }
+        String category = optional(row, mapping.getCategory());
+        if (!category.isEmpty()) {
+            t.setCategory(category);
+        }
+        t.setId(UUID.randomUUID().toString());
+        return t;
+    }
+
+    private static String required(String[] row, int column, String name) {
+        if (row[column] == null || row[column].trim().isEmpty()) {
+            throw new FieldFormatException(name, "Missing value in column " + columnName(column));
+        }
+        return row[column].trim();
+    }
+
+    private static String optional(String[] row, int column) {
+        return column < 0 || row[column] == null ? "" : row[column].trim();
+    }
+
+    /**
+     * 日期既可能是文本 yyyy-MM-dd，也可能是 Excel 日期序列号
+     * @throws FieldFormatException 日期格式不正确
+     */
+    private static Date parseDate(String value, SimpleDateFormat dateFormat) {
+        if (value.indexOf('-') < 0) {
+            try {
+                long serial = (long) Math.floor(Double.parseDouble(value));
+                LocalDate date = EXCEL_EPOCH.plusDays(serial);
+                return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+            } catch (RuntimeException e) {
+                throw new FieldFormatException("date", "Invalid date: " + value);
+            }
+        }
+        if (value.length() > 10 && value.charAt(10) == 'T') {
+            value = value.substring(0, 10); // t="d" 单元格为 ISO 日期时间
+        }
+        return TxtFileParser.parseDate(value, dateFormat);
+    }
+
+    private static boolean isBlank(String[] row) {
+        for (String value : row) {
+            if (value != null && !value.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读到下一个 row 元素结束，把前 row.length 列的值写入复用的数组
+     * @param previousRow 上一行的行号，row 元素省略行号时顺延
+     * @return 行号（从 1 开始），没有更多行返回 -1
+     */
+    private int nextRow(XMLStreamReader reader, String[] row, List<String> sharedStrings, int previousRow)
+            throws XMLStreamException {
+        int rowNumber = previousRow + 1;
+        int implicitColumn = 0;
+        Arrays.fill(row, null);
+        String cellType = null;
+        int column = -1;
+        StringBuilder value = new StringBuilder();
+        boolean inValue = false;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if ("row".equals(name)) {
+                    String r = reader.getAttributeValue(null, "r");
+                    rowNumber = r != null ? Integer.parseInt(r) : rowNumber;
+                    implicitColumn = 0;
+                } else if ("c".equals(name)) {
+                    String ref = reader.getAttributeValue(null, "r");
+                    column = ref != null ? columnIndex(ref) : implicitColumn;
+                    implicitColumn = column + 1;
+                    cellType = reader.getAttributeValue(null, "t");
+                    value.setLength(0);
+                } else if ("v".equals(name) || ("t".equals(name) && "inlineStr".equals(cellType))) {
+                    inValue = true;
+                }
+            } else if (inValue && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                value.append(reader.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                String name = reader.getLocalName();
+                if ("v".equals(name) || "t".equals(name)) {
+                    inValue = false;
+                } else if ("c".equals(name)) {
+                    if (column >= 0 && column < row.length) {
+                        row[column] = cellValue(cellType, value.toString(), sharedStrings);
+                    }
+                } else if ("row".equals(name)) {
+                    return rowNumber;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String cellValue(String type, String raw, List<String> sharedStrings) {
+        if ("s".equals(type)) {
+            int index = Integer.parseInt(raw.trim());
+            return index >= 0 && index < sharedStrings.size() ? sharedStrings.get(index) : null;
+        }
+        if ("b".equals(type)) {
+            return "1".equals(raw.trim()) ? "TRUE" : "FALSE";
+        }
+        return raw;
+    }
+
+    /**
+     * 列号（从 0 开始）对应的列名，如 0 -> "A"，27 -> "AB"
+     */
+    private static String columnName(int column) {
+        StringBuilder name = new StringBuilder();
+        for (int n = column + 1; n > 0; n = (n - 1) / 26) {
+            name.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    /**
+     * 单元格引用（如 "C12"）的列号，从 0 开始
+     */
+    private static int columnIndex(String ref) {
+        int column = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            char c = ref.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            column = column * 26 + (c - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    /**
+     * 读取共享字符串表，富文本按顺序拼接，忽略拼音注释
+     */
+    private List<String> readSharedStrings(ZipFile zip) throws IOException {
+        List<String> strings = new ArrayList<>();
+        ZipEntry entry = zip.getEntry(SHARED_STRINGS);
+        if (entry == null) {
+            return strings;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader reader = xmlFactory.createXMLStreamReader(in);
+            try {
+                StringBuilder text = new StringBuilder();
+                boolean inText = false;
+                int phoneticDepth = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if ("si".equals(name)) {
+                            text.setLength(0);
+                        } else if ("rPh".equals(name)) {
+                            phoneticDepth++;
+                        } else if ("t".equals(name) && phoneticDepth == 0) {
+                            inText = true;
+                        }
+                    } else if (inText && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                        text.append(reader.getText());
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if ("t".equals(name)) {
+                            inText = false;
+                        } else if ("rPh".equals(name)) {
+                            phoneticDepth--;
+                        } else if ("si".equals(name)) {
+                            strings.add(text.toString());
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed shared strings: " + e.getMessage(), e);
+        }
+        return strings;
+    }
+
+    /**
+     * 根据 workbook.xml 和关系表找到第一个工作表的路径，找不到时使用默认路径
+     */
+    private String firstSheetPath(ZipFile zip) throws IOException {
+        String relationId = firstMatchingAttribute(zip, WORKBOOK, "sheet", REL_NS, "id", null);
+        if (relationId == null) {
+            return DEFAULT_SHEET;
+        }
+        String target = firstMatchingAttribute(zip, WORKBOOK_RELS, "Relationship", null, "Target", relationId);
+        if (target == null) {
+            return DEFAULT_SHEET;
+        }
+        // Target 一般相对于 xl/ 目录，也可能是以 / 开头的绝对路径
+        return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+    }
+
+    /**
+     * 读取某个文件中第一个满足条件的元素属性
+     * @param id 不为 null 时只匹配 Id 属性等于该值的元素
+     */
+    private String firstMatchingAttribute(ZipFile zip, String entryName, String element,
+                                          String namespace, String attribute, String id) throws IOException {
+        ZipEntry entry = zip.getEntry(entryName);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            XMLStreamReader reader = xmlFactory.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && element.equals(reader.getLocalName())
+                            && (id == null || id.equals(reader.getAttributeValue(null, "Id")))) {
+                        return reader.getAttributeValue(namespace, attribute);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed " + entryName + ": " + e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * 服务提供者：.xlsx 为 zip 压缩包；.xls 也登记在此，以便给出“请另存为 .xlsx”的提示
+     */
+    public static class Provider implements FileParserProvider {
+        @Override
+        public String getName() {
+            return "Excel workbooks";
+        }
+
+        @Override
+        public List<String> getExtensions() {
+            return Arrays.asList("xlsx", "xls");
+        }
+
+        @Override
+        public boolean sniff(byte[] head, int length) {
+            if (length >= 4 && head[0] == 'P' && head[1] == 'K' && head[2] == 3 && head[3] == 4) {
+                return true;
+            }
+            long signature = 0;
+            for (int i = 0; i < 8 && i < length; i++) {
+                signature = signature << 8 | (head[i] & 0xFF);
+            }
+            return length >= 8 && signature == OLE2_SIGNATURE;
+        }
+
+        @Override
+        public FileParser create(FinanceController controller) {
+            return new XlsFileParser(controller);
+        }
     }
 }
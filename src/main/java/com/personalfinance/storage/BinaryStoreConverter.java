@@ -0,0 +1,34 @@
+package com.personalfinance.storage;
+
+import com.personalfinance.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 一次性转换工具：把 transactions.json（及日志）转换为 transactions.bin
+ * <p>
+ * 用法：{@code java -cp app.jar com.personalfinance.storage.BinaryStoreConverter [用户名...]}，
+ * 不指定用户名时转换 users.json 中的全部用户。数据目录默认为工作目录下的 data/，可用 -Dfinance.dataDir 指定。
+ */
+public class BinaryStoreConverter {
+    public static void main(String[] args) {
+        JsonDataManager dataManager = new JsonDataManager(
+                System.getProperty(StorageFactory.DATA_DIR_PROPERTY, JsonDataManager.DEFAULT_DATA_DIR));
+        List<String> usernames = new ArrayList<>(Arrays.asList(args));
+        if (usernames.isEmpty()) {
+            List<User> users = dataManager.loadUsers();
+            if (users != null) {
+                users.forEach(user -> usernames.add(user.getUsername()));
+            }
+        }
+
+        BinaryTransactionStore store = new BinaryTransactionStore(dataManager);
+        for (String username : usernames) {
+            int count = store.convert(username);
+            System.out.println(username + ": " + count + " transactions -> "
+                    + dataManager.getUserDataPath(username, BinaryTransactionStore.DATA_FILE));
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.personalfinance.storage;
+
+import com.personalfinance.model.Transaction;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * 二进制列式交易存储：每个用户一个 {@code transactions.bin}
+ * <p>
+ * 文件布局（大端序）：
+ * <pre>
+ * 头部    magic, version, count, 分类字典大小, 字符串堆大小, 保留    6 x int
+ * 金额    long[count]   以分为单位；不能精确表示为分时为字符串堆引用
+ * 日期    int[count]    epoch-day
+ * 分类    int[count]    分类字典下标，-1 表示无分类
+ * 描述    int[count]    字符串堆引用，-1 表示 null（ID、账户同）
+ * ID      int[count]
+ * 账户    int[count]
+ * 标志    byte[count]   收入 / 周期性 / 金额为字符串
+ * 字典    int[字典大小]  字符串堆引用
+ * 堆      每个字符串为 int 长度 + UTF-8 字节，相同字符串只存一次
+ * </pre>
+ * 加载时通过内存映射的 {@link FileChannel} 按列读取，不经过 JSON 解析。
+ * 格式不支持追加，每次变更都重写整个文件（文件很紧凑，写入仍比 JSON 快）。
+ * 首次加载时如果只有 {@code transactions.json}（及日志），会自动转换；旧文件保留不动。
+ */
+public class BinaryTransactionStore implements TransactionStore {
+    public static final String DATA_FILE = "transactions.bin";
+
+    private static final int MAGIC = 0x50465442; // "PFTB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    private static final byte FLAG_INCOME = 1;
+    private static final byte FLAG_RECURRING = 1 << 1;
+    private static final byte FLAG_DECIMAL_AMOUNT = 1 << 2;
+
+    private final JsonDataManager dataManager;
+
+    public BinaryTransactionStore(JsonDataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    @Override
+    public List<Transaction> loadTransactions(String username) {
+        Path path = dataPath(username);
+        if (!Files.exists(path)) {
+            return convertLegacy(username);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return new ArrayList<>();
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Load Fail: " + DATA_FILE, e);
+        }
+    }
+
+    /**
+     * 列式格式不支持局部修改，整体重写
+     */
+    @Override
+    public void recordChanges(String username, Collection<Transaction> upserted,
+                              Collection<String> deletedIds, Collection<Transaction> all) {
+        saveTransactions(username, all);
+    }
+
+    /**
+     * 原子替换，写入中途失败不会破坏原文件，见 {@link DurableFiles}
+     */
+    @Override
+    public void saveTransactions(String username, Collection<Transaction> transactions) {
+        ByteBuffer buffer = encode(transactions);
+        try {
+            DurableFiles.write(dataPath(username), out -> Channels.newChannel(out).write(buffer));
+        } catch (IOException e) {
+            throw new RuntimeException("Save failed: " + DATA_FILE, e);
+        }
+    }
+
+    /**
+     * 把用户现有的 transactions.json（及日志）转换为二进制文件
+     * @return 转换的交易笔数
+     */
+    public int convert(String username) {
+        List<Transaction> transactions = new JournaledTransactionStore(dataManager).loadTransactions(username);
+        saveTransactions(username, transactions);
+        return transactions.size();
+    }
+
+    private List<Transaction> convertLegacy(String username) {
+        boolean hasLegacy = Files.exists(Paths.get(dataManager.getUserDataPath(username, JournaledTransactionStore.SNAPSHOT_FILE)))
+                || Files.exists(Paths.get(dataManager.getUserDataPath(username, JournaledTransactionStore.JOURNAL_FILE)));
+        if (!hasLegacy) {
+            return new ArrayList<>();
+        }
+        convert(username);
+        return loadTransactions(username);
+    }
+
+    static ByteBuffer encode(Collection<Transaction> transactions) {
+        int count = transactions.size();
+        StringHeap heap = new StringHeap();
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+
+        long[] amounts = new long[count];
+        int[] days = new int[count];
+        int[] categories = new int[count];
+        int[] descriptions = new int[count];
+        int[] ids = new int[count];
+        int[] accounts = new int[count];
+        byte[] flags = new byte[count];
+
+        int i = 0;
+        for (Transaction t : transactions) {
+            if (t.getAmount() == null || t.getDate() == null) {
+                throw new IllegalArgumentException("Missing amount or date in transaction " + t.getId());
+            }
+            byte flag = 0;
+            if (Transaction.TYPE_INCOME.equals(t.getType())) {
+                flag |= FLAG_INCOME;
+            }
+            if (t.isRecurring()) {
+                flag |= FLAG_RECURRING;
+            }
+            try {
+                amounts[i] = t.getAmount().movePointRight(2).longValueExact();
+            } catch (ArithmeticException e) {
+                // 小数位超过两位或超出 long 范围，按字符串保存
+                amounts[i] = heap.add(t.getAmount().toPlainString());
+                flag |= FLAG_DECIMAL_AMOUNT;
+            }
+            days[i] = (int) Instant.ofEpochMilli(t.getDate().getTime())
+                    .atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+            categories[i] = t.getCategory() == null ? -1
+                    : dictionary.computeIfAbsent(t.getCategory(), c -> dictionary.size());
+            descriptions[i] = heap.add(t.getDescription());
+            ids[i] = heap.add(t.getId());
+            accounts[i] = heap.add(t.getAccount());
+            flags[i] = flag;
+            i++;
+        }
+        int[] dictionaryRefs = new int[dictionary.size()];
+        int d = 0;
+        for (String category : dictionary.keySet()) {
+            dictionaryRefs[d++] = heap.add(category);
+        }
+
+        int size = HEADER_BYTES + count * (Long.BYTES + 5 * Integer.BYTES + 1)
+                + dictionaryRefs.length * Integer.BYTES + heap.size();
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(dictionaryRefs.length).putInt(heap.size()).putInt(0);
+        buffer.asLongBuffer().put(amounts);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        for (int[] column : new int[][]{days, categories, descriptions, ids, accounts}) {
+            putInts(buffer, column);
+        }
+        buffer.put(flags);
+        putInts(buffer, dictionaryRefs);
+        heap.writeTo(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    static List<Transaction> decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a transaction data file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported data file version: " + buffer.getInt(4));
+        }
+        int count = buffer.getInt(8);
+        int dictionarySize = buffer.getInt(12);
+        int heapSize = buffer.getInt(16);
+        long expected = HEADER_BYTES + (long) count * (Long.BYTES + 5 * Integer.BYTES + 1)
+                + (long) dictionarySize * Integer.BYTES + heapSize;
+        if (count < 0 || dictionarySize < 0 || heapSize < 0 || buffer.limit() < expected) {
+            throw new IllegalArgumentException("Truncated data file");
+        }
+
+        // 各列的起始位置
+        int amounts = HEADER_BYTES;
+        int days = amounts + count * Long.BYTES;
+        int categories = days + count * Integer.BYTES;
+        int descriptions = categories + count * Integer.BYTES;
+        int ids = descriptions + count * Integer.BYTES;
+        int accounts = ids + count * Integer.BYTES;
+        int flags = accounts + count * Integer.BYTES;
+        int dictionary = flags + count;
+        int heapStart = dictionary + dictionarySize * Integer.BYTES;
+
+        StringReader strings = new StringReader(buffer, heapStart);
+        String[] categoryNames = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            categoryNames[i] = strings.get(buffer.getInt(dictionary + i * Integer.BYTES));
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        Map<Integer, Long> dayStarts = new HashMap<>(); // epoch-day -> 当天零点的毫秒数
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte flag = buffer.get(flags + i);
+            long amount = buffer.getLong(amounts + i * Long.BYTES);
+            int category = buffer.getInt(categories + i * Integer.BYTES);
+            int day = buffer.getInt(days + i * Integer.BYTES);
+
+            Transaction t = new Transaction();
+            t.setId(strings.get(buffer.getInt(ids + i * Integer.BYTES)));
+            t.setAmount((flag & FLAG_DECIMAL_AMOUNT) != 0
+                    ? new BigDecimal(strings.get((int) amount)) : BigDecimal.valueOf(amount, 2));
+            t.setType((flag & FLAG_INCOME) != 0 ? Transaction.TYPE_INCOME : Transaction.TYPE_EXPENSE);
+            t.setRecurring((flag & FLAG_RECURRING) != 0);
+            t.setDate(new Date(dayStarts.computeIfAbsent(day, d ->
+                    LocalDate.ofEpochDay(d).atStartOfDay(zone).toInstant().toEpochMilli())));
+            t.setCategory(category < 0 ? null : categoryNames[category]);
+            t.setDescription(strings.get(buffer.getInt(descriptions + i * Integer.BYTES)));
+            t.setAccount(strings.get(buffer.getInt(accounts + i * Integer.BYTES)));
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] column) {
+        buffer.asIntBuffer().put(column);
+        buffer.position(buffer.position() + column.length * Integer.BYTES);
+    }
+
+    private Path dataPath(String username) {
+        return Paths.get(dataManager.getUserDataPath(username, DATA_FILE));
+    }
+
+    /**
+     * 写入时的字符串堆：相同字符串只存一次
+     */
+    private static class StringHeap {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private int size;
+
+        int add(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer offset = offsets.get(value);
+            if (offset != null) {
+                return offset;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            offsets.put(value, size);
+            entries.add(bytes);
+            int start = size;
+            size += Integer.BYTES + bytes.length;
+            return start;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            for (byte[] bytes : entries) {
+                buffer.putInt(bytes.length).put(bytes);
+            }
+        }
+    }
+
+    /**
+     * 读取时的字符串堆：同一引用只解码一次，重复的描述共享同一个 String
+     */
+    private static class StringReader {
+        private final ByteBuffer buffer;
+        private final int heapStart;
+        private final Map<Integer, String> decoded = new HashMap<>();
+
+        StringReader(ByteBuffer buffer, int heapStart) {
+            this.buffer = buffer;
+            this.heapStart = heapStart;
+        }
+
+        String get(int ref) {
+            if (ref < 0) {
+                return null;
+            }
+            return decoded.computeIfAbsent(ref, r -> {
+                int position = heapStart + r;
+                byte[] bytes = new byte[buffer.getInt(position)];
+                ByteBuffer view = buffer.duplicate();
+                view.position(position + Integer.BYTES);
+                view.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            });
+        }
+    }
+}
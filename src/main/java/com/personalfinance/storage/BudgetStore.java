@@ -0,0 +1,24 @@
+package com.personalfinance.storage;
+
+import com.personalfinance.model.Budget;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 预算存储
+ */
+public interface BudgetStore {
+    /**
+     * 加载用户的预算，没有数据时返回空列表
+     * @param username 用户名
+     */
+    List<Budget> loadBudgets(String username);
+
+    /**
+     * 整体覆盖写入用户的预算
+     * @param username 用户名
+     * @param budgets 全部预算
+     */
+    void saveBudgets(String username, Collection<Budget> budgets);
+}
@@ -0,0 +1,25 @@
+package com.personalfinance.storage;
+
+/**
+ * 用户的附属数据存储，例如分类模型、导入指纹：按名称整体读写一个对象
+ */
+public interface DocumentStore {
+    /**
+     * 加载文档
+     * @param username 用户名
+     * @param name 文档名
+     * @param type 文档类型
+     * @return 文档，不存在时返回 null
+     */
+    <T> T loadDocument(String username, String name, Class<T> type);
+
+    /**
+     * 整体覆盖写入文档
+     */
+    void saveDocument(String username, String name, Object document);
+
+    /**
+     * 删除文档，不存在时忽略
+     */
+    void deleteDocument(String username, String name);
+}
@@ -0,0 +1,210 @@
+package com.personalfinance.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 崩溃安全的文件写入
+ * <p>
+ * 写入先落到同目录的 {@code 文件名.tmp}，强制刷盘后原子重命名为目标文件，再刷新目录项；
+ * 任何时刻崩溃，目标文件要么是旧内容，要么是完整的新内容。
+ * <p>
+ * 在 {@link #group(Runnable)} 中的写入组成一次提交：各临时文件写完并刷盘后，
+ * 重命名、追加和删除按调用顺序一起执行，每个目录只刷新一次。
+ * 例如延迟写入一次刷新的交易、预算和用户文件共用一轮目录刷盘。
+ * 组内多次写入同一文件时各用一个临时文件，依次重命名，与其间的删除、追加保持原有顺序。
+ * 提交前同一组内读不到本组的写入。
+ */
+public final class DurableFiles {
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    private static final ThreadLocal<Group> currentGroup = new ThreadLocal<>();
+
+    private DurableFiles() {}
+
+    /**
+     * 文件内容
+     */
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 原子替换目标文件
+     */
+    public static void write(Path target, Content content) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = tempFile(target);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            content.writeTo(out);
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        submit(new Operation(Operation.Kind.RENAME, target, temp, null));
+    }
+
+    /**
+     * 追加到文件末尾并刷盘
+     */
+    public static void append(Path target, byte[] data) throws IOException {
+        Files.createDirectories(target.getParent());
+        submit(new Operation(Operation.Kind.APPEND, target, null, data));
+    }
+
+    /**
+     * 删除文件（不存在时忽略）
+     */
+    public static void delete(Path target) throws IOException {
+        submit(new Operation(Operation.Kind.DELETE, target, null, null));
+    }
+
+    /**
+     * 把 action 中的写入作为一组提交；嵌套调用并入外层组
+     */
+    public static void group(Runnable action) {
+        if (currentGroup.get() != null) {
+            action.run();
+            return;
+        }
+        Group group = new Group();
+        currentGroup.set(group);
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            currentGroup.remove();
+            group.abandon();
+            throw e;
+        }
+        currentGroup.remove();
+        try {
+            group.commit();
+        } catch (IOException e) {
+            throw new RuntimeException("Save failed: " + e.getMessage(), e);
+        }
+    }
+
+    // 组内已有待重命名的同名临时文件时换一个名字，不能覆盖尚未提交的内容
+    private static Path tempFile(Path target) {
+        String name = target.getFileName().toString();
+        Group group = currentGroup.get();
+        long pending = group == null ? 0 : group.operations.stream()
+                .filter(o -> o.kind == Operation.Kind.RENAME && o.target.equals(target)).count();
+        return target.resolveSibling(pending == 0 ? name + TEMP_SUFFIX : name + "." + pending + TEMP_SUFFIX);
+    }
+
+    private static void submit(Operation operation) throws IOException {
+        Group group = currentGroup.get();
+        if (group != null) {
+            group.operations.add(operation);
+            return;
+        }
+        Group single = new Group();
+        single.operations.add(operation);
+        single.commit();
+    }
+
+    /**
+     * 刷新目录项，使重命名和删除在断电后仍然有效；不支持打开目录的平台（Windows）上跳过
+     */
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // 平台不支持
+        }
+    }
+
+    private static class Operation {
+        enum Kind { RENAME, APPEND, DELETE }
+
+        private final Kind kind;
+        private final Path target;
+        private final Path temp;
+        private final byte[] data;
+
+        Operation(Kind kind, Path target, Path temp, byte[] data) {
+            this.kind = kind;
+            this.target = target;
+            this.temp = temp;
+            this.data = data;
+        }
+
+        void apply() throws IOException {
+            switch (kind) {
+                case RENAME:
+                    try {
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    break;
+                case APPEND:
+                    try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        ByteBuffer buffer = ByteBuffer.wrap(data);
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                        channel.force(true);
+                    }
+                    break;
+                case DELETE:
+                    Files.deleteIfExists(target);
+                    break;
+            }
+        }
+    }
+
+    private static class Group {
+        private final List<Operation> operations = new ArrayList<>();
+
+        void commit() throws IOException {
+            Set<Path> directories = new LinkedHashSet<>();
+            int applied = 0;
+            try {
+                for (Operation operation : operations) {
+                    operation.apply();
+                    applied++;
+                    directories.add(operation.target.toAbsolutePath().getParent());
+                }
+            } finally {
+                operations.subList(0, applied).clear();
+                abandon();
+                directories.forEach(DurableFiles::forceDirectory);
+            }
+        }
+
+        /**
+         * 清理未提交的临时文件
+         */
+        void abandon() {
+            for (Operation operation : operations) {
+                if (operation.temp != null) {
+                    try {
+                        Files.deleteIfExists(operation.temp);
+                    } catch (IOException e) {
+                        // 启动时的恢复检查会再清理
+                    }
+                }
+            }
+            operations.clear();
+        }
+    }
+}
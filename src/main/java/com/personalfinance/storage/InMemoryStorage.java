@@ -0,0 +1,82 @@
+package com.personalfinance.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
+import com.personalfinance.model.Budget;
+import com.personalfinance.model.Transaction;
+import com.personalfinance.model.User;
+
+import java.util.*;
+
+/**
+ * 内存存储，用于测试和试用，进程退出后数据丢失
+ * <p>
+ * 保存和加载时都复制一份（经过与 JSON 文件相同的 Gson 转换），
+ * 调用方修改加载出的对象不会影响已保存的数据，行为与文件存储一致。
+ */
+public class InMemoryStorage implements TransactionStore, BudgetStore, UserStore, DocumentStore {
+    private static final Gson gson = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd")
+            .create();
+
+    private final Map<String, JsonElement> transactions = new HashMap<>();
+    private final Map<String, JsonElement> budgets = new HashMap<>();
+    private final Map<String, JsonElement> documents = new HashMap<>();
+    private JsonElement users;
+
+    @Override
+    public synchronized List<Transaction> loadTransactions(String username) {
+        JsonElement stored = transactions.get(username);
+        return stored == null ? new ArrayList<>() : gson.fromJson(stored, new TypeToken<List<Transaction>>() {}.getType());
+    }
+
+    @Override
+    public synchronized void recordChanges(String username, Collection<Transaction> upserted,
+                                           Collection<String> deletedIds, Collection<Transaction> all) {
+        saveTransactions(username, all);
+    }
+
+    @Override
+    public synchronized void saveTransactions(String username, Collection<Transaction> transactions) {
+        this.transactions.put(username, gson.toJsonTree(new ArrayList<>(transactions)));
+    }
+
+    @Override
+    public synchronized List<Budget> loadBudgets(String username) {
+        JsonElement stored = budgets.get(username);
+        return stored == null ? new ArrayList<>() : gson.fromJson(stored, new TypeToken<List<Budget>>() {}.getType());
+    }
+
+    @Override
+    public synchronized void saveBudgets(String username, Collection<Budget> budgets) {
+        this.budgets.put(username, gson.toJsonTree(new ArrayList<>(budgets)));
+    }
+
+    @Override
+    public synchronized List<User> loadUsers() {
+        return users == null ? new ArrayList<>() : gson.fromJson(users, new TypeToken<List<User>>() {}.getType());
+    }
+
+    @Override
+    public synchronized void saveUsers(List<User> users) {
+        this.users = gson.toJsonTree(new ArrayList<>(users));
+    }
+
+    @Override
+    public synchronized <T> T loadDocument(String username, String name, Class<T> type) {
+        JsonElement stored = documents.get(username + "/" + name);
+        return stored == null ? null : gson.fromJson(stored, type);
+    }
+
+    @Override
+    public synchronized void saveDocument(String username, String name, Object document) {
+        documents.put(username + "/" + name, gson.toJsonTree(document));
+    }
+
+    @Override
+    public synchronized void deleteDocument(String username, String name) {
+        documents.remove(username + "/" + name);
+    }
+}
@@ -0,0 +1,203 @@
+package com.personalfinance.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.personalfinance.model.Transaction;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 日志式交易存储：快照 + 追加日志
+ * <p>
+ * 每次增删改只向 {@code transactions.journal} 追加一行 JSON 记录，
+ * 日志累积到一定条数后再把完整快照写回 {@code transactions.json} 并清空日志。
+ * 加载时读取快照并按顺序重放日志尾部，崩溃残留的半行记录会被截掉。
+ */
+public class JournaledTransactionStore implements TransactionStore {
+    public static final String SNAPSHOT_FILE = "transactions.json";
+    public static final String JOURNAL_FILE = "transactions.journal";
+
+    private static final String OP_PUT = "PUT";
+    private static final String OP_DELETE = "DELETE";
+    private static final int COMPACT_THRESHOLD = 500; // 日志超过该条数时压缩为快照
+
+    // 日志每行一条记录，不能使用美化输出
+    private static final Gson gson = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd")
+            .create();
+
+    private final JsonDataManager dataManager;
+    // 每个用户自上次快照以来的日志记录数
+    private final Map<String, Integer> journalSizes = new HashMap<>();
+
+    public JournaledTransactionStore(JsonDataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * 加载快照并重放日志
+     * @param username 用户名
+     * @return 当前完整的交易列表
+     */
+    @Override
+    public List<Transaction> loadTransactions(String username) {
+        List<Transaction> snapshot = dataManager.loadCollection(
+                SNAPSHOT_FILE, new TypeToken<List<Transaction>>() {}, username);
+        Map<String, Transaction> byId = new LinkedHashMap<>();
+        if (snapshot != null) {
+            snapshot.forEach(t -> byId.put(t.getId(), t));
+        }
+
+        int[] replayed = new int[1];
+        Path journal = journalPath(username);
+        if (Files.exists(journal)) {
+            try {
+                readJournal(journal, record -> {
+                    apply(byId, record);
+                    replayed[0]++;
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("Load Fail: " + JOURNAL_FILE, e);
+            }
+        }
+        journalSizes.put(username, replayed[0]);
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * 记录一批变更：追加到日志，必要时压缩为快照
+     * @param username 用户名
+     * @param upserted 新增或修改的交易
+     * @param deletedIds 被删除的交易ID
+     * @param all 变更后的完整交易集合（仅在压缩时读取）
+     */
+    @Override
+    public void recordChanges(String username, Collection<Transaction> upserted,
+                              Collection<String> deletedIds, Collection<Transaction> all) {
+        int size = journalSizes.getOrDefault(username, 0) + upserted.size() + deletedIds.size();
+        if (size > COMPACT_THRESHOLD) {
+            saveTransactions(username, all);
+            return;
+        }
+
+        StringBuilder records = new StringBuilder();
+        for (Transaction t : upserted) {
+            records.append(gson.toJson(new JournalRecord(OP_PUT, t.getId(), t))).append('\n');
+        }
+        for (String id : deletedIds) {
+            records.append(gson.toJson(new JournalRecord(OP_DELETE, id, null))).append('\n');
+        }
+        try {
+            DurableFiles.append(journalPath(username), records.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Save failed: " + JOURNAL_FILE, e);
+        }
+        journalSizes.put(username, size);
+    }
+
+    /**
+     * 写入完整快照并清空日志
+     * @param username 用户名
+     * @param transactions 完整交易集合
+     */
+    @Override
+    public void saveTransactions(String username, Collection<Transaction> transactions) {
+        // 先写快照再清日志：中途崩溃时重放的 PUT/DELETE 是幂等的
+        dataManager.save(SNAPSHOT_FILE, new ArrayList<>(transactions), username);
+        try {
+            DurableFiles.delete(journalPath(username));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete file: " + JOURNAL_FILE, e);
+        }
+        journalSizes.put(username, 0);
+    }
+
+    private void apply(Map<String, Transaction> byId, JournalRecord record) {
+        if (OP_PUT.equals(record.op) && record.transaction != null) {
+            // 与内存中的主键索引一致：修改原位替换，新增追加到末尾
+            byId.put(record.id, record.transaction);
+        } else if (OP_DELETE.equals(record.op)) {
+            byId.remove(record.id);
+        }
+    }
+
+    /**
+     * 截掉日志尾部崩溃时残留的半行记录，之后追加的记录才能被重放
+     * @return 是否截断了文件
+     */
+    static boolean repairJournal(Path journal) throws IOException {
+        return readJournal(journal, record -> {});
+    }
+
+    /**
+     * 按顺序读取日志记录。崩溃时可能残留半行记录（没有换行或无法解析），
+     * 从这一行起截掉并刷盘，否则之后追加的记录跟在损坏的行后面，再也不会被重放
+     * @return 是否截断了文件
+     */
+    private static boolean readJournal(Path journal, Consumer<JournalRecord> sink) throws IOException {
+        // 日志达到 COMPACT_THRESHOLD 条就会压缩，整体读入即可
+        byte[] bytes = Files.readAllBytes(journal);
+        int valid = 0;
+        for (int start = 0; start < bytes.length; ) {
+            int end = start;
+            while (end < bytes.length && bytes[end] != '\n') {
+                end++;
+            }
+            if (end == bytes.length) {
+                break; // 没有换行的最后一行是未写完的记录
+            }
+            String line = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            if (!line.trim().isEmpty()) {
+                JournalRecord record;
+                try {
+                    record = gson.fromJson(line, JournalRecord.class);
+                } catch (JsonParseException e) {
+                    break;
+                }
+                if (record == null) {
+                    break;
+                }
+                sink.accept(record);
+            }
+            start = end + 1;
+            valid = start;
+        }
+        if (valid == bytes.length) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        return true;
+    }
+
+    private Path journalPath(String username) {
+        return Paths.get(dataManager.getUserDataPath(username, JOURNAL_FILE));
+    }
+
+    /**
+     * 日志记录
+     */
+    private static class JournalRecord {
+        private String op;
+        private String id;
+        private Transaction transaction;
+
+        JournalRecord(String op, String id, Transaction transaction) {
+            this.op = op;
+            this.id = id;
+            this.transaction = transaction;
+        }
+    }
+}
@@ -3,30 +3,45 @@ package com.personalfinance.storage;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.personalfinance.model.Budget;
 import com.personalfinance.model.User;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
-public class JsonDataManager {
-    private static final String DATA_DIR = "data/";
+public class JsonDataManager implements UserStore, BudgetStore, DocumentStore {
+    public static final String DEFAULT_DATA_DIR = "data/";
     private static final String USERS_FILE = "users.json";
+    private static final String BUDGETS_FILE = "budgets.json";
     private static final Gson gson = new GsonBuilder()
             .setDateFormat("yyyy-MM-dd")
             .setPrettyPrinting()
             .create();
 
 
-    static {
+    private final String dataDir;
+
+    public JsonDataManager() {
+        this(DEFAULT_DATA_DIR);
+    }
+
+    /**
+     * @param dataDir 数据根目录，其下为 users.json 和每个用户的子目录
+     */
+    public JsonDataManager(String dataDir) {
+        this.dataDir = dataDir.endsWith("/") ? dataDir : dataDir + "/";
         try {
-            Files.createDirectories(Paths.get(DATA_DIR));
+            Files.createDirectories(Paths.get(this.dataDir));
         } catch (IOException e) {
             throw new RuntimeException("Unable to create data directory", e);
         }
@@ -35,24 +50,21 @@ public class JsonDataManager {
 
     //获取用户特定数据路径
     public String getUserDataPath(String username, String filename) {
-        return DATA_DIR + username + "/" + filename;
+        return dataDir + username + "/" + filename;
     }
 
+    @Override
     public List<User> loadUsers() {
         return loadCollection(USERS_FILE, new TypeToken<List<User>>() {});
     }
 
+    @Override
     public void saveUsers(List<User> users) {
         save(USERS_FILE, users);
     }
 
     public <T> void save(String filename, T data) {
-        Path path = Paths.get(DATA_DIR + filename);
-        try (Writer writer = Files.newBufferedWriter(path)) {
-            gson.toJson(data, writer);
-        } catch (IOException e) {
-            throw new RuntimeException("Save failed: " + filename, e);
-        }
+        write(Paths.get(dataDir + filename), filename, data);
     }
 
     /**
@@ -62,15 +74,25 @@ public class JsonDataManager {
      * @param <T> 对象类型
      */
     public <T> void save(String filename, T data,String username) {
-        Path userDir = Paths.get(DATA_DIR + username);
+        Path userDir = Paths.get(dataDir + username);
         try {
             Files.createDirectories(userDir);
         } catch (IOException e) {
             throw new RuntimeException("无法创建用户数据目录", e);
         }
-        Path path = Paths.get(getUserDataPath(username, filename));
-        try (Writer writer = Files.newBufferedWriter(path)) {
-            gson.toJson(data, writer);
+        write(Paths.get(getUserDataPath(username, filename)), filename, data);
+    }
+
+    /**
+     * 原子替换，写入中途崩溃不会留下半个文件，见 {@link DurableFiles}
+     */
+    private static void write(Path path, String filename, Object data) {
+        try {
+            DurableFiles.write(path, out -> {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                gson.toJson(data, writer);
+                writer.flush();
+            });
         } catch (IOException e) {
             throw new RuntimeException("Save failed: " + filename, e);
         }
@@ -84,7 +106,7 @@ public class JsonDataManager {
      * @return 加载的集合，如果文件不存在返回空集合
      */
     public <T> T loadCollection(String filename, TypeToken<T> typeToken) {
-        Path path = Paths.get(DATA_DIR + filename);
+        Path path = Paths.get(dataDir + filename);
         if (!Files.exists(path)) {
             // 检查是否是 List 类型
             if (List.class.isAssignableFrom(typeToken.getRawType())) {
@@ -138,13 +160,45 @@ public class JsonDataManager {
         }
     }
 
+    @Override
+    public List<Budget> loadBudgets(String username) {
+        return loadCollection(BUDGETS_FILE, new TypeToken<List<Budget>>() {}, username);
+    }
+
+    @Override
+    public void saveBudgets(String username, Collection<Budget> budgets) {
+        save(BUDGETS_FILE, new ArrayList<>(budgets), username);
+    }
+
+    @Override
+    public <T> T loadDocument(String username, String name, Class<T> type) {
+        if (!Files.exists(Paths.get(getUserDataPath(username, name)))) {
+            return null;
+        }
+        return loadCollection(name, TypeToken.get(type), username);
+    }
+
+    @Override
+    public void saveDocument(String username, String name, Object document) {
+        save(name, document, username);
+    }
+
+    @Override
+    public void deleteDocument(String username, String name) {
+        try {
+            DurableFiles.delete(Paths.get(getUserDataPath(username, name)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to delete file: " + name, e);
+        }
+    }
+
     /**
      * 检查数据文件是否存在
      * @param filename 文件名
      * @return 是否存在
      */
     public boolean exists(String filename) {
-        return Files.exists(Paths.get(DATA_DIR + filename));
+        return Files.exists(Paths.get(dataDir + filename));
     }
 
     /**
@@ -153,7 +207,7 @@ public class JsonDataManager {
      */
     public void delete(String filename) {
         try {
-            Files.deleteIfExists(Paths.get(DATA_DIR + filename));
+            DurableFiles.delete(Paths.get(dataDir + filename));
         } catch (IOException e) {
             throw new RuntimeException("Failed to delete file: " + filename, e);
         }
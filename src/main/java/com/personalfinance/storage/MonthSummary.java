@@ -0,0 +1,126 @@
+package com.personalfinance.storage;
+
+import com.personalfinance.model.Transaction;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个月交易的汇总：笔数、按 (分类, 类型) 的金额与笔数，以及已分类交易的内容校验和
+ * <p>
+ * 按月分区的存储在清单中为每个月保存一份，调用方不加载分区也能得到全部历史的合计；
+ * 校验和与分类模型的算法相同，用来判断保存的模型是否与历史一致。
+ */
+public class MonthSummary {
+    private int count;
+    private long categorized;
+    private long checksum;
+    private List<Total> totals = new ArrayList<>();
+
+    /**
+     * 汇总一个月的交易
+     */
+    public static MonthSummary of(Collection<Transaction> transactions) {
+        MonthSummary summary = new MonthSummary();
+        Map<String, Total> byKey = new LinkedHashMap<>();
+        for (Transaction t : transactions) {
+            summary.count++;
+            if (t.getCategory() != null) {
+                summary.categorized++;
+                summary.checksum += sampleHash(t.getDescription(), t.getType(), t.getAmount(), t.getCategory());
+            }
+            if (t.getType() == null || t.getAmount() == null) {
+                continue;
+            }
+            Total total = byKey.computeIfAbsent(t.getCategory() + '\u0000' + t.getType(),
+                    k -> new Total(t.getCategory(), t.getType()));
+            total.amount = total.amount.add(t.getAmount());
+            total.count++;
+        }
+        summary.totals.addAll(byKey.values());
+        return summary;
+    }
+
+    /**
+     * 一条已分类交易对校验和的贡献；没有分类的交易贡献为 0
+     */
+    public static long sampleHash(String description, String type, BigDecimal amount, String category) {
+        if (category == null) {
+            return 0;
+        }
+        String amountText = amount == null ? null : amount.stripTrailingZeros().toPlainString();
+        long hash = 0xcbf29ce484222325L;
+        for (String field : new String[]{description, type, amountText, category}) {
+            if (field != null) {
+                for (int i = 0; i < field.length(); i++) {
+                    hash = (hash ^ field.charAt(i)) * 0x100000001b3L;
+                }
+            }
+            hash = (hash ^ 0x1f) * 0x100000001b3L; // 字段分隔，null 与空串也不同
+            hash = (hash ^ (field == null ? 0 : 1)) * 0x100000001b3L;
+        }
+        // 再混合一次，使各样本的哈希相加后仍然分布均匀
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 有分类的交易笔数
+     */
+    public long getCategorized() {
+        return categorized;
+    }
+
+    /**
+     * 有分类的交易的 {@link #sampleHash} 之和
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public List<Total> getTotals() {
+        return Collections.unmodifiableList(totals);
+    }
+
+    /**
+     * 一个 (分类, 类型) 的合计，分类可以为 null
+     */
+    public static class Total {
+        private String category;
+        private String type;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+
+        Total(String category, String type) {
+            this.category = category;
+            this.type = type;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
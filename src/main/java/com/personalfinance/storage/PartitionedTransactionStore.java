@@ -0,0 +1,305 @@
+package com.personalfinance.storage;
+
+import com.google.gson.reflect.TypeToken;
+import com.personalfinance.model.Transaction;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * 按月分区的交易存储
+ * <p>
+ * 每个用户的交易按日期所在月份写入 {@code transactions/YYYY-MM.json}，
+ * {@code transactions/manifest.json} 记录有哪些月份及每个月的汇总（{@link MonthSummary}）。
+ * 调用方读清单得到全部历史的合计，只加载需要的月份（{@link #loadRange}）；增删改只重写受影响的月份，
+ * 写入耗时与该月的交易数有关，与历史总量无关。
+ * <p>
+ * 首次加载时如果只有旧的 {@code transactions.json}（及日志），会转换为分区格式；旧文件保留不动。
+ */
+public class PartitionedTransactionStore implements TransactionStore {
+    public static final String PARTITION_DIR = "transactions";
+    public static final String MANIFEST_FILE = "manifest.json";
+
+    private static final int MANIFEST_VERSION = 2; // 版本 1 的清单只有笔数，读取时补上汇总
+
+    private final JsonDataManager dataManager;
+    // 用户 -> 已加载的分区：月份 -> (交易ID -> 交易)，保持插入顺序
+    private final Map<String, NavigableMap<YearMonth, Map<String, Transaction>>> loaded = new HashMap<>();
+    // 用户 -> 已加载交易所在的月份，修改日期或删除时据此找到原分区
+    private final Map<String, Map<String, YearMonth>> locations = new HashMap<>();
+    // 用户 -> 清单：月份 -> 汇总
+    private final Map<String, NavigableMap<YearMonth, MonthSummary>> manifests = new HashMap<>();
+
+    public PartitionedTransactionStore(JsonDataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * 加载全部分区
+     */
+    @Override
+    public List<Transaction> loadTransactions(String username) {
+        discardCache(username);
+        NavigableMap<YearMonth, MonthSummary> manifest = manifest(username);
+        if (manifest.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return loadRange(username, manifest.firstKey(), manifest.lastKey());
+    }
+
+    /**
+     * 读清单得到各月份的汇总，不加载分区
+     */
+    @Override
+    public NavigableMap<YearMonth, MonthSummary> loadSummaries(String username) {
+        discardCache(username);
+        return new TreeMap<>(manifest(username));
+    }
+
+    // 重新加载时丢弃缓存，以磁盘为准
+    private void discardCache(String username) {
+        loaded.remove(username);
+        locations.remove(username);
+        manifests.remove(username);
+    }
+
+    /**
+     * 有数据的月份，按时间顺序
+     */
+    public List<YearMonth> listPartitions(String username) {
+        return new ArrayList<>(manifest(username).keySet());
+    }
+
+    /**
+     * 某个月的交易笔数，读清单即可，不加载分区
+     */
+    public int getPartitionSize(String username, YearMonth month) {
+        MonthSummary summary = manifest(username).get(month);
+        return summary == null ? 0 : summary.getCount();
+    }
+
+    /**
+     * 只加载 [from, to] 内的月份，已加载的分区不再读盘
+     * @return 这些月份的交易，按月份顺序
+     */
+    @Override
+    public List<Transaction> loadRange(String username, YearMonth from, YearMonth to) {
+        List<Transaction> result = new ArrayList<>();
+        for (YearMonth month : manifest(username).subMap(from, true, to, true).keySet()) {
+            result.addAll(partition(username, month).values());
+        }
+        return result;
+    }
+
+    /**
+     * 只重写受影响的月份：新增/修改的交易所在月份，以及被修改日期或删除的交易原来所在的月份
+     */
+    @Override
+    public void recordChanges(String username, Collection<Transaction> upserted,
+                              Collection<String> deletedIds, Collection<Transaction> all) {
+        Map<String, YearMonth> located = locations.computeIfAbsent(username, u -> new HashMap<>());
+        Set<YearMonth> dirty = new TreeSet<>();
+        for (String id : deletedIds) {
+            YearMonth month = located.remove(id);
+            if (month != null) {
+                partition(username, month).remove(id);
+                dirty.add(month);
+            }
+        }
+        for (Transaction t : upserted) {
+            YearMonth month = monthOf(t);
+            YearMonth previous = located.get(t.getId());
+            if (previous != null && !previous.equals(month)) {
+                partition(username, previous).remove(t.getId());
+                dirty.add(previous);
+            }
+            partition(username, month).put(t.getId(), t);
+            located.put(t.getId(), month);
+            dirty.add(month);
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        dirty.forEach(month -> writePartition(username, month));
+        writeManifest(username);
+    }
+
+    /**
+     * 按月份整体重写，删除不再有数据的分区
+     */
+    @Override
+    public void saveTransactions(String username, Collection<Transaction> transactions) {
+        NavigableMap<YearMonth, Map<String, Transaction>> partitions = new TreeMap<>();
+        Map<String, YearMonth> located = new HashMap<>();
+        for (Transaction t : transactions) {
+            YearMonth month = monthOf(t);
+            partitions.computeIfAbsent(month, m -> new LinkedHashMap<>()).put(t.getId(), t);
+            located.put(t.getId(), month);
+        }
+        // 不再有数据的月份以空分区写入，即删除文件
+        for (YearMonth month : new ArrayList<>(manifest(username).keySet())) {
+            partitions.putIfAbsent(month, new LinkedHashMap<>());
+        }
+
+        loaded.put(username, partitions);
+        locations.put(username, located);
+        new ArrayList<>(partitions.keySet()).forEach(month -> writePartition(username, month));
+        writeManifest(username);
+    }
+
+    private Map<String, Transaction> partition(String username, YearMonth month) {
+        return loaded.computeIfAbsent(username, u -> new TreeMap<>()).computeIfAbsent(month, m -> {
+            Map<String, Transaction> byId = new LinkedHashMap<>();
+            if (manifest(username).containsKey(m)) {
+                List<Transaction> stored = dataManager.loadCollection(
+                        partitionFile(m), new TypeToken<List<Transaction>>() {}, username);
+                Map<String, YearMonth> located = locations.computeIfAbsent(username, u -> new HashMap<>());
+                for (Transaction t : stored) {
+                    byId.put(t.getId(), t);
+                    located.put(t.getId(), m);
+                }
+            }
+            return byId;
+        });
+    }
+
+    /**
+     * 写入一个分区并更新清单中的汇总；分区为空时删除文件
+     */
+    private void writePartition(String username, YearMonth month) {
+        Map<String, Transaction> byId = partition(username, month);
+        if (byId.isEmpty()) {
+            try {
+                DurableFiles.delete(Paths.get(dataManager.getUserDataPath(username, partitionFile(month))));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to delete file: " + partitionFile(month), e);
+            }
+            manifest(username).remove(month);
+            loaded.get(username).remove(month);
+            return;
+        }
+        createPartitionDir(username);
+        dataManager.save(partitionFile(month), new ArrayList<>(byId.values()), username);
+        manifest(username).put(month, MonthSummary.of(byId.values()));
+    }
+
+    private void writeManifest(String username) {
+        Manifest manifest = new Manifest();
+        manifest.version = MANIFEST_VERSION;
+        manifest(username).forEach((month, summary) -> manifest.partitions.add(new Entry(month.toString(), summary)));
+        createPartitionDir(username);
+        dataManager.save(PARTITION_DIR + "/" + MANIFEST_FILE, manifest, username);
+    }
+
+    /**
+     * 读取清单；没有分区时从旧格式转换。清单与分区文件不一致时（写清单前中断）按分区文件修正
+     */
+    private NavigableMap<YearMonth, MonthSummary> manifest(String username) {
+        NavigableMap<YearMonth, MonthSummary> cached = manifests.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        NavigableMap<YearMonth, MonthSummary> months = new TreeMap<>();
+        manifests.put(username, months);
+
+        Path dir = Paths.get(dataManager.getUserDataPath(username, PARTITION_DIR));
+        Path manifestPath = dir.resolve(MANIFEST_FILE);
+        List<Path> partitionFiles = new ArrayList<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "????-??.json")) {
+                files.forEach(partitionFiles::add);
+            } catch (IOException e) {
+                throw new RuntimeException("Load Fail: " + PARTITION_DIR, e);
+            }
+        }
+        boolean repaired = false;
+        if (Files.exists(manifestPath)) {
+            Manifest stored = dataManager.loadCollection(
+                    PARTITION_DIR + "/" + MANIFEST_FILE, new TypeToken<Manifest>() {}, username);
+            for (Entry entry : stored.partitions) {
+                months.put(YearMonth.parse(entry.month), entry.summary);
+            }
+            // 删除分区后、写清单前中断时，清单中会留下已不存在的月份
+            repaired = months.keySet().removeIf(m -> !Files.exists(dir.resolve(m + ".json")));
+        } else if (partitionFiles.isEmpty()) {
+            migrateLegacy(username);
+            return months;
+        } else {
+            // 清单丢失（例如损坏后被恢复检查移走），按分区文件重建
+            repaired = true;
+        }
+
+        for (Path file : partitionFiles) {
+            String name = file.getFileName().toString();
+            YearMonth month = YearMonth.parse(name.substring(0, name.length() - ".json".length()));
+            if (!months.containsKey(month)) {
+                months.put(month, null); // 先登记，partition() 才会读盘，汇总在下面补上
+                repaired = true;
+            }
+        }
+        for (Map.Entry<YearMonth, MonthSummary> entry : months.entrySet()) {
+            if (entry.getValue() == null) {
+                entry.setValue(MonthSummary.of(partition(username, entry.getKey()).values()));
+                repaired = true;
+            }
+        }
+        if (repaired) {
+            writeManifest(username);
+        }
+        return months;
+    }
+
+    private void migrateLegacy(String username) {
+        boolean hasLegacy = Files.exists(Paths.get(dataManager.getUserDataPath(username, JournaledTransactionStore.SNAPSHOT_FILE)))
+                || Files.exists(Paths.get(dataManager.getUserDataPath(username, JournaledTransactionStore.JOURNAL_FILE)));
+        if (hasLegacy) {
+            saveTransactions(username, new JournaledTransactionStore(dataManager).loadTransactions(username));
+        }
+    }
+
+    private void createPartitionDir(String username) {
+        try {
+            Files.createDirectories(Paths.get(dataManager.getUserDataPath(username, PARTITION_DIR)));
+        } catch (IOException e) {
+            throw new RuntimeException("无法创建用户数据目录", e);
+        }
+    }
+
+    private static String partitionFile(YearMonth month) {
+        return PARTITION_DIR + "/" + month + ".json";
+    }
+
+    private static YearMonth monthOf(Transaction t) {
+        if (t.getDate() == null) {
+            throw new IllegalArgumentException("Missing date in transaction " + t.getId());
+        }
+        return YearMonth.from(Instant.ofEpochMilli(t.getDate().getTime()).atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * 清单文件
+     */
+    private static class Manifest {
+        private int version;
+        private List<Entry> partitions = new ArrayList<>();
+    }
+
+    private static class Entry {
+        private String month;
+        private int count;
+        private MonthSummary summary; // 版本 1 的清单没有
+
+        Entry(String month, MonthSummary summary) {
+            this.month = month;
+            this.count = summary.getCount();
+            this.summary = summary;
+        }
+    }
+}
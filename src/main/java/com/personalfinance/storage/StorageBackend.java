@@ -0,0 +1,70 @@
+package com.personalfinance.storage;
+
+import java.util.function.Consumer;
+
+/**
+ * 一套存储实现：交易、预算、用户和附属文档
+ * <p>
+ * 由 {@link StorageFactory} 在启动时按配置创建，控制器只依赖这里的接口。
+ */
+public class StorageBackend {
+    private final TransactionStore transactionStore;
+    private final BudgetStore budgetStore;
+    private final UserStore userStore;
+    private final DocumentStore documentStore;
+    private StorageRecovery.Report recoveryReport = new StorageRecovery.Report();
+
+    public StorageBackend(TransactionStore transactionStore, BudgetStore budgetStore,
+                          UserStore userStore, DocumentStore documentStore) {
+        this.transactionStore = transactionStore;
+        this.budgetStore = budgetStore;
+        this.userStore = userStore;
+        this.documentStore = documentStore;
+    }
+
+    public TransactionStore getTransactionStore() {
+        return transactionStore;
+    }
+
+    public BudgetStore getBudgetStore() {
+        return budgetStore;
+    }
+
+    public UserStore getUserStore() {
+        return userStore;
+    }
+
+    public DocumentStore getDocumentStore() {
+        return documentStore;
+    }
+
+    /**
+     * 打开数据目录时的恢复检查结果，不需要检查的存储返回空报告
+     */
+    public StorageRecovery.Report getRecoveryReport() {
+        return recoveryReport;
+    }
+
+    void setRecoveryReport(StorageRecovery.Report recoveryReport) {
+        this.recoveryReport = recoveryReport;
+    }
+
+    /**
+     * 持久化屏障：返回时之前的保存都已写入。同步写入的存储无需处理
+     */
+    public void flush() {
+    }
+
+    /**
+     * 设置后台写入失败时的回调。同步写入的存储直接把异常抛给调用方，不会调用它
+     */
+    public void setFailureHandler(Consumer<RuntimeException> handler) {
+    }
+
+    /**
+     * 写入未完成的数据并释放后台资源，之后不再使用
+     */
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,73 @@
+package com.personalfinance.storage;
+
+import java.nio.file.Paths;
+
+/**
+ * 按名称创建存储实现
+ * <p>
+ * 启动时由系统属性选择：{@code -Dfinance.storage=partitioned|journal|binary|memory}（默认 partitioned），
+ * {@code -Dfinance.dataDir=...} 指定数据目录（默认 data/）。
+ * 旧的属性名 {@code finance.transactionStore} 仍然有效。
+ * 默认启用延迟写入（{@link WriteBehindStorage}），{@code -Dfinance.writeBehind=false} 关闭。
+ * 除 memory 外，预算、用户和附属文档都以 JSON 文件保存，只有交易的存储格式不同。
+ * 打开数据目录前先运行 {@link StorageRecovery}，修复上次崩溃留下的半成品，
+ * 结果由 {@link StorageBackend#getRecoveryReport()} 交给界面提示用户。
+ */
+public class StorageFactory {
+    public static final String STORAGE_PROPERTY = "finance.storage";
+    public static final String DATA_DIR_PROPERTY = "finance.dataDir";
+    public static final String WRITE_BEHIND_PROPERTY = "finance.writeBehind";
+    private static final String LEGACY_STORAGE_PROPERTY = "finance.transactionStore";
+
+    public static final String PARTITIONED = "partitioned";
+    public static final String JOURNAL = "journal";
+    public static final String BINARY = "binary";
+    public static final String MEMORY = "memory";
+
+    private StorageFactory() {}
+
+    /**
+     * 按系统属性创建
+     */
+    public static StorageBackend fromSystemProperties() {
+        String kind = System.getProperty(STORAGE_PROPERTY, System.getProperty(LEGACY_STORAGE_PROPERTY, PARTITIONED));
+        StorageBackend storage = create(kind, System.getProperty(DATA_DIR_PROPERTY, JsonDataManager.DEFAULT_DATA_DIR));
+        if (MEMORY.equals(kind) || !Boolean.parseBoolean(System.getProperty(WRITE_BEHIND_PROPERTY, "true"))) {
+            return storage;
+        }
+        return new WriteBehindStorage(storage);
+    }
+
+    /**
+     * @param kind 存储类型
+     * @param dataDir 数据目录，memory 时忽略；打开前先做恢复检查
+     */
+    public static StorageBackend create(String kind, String dataDir) {
+        if (MEMORY.equals(kind)) {
+            InMemoryStorage memory = new InMemoryStorage();
+            return new StorageBackend(memory, memory, memory, memory);
+        }
+        StorageRecovery.Report recovery = StorageRecovery.recover(Paths.get(dataDir));
+        if (!recovery.isClean()) {
+            System.err.println("Storage recovery: " + recovery);
+        }
+        JsonDataManager dataManager = new JsonDataManager(dataDir);
+        TransactionStore transactions;
+        switch (kind) {
+            case PARTITIONED:
+                transactions = new PartitionedTransactionStore(dataManager);
+                break;
+            case JOURNAL:
+                transactions = new JournaledTransactionStore(dataManager);
+                break;
+            case BINARY:
+                transactions = new BinaryTransactionStore(dataManager);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage: " + kind);
+        }
+        StorageBackend backend = new StorageBackend(transactions, dataManager, dataManager, dataManager);
+        backend.setRecoveryReport(recovery);
+        return backend;
+    }
+}
@@ -0,0 +1,147 @@
+package com.personalfinance.storage;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 启动时的恢复检查：修复上次运行中途崩溃留下的半成品
+ * <p>
+ * <ul>
+ *   <li>删除未完成替换的临时文件（{@code *.tmp}），原文件保持旧内容</li>
+ *   <li>截掉交易日志尾部的半行记录</li>
+ *   <li>校验 JSON 文件；无法解析的文件（旧版本直接覆盖写入时崩溃）改名为 {@code *.corrupt} 留存，
+ *       不再阻止启动。分区清单被移走后会按分区文件重建。用户列表 {@code users.json} 不会被移走，
+ *       只记入报告，由界面提示用户</li>
+ * </ul>
+ * 现在所有 JSON 文件都经 {@link DurableFiles} 原子替换，不会再出现写了一半的文件，
+ * 所以完整校验一次后在数据目录写入 {@link #CHECKED_MARKER}，之后启动只处理临时文件和日志，
+ * 不再解析全部历史数据。
+ */
+public class StorageRecovery {
+    public static final String CORRUPT_SUFFIX = ".corrupt";
+    public static final String CHECKED_MARKER = ".json-checked";
+    private static final String USERS_FILE = "users.json";
+
+    private StorageRecovery() {}
+
+    /**
+     * 检查结果
+     */
+    public static class Report {
+        private final List<Path> removedTempFiles = new ArrayList<>();
+        private final List<Path> truncatedJournals = new ArrayList<>();
+        private final List<Path> quarantinedFiles = new ArrayList<>();
+        private final List<Path> unreadableFiles = new ArrayList<>();
+
+        public List<Path> getRemovedTempFiles() {
+            return removedTempFiles;
+        }
+
+        public List<Path> getTruncatedJournals() {
+            return truncatedJournals;
+        }
+
+        public List<Path> getQuarantinedFiles() {
+            return quarantinedFiles;
+        }
+
+        /**
+         * 无法解析但不能移走的文件（用户列表），需要用户从备份恢复
+         */
+        public List<Path> getUnreadableFiles() {
+            return unreadableFiles;
+        }
+
+        public boolean isClean() {
+            return removedTempFiles.isEmpty() && truncatedJournals.isEmpty() && quarantinedFiles.isEmpty()
+                    && unreadableFiles.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "removed " + removedTempFiles.size() + " temp file(s), truncated "
+                    + truncatedJournals.size() + " journal(s), quarantined " + join(quarantinedFiles)
+                    + ", unreadable " + join(unreadableFiles);
+        }
+
+        private static String join(List<Path> paths) {
+            return paths.stream().map(Path::toString).collect(Collectors.joining(", ", "[", "]"));
+        }
+    }
+
+    /**
+     * 检查并修复数据目录
+     * @param dataDir 数据根目录，不存在时直接返回
+     */
+    public static Report recover(Path dataDir) {
+        Report report = new Report();
+        if (!Files.isDirectory(dataDir)) {
+            return report;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dataDir)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Load Fail: " + dataDir, e);
+        }
+
+        Path marker = dataDir.resolve(CHECKED_MARKER);
+        boolean checkJson = !Files.exists(marker);
+        Path users = dataDir.resolve(USERS_FILE);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                if (name.endsWith(DurableFiles.TEMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    report.removedTempFiles.add(file);
+                } else if (name.equals(JournaledTransactionStore.JOURNAL_FILE)) {
+                    if (JournaledTransactionStore.repairJournal(file)) {
+                        report.truncatedJournals.add(file);
+                    }
+                } else if (checkJson && name.endsWith(".json") && !isValidJson(file)) {
+                    if (file.equals(users)) {
+                        // 移走用户列表等于删除所有账号，保留原文件
+                        report.unreadableFiles.add(file);
+                    } else {
+                        Path corrupt = file.resolveSibling(name + CORRUPT_SUFFIX);
+                        Files.move(file, corrupt, StandardCopyOption.REPLACE_EXISTING);
+                        report.quarantinedFiles.add(file);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Recovery failed: " + file, e);
+            }
+        }
+        // 用户列表修复之前每次启动都重新检查
+        if (checkJson && report.unreadableFiles.isEmpty()) {
+            try {
+                DurableFiles.write(marker, out -> out.write(new byte[0]));
+            } catch (IOException e) {
+                throw new RuntimeException("Save failed: " + CHECKED_MARKER, e);
+            }
+        }
+        return report;
+    }
+
+    // 空文件也算损坏：旧的写入方式在截断后、写入前崩溃会留下空文件
+    private static boolean isValidJson(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            JsonElement element = JsonParser.parseReader(reader);
+            return !element.isJsonNull();
+        } catch (JsonParseException | CharacterCodingException e) {
+            return false;
+        }
+    }
+}
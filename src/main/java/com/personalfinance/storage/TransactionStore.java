@@ -0,0 +1,67 @@
+package com.personalfinance.storage;
+
+import com.personalfinance.model.Transaction;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+
+/**
+ * 交易存储
+ */
+public interface TransactionStore {
+    /**
+     * 加载用户的全部交易
+     * @param username 用户名
+     */
+    List<Transaction> loadTransactions(String username);
+
+    /**
+     * 记录一批变更
+     * @param username 用户名
+     * @param upserted 新增或修改的交易
+     * @param deletedIds 被删除的交易ID
+     * @param all 变更后的完整交易集合；调用方按月加载时（见 {@link #loadSummaries}）只含已加载的部分，
+     *            提供月份汇总的实现不应依赖该参数
+     */
+    void recordChanges(String username, Collection<Transaction> upserted,
+                       Collection<String> deletedIds, Collection<Transaction> all);
+
+    /**
+     * 整体覆盖写入
+     * @param username 用户名
+     * @param transactions 完整交易集合
+     */
+    void saveTransactions(String username, Collection<Transaction> transactions);
+
+    /**
+     * 各月份的汇总，按时间顺序；调用方据此得到全部历史的合计，只加载需要的月份（{@link #loadRange}）。
+     * 不支持按月加载的实现返回 null，调用方应改用 {@link #loadTransactions}
+     * @param username 用户名
+     */
+    default NavigableMap<YearMonth, MonthSummary> loadSummaries(String username) {
+        return null;
+    }
+
+    /**
+     * 加载 [from, to] 内各月份的交易，默认从全部交易中筛选
+     * @param username 用户名
+     */
+    default List<Transaction> loadRange(String username, YearMonth from, YearMonth to) {
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction t : loadTransactions(username)) {
+            if (t.getDate() == null) {
+                continue;
+            }
+            YearMonth month = YearMonth.from(Instant.ofEpochMilli(t.getDate().getTime()).atZone(ZoneId.systemDefault()));
+            if (!month.isBefore(from) && !month.isAfter(to)) {
+                result.add(t);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.personalfinance.storage;
+
+import com.personalfinance.model.User;
+
+import java.util.List;
+
+/**
+ * 用户账号存储
+ */
+public interface UserStore {
+    /**
+     * 加载全部用户，没有数据时返回空列表
+     */
+    List<User> loadUsers();
+
+    /**
+     * 整体覆盖写入全部用户
+     */
+    void saveUsers(List<User> users);
+}
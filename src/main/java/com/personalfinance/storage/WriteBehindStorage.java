@@ -0,0 +1,465 @@
+package com.personalfinance.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.personalfinance.model.Budget;
+import com.personalfinance.model.Transaction;
+import com.personalfinance.model.User;
+
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 延迟写入：保存只在内存中标记为待写，由后台线程合并写入下层存储
+ * <p>
+ * 第一次标记后等待 {@link #FLUSH_DELAY_MS}（可在构造时指定），期间的连续修改合并为一次写入：
+ * 同一笔交易的多次修改只写最后一次，先增后删的交易不再写入。
+ * 调用方线程只复制本次保存的交易，界面上的编辑不再等待磁盘。
+ * <p>
+ * {@link #flush()} 是持久化屏障：返回时之前的所有保存都已写入下层存储。
+ * 加载前会先写入待写数据；进程退出时由关闭钩子写入，退出登录时由控制器调用 {@link #close()}。
+ * 写入失败时待写数据保留，稍后重试，{@link #flush()} 会把异常抛给调用方。
+ * 后台写入失败时通知 {@link #setFailureHandler} 设置的回调（连续失败只通知一次），
+ * 在再次写入成功之前 {@link #getLastFailure()} 返回该异常。
+ */
+public class WriteBehindStorage extends StorageBackend {
+    public static final long FLUSH_DELAY_MS = 200;
+    private static final long RETRY_DELAY_MS = 2000;
+
+    // 附属文档在调用方线程转换为 JSON 树，后台线程不再读取可变对象（例如正在学习的分类模型）
+    private static final Gson gson = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd")
+            .create();
+
+    private final StorageBackend delegate;
+    private final long flushDelayMs;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread shutdownHook = new Thread(this::flushQuietly, "write-behind-shutdown");
+
+    // 待写数据，受 pendingLock 保护
+    private final Object pendingLock = new Object();
+    private Pending pending = new Pending();
+    private boolean scheduled;
+    // 保证写入按顺序进行，后台写入与 flush() 不会交错
+    private final Object flushLock = new Object();
+    // 尚未恢复的写入失败，写入成功后清除
+    private volatile RuntimeException lastFailure;
+    private volatile Consumer<RuntimeException> failureHandler;
+
+    public WriteBehindStorage(StorageBackend delegate) {
+        this(delegate, FLUSH_DELAY_MS);
+    }
+
+    /**
+     * @param flushDelayMs 第一次修改后等待多久再写入
+     */
+    public WriteBehindStorage(StorageBackend delegate, long flushDelayMs) {
+        this(delegate, flushDelayMs, new Stores());
+    }
+
+    private WriteBehindStorage(StorageBackend delegate, long flushDelayMs, Stores stores) {
+        super(stores, stores, stores, stores);
+        this.delegate = delegate;
+        this.flushDelayMs = flushDelayMs;
+        stores.owner = this;
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * 立即写入全部待写数据
+     */
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            Pending batch;
+            synchronized (pendingLock) {
+                batch = pending;
+                pending = new Pending();
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                // 一批待写数据作为一组提交，共用一轮刷盘
+                DurableFiles.group(() -> batch.writeTo(delegate));
+            } catch (RuntimeException e) {
+                // 整批放回队列（各项写入都可以重复执行），之后的修改优先
+                synchronized (pendingLock) {
+                    batch.mergeNewer(pending);
+                    pending = batch;
+                }
+                schedule(RETRY_DELAY_MS);
+                throw e;
+            }
+            lastFailure = null;
+        }
+        delegate.flush();
+    }
+
+    @Override
+    public StorageRecovery.Report getRecoveryReport() {
+        return delegate.getRecoveryReport();
+    }
+
+    /**
+     * 后台写入失败时的回调，在后台线程上调用
+     */
+    @Override
+    public void setFailureHandler(Consumer<RuntimeException> handler) {
+        this.failureHandler = handler;
+    }
+
+    /**
+     * 最近一次写入失败的异常；之后已写入成功时返回 null
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * 写入待写数据并停止后台线程
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            executor.shutdown();
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // 已经在关闭过程中
+            }
+            delegate.close();
+        }
+    }
+
+    // 后台写入：没有调用方可以接收异常，记下并通知回调
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            boolean first = lastFailure == null;
+            lastFailure = e;
+            Consumer<RuntimeException> handler = failureHandler;
+            if (handler == null) {
+                System.err.println("Write-behind flush failed: " + e.getMessage());
+            } else if (first) {
+                handler.accept(e);
+            }
+        }
+    }
+
+    private void markDirty() {
+        synchronized (pendingLock) {
+            if (!scheduled) {
+                schedule(flushDelayMs);
+            }
+        }
+    }
+
+    private void schedule(long delayMs) {
+        synchronized (pendingLock) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            scheduled = true;
+            executor.schedule(() -> {
+                synchronized (pendingLock) {
+                    scheduled = false;
+                }
+                flushQuietly();
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 对外提供的存储：保存写入待写队列，加载前先写入
+     */
+    private static class Stores implements TransactionStore, BudgetStore, UserStore, DocumentStore {
+        private WriteBehindStorage owner;
+
+        @Override
+        public List<Transaction> loadTransactions(String username) {
+            owner.flush();
+            return owner.delegate.getTransactionStore().loadTransactions(username);
+        }
+
+        @Override
+        public NavigableMap<YearMonth, MonthSummary> loadSummaries(String username) {
+            owner.flush();
+            return owner.delegate.getTransactionStore().loadSummaries(username);
+        }
+
+        @Override
+        public List<Transaction> loadRange(String username, YearMonth from, YearMonth to) {
+            owner.flush();
+            return owner.delegate.getTransactionStore().loadRange(username, from, to);
+        }
+
+        @Override
+        public void recordChanges(String username, Collection<Transaction> upserted,
+                                  Collection<String> deletedIds, Collection<Transaction> all) {
+            synchronized (owner.pendingLock) {
+                // 完整集合 all 不保存，需要时在后台线程上重新得到
+                owner.pending.transactions(username).record(upserted, deletedIds);
+            }
+            owner.markDirty();
+        }
+
+        @Override
+        public void saveTransactions(String username, Collection<Transaction> transactions) {
+            synchronized (owner.pendingLock) {
+                owner.pending.transactions(username).replace(transactions);
+            }
+            owner.markDirty();
+        }
+
+        @Override
+        public List<Budget> loadBudgets(String username) {
+            owner.flush();
+            return owner.delegate.getBudgetStore().loadBudgets(username);
+        }
+
+        @Override
+        public void saveBudgets(String username, Collection<Budget> budgets) {
+            List<Budget> copy = new ArrayList<>(budgets);
+            synchronized (owner.pendingLock) {
+                owner.pending.budgets.put(username, copy);
+            }
+            owner.markDirty();
+        }
+
+        @Override
+        public List<User> loadUsers() {
+            owner.flush();
+            return owner.delegate.getUserStore().loadUsers();
+        }
+
+        @Override
+        public void saveUsers(List<User> users) {
+            List<User> copy = new ArrayList<>(users);
+            synchronized (owner.pendingLock) {
+                owner.pending.users = copy;
+            }
+            owner.markDirty();
+        }
+
+        @Override
+        public <T> T loadDocument(String username, String name, Class<T> type) {
+            owner.flush();
+            return owner.delegate.getDocumentStore().loadDocument(username, name, type);
+        }
+
+        @Override
+        public void saveDocument(String username, String name, Object document) {
+            JsonElement tree = gson.toJsonTree(document);
+            synchronized (owner.pendingLock) {
+                owner.pending.documents.put(new DocumentKey(username, name), tree);
+            }
+            owner.markDirty();
+        }
+
+        @Override
+        public void deleteDocument(String username, String name) {
+            synchronized (owner.pendingLock) {
+                owner.pending.documents.put(new DocumentKey(username, name), null);
+            }
+            owner.markDirty();
+        }
+    }
+
+    /**
+     * 一批待写数据
+     */
+    private static class Pending {
+        private final Map<String, PendingTransactions> transactions = new LinkedHashMap<>();
+        private final Map<String, List<Budget>> budgets = new LinkedHashMap<>();
+        private final Map<DocumentKey, JsonElement> documents = new LinkedHashMap<>(); // 值为 null 表示删除
+        private List<User> users;
+
+        PendingTransactions transactions(String username) {
+            return transactions.computeIfAbsent(username, u -> new PendingTransactions());
+        }
+
+        boolean isEmpty() {
+            return transactions.isEmpty() && budgets.isEmpty() && documents.isEmpty() && users == null;
+        }
+
+        void writeTo(StorageBackend target) {
+            if (users != null) {
+                target.getUserStore().saveUsers(users);
+            }
+            transactions.forEach((username, changes) -> changes.writeTo(target.getTransactionStore(), username));
+            budgets.forEach((username, list) -> target.getBudgetStore().saveBudgets(username, list));
+            documents.forEach((key, tree) -> {
+                if (tree == null) {
+                    target.getDocumentStore().deleteDocument(key.username, key.name);
+                } else {
+                    target.getDocumentStore().saveDocument(key.username, key.name, tree);
+                }
+            });
+        }
+
+        /**
+         * 把之后产生的待写数据合并进来（写入失败后重新排队时使用），newer 的内容优先
+         */
+        void mergeNewer(Pending newer) {
+            newer.transactions.forEach((username, changes) -> transactions(username).mergeNewer(changes));
+            budgets.putAll(newer.budgets);
+            documents.putAll(newer.documents);
+            if (newer.users != null) {
+                users = newer.users;
+            }
+        }
+    }
+
+    /**
+     * 一个用户合并后的交易变更
+     * <p>
+     * 增量变更只保存变更本身（调用方线程上的开销与历史规模无关），不保存调用方的完整集合：
+     * 那是界面正在修改的活动对象。下层存储确实需要完整集合时（例如日志压缩、二进制整体重写），
+     * 在后台线程上由下层已写入的数据加上本批变更得到。
+     */
+    private static class PendingTransactions {
+        private Map<String, Transaction> all;  // 非 null 表示整体重写，按原顺序保存副本
+        private final Map<String, Transaction> upserted = new LinkedHashMap<>();
+        private final Set<String> deletedIds = new LinkedHashSet<>();
+
+        void record(Collection<Transaction> upserts, Collection<String> deletes) {
+            for (String id : deletes) {
+                upserted.remove(id);
+                deletedIds.add(id);
+                if (all != null) {
+                    all.remove(id);
+                }
+            }
+            for (Transaction t : upserts) {
+                Transaction copy = copy(t);
+                deletedIds.remove(t.getId());
+                upserted.put(t.getId(), copy);
+                if (all != null) {
+                    all.put(t.getId(), copy); // 已有的原位替换，新增的追加到末尾
+                }
+            }
+        }
+
+        void replace(Collection<Transaction> transactions) {
+            upserted.clear();
+            deletedIds.clear();
+            all = new LinkedHashMap<>();
+            transactions.forEach(t -> all.put(t.getId(), copy(t)));
+        }
+
+        void writeTo(TransactionStore store, String username) {
+            if (all != null) {
+                store.saveTransactions(username, new ArrayList<>(all.values()));
+                return;
+            }
+            store.recordChanges(username, upserted.values(), deletedIds,
+                    new MergedHistory(store, username, upserted, deletedIds));
+        }
+
+        void mergeNewer(PendingTransactions newer) {
+            if (newer.all != null) {
+                all = newer.all;
+                upserted.clear();
+                deletedIds.clear();
+                return;
+            }
+            record(newer.upserted.values(), newer.deletedIds);
+        }
+
+        /**
+         * 保存时的副本：界面会原位修改交易对象，写入的应是调用保存那一刻的内容
+         */
+        private static Transaction copy(Transaction t) {
+            Transaction copy = new Transaction();
+            copy.setId(t.getId());
+            copy.setAmount(t.getAmount());
+            copy.setCategory(t.getCategory());
+            if (t.getType() != null) {
+                copy.setType(t.getType());
+            }
+            copy.setDate(t.getDate() == null ? null : new Date(t.getDate().getTime()));
+            copy.setDescription(t.getDescription());
+            copy.setAccount(t.getAccount());
+            copy.setRecurring(t.isRecurring());
+            return copy;
+        }
+    }
+
+    /**
+     * 变更后的完整集合：下层存储中已有的交易加上本批变更，第一次访问时才加载
+     */
+    private static class MergedHistory extends AbstractCollection<Transaction> {
+        private final TransactionStore store;
+        private final String username;
+        private final Map<String, Transaction> upserted;
+        private final Set<String> deletedIds;
+        private List<Transaction> merged;
+
+        MergedHistory(TransactionStore store, String username,
+                      Map<String, Transaction> upserted, Set<String> deletedIds) {
+            this.store = store;
+            this.username = username;
+            this.upserted = upserted;
+            this.deletedIds = deletedIds;
+        }
+
+        private List<Transaction> merged() {
+            if (merged == null) {
+                // 与控制器中的顺序一致：修改原位替换，新增追加到末尾
+                Map<String, Transaction> byId = new LinkedHashMap<>();
+                store.loadTransactions(username).forEach(t -> byId.put(t.getId(), t));
+                deletedIds.forEach(byId::remove);
+                byId.putAll(upserted);
+                merged = new ArrayList<>(byId.values());
+            }
+            return merged;
+        }
+
+        @Override
+        public Iterator<Transaction> iterator() {
+            return merged().iterator();
+        }
+
+        @Override
+        public int size() {
+            return merged().size();
+        }
+    }
+
+    private static class DocumentKey {
+        private final String username;
+        private final String name;
+
+        DocumentKey(String username, String name) {
+            this.username = username;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DocumentKey)) {
+                return false;
+            }
+            DocumentKey other = (DocumentKey) o;
+            return username.equals(other.username) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(username, name);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import com.personalfinance.view.panel.TransactionPanel;
 import com.personalfinance.view.panel.UserProfilePanel;
 
 import javax.swing.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class MainFrame extends JFrame {
     private final FinanceController controller;
@@ -24,6 +26,26 @@ public class MainFrame extends JFrame {
         setTitle("Personal Financial Management System");
         setSize(1400, 768);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // 关闭窗口退出前写入尚未落盘的修改（包括分类模型）
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    controller.close();
+                } catch (RuntimeException ex) {
+                    JOptionPane.showMessageDialog(MainFrame.this,
+                            "Failed to save changes: " + ex.getMessage(),
+                            "Save Failed",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+        // 后台保存失败时提示用户，修改仍在内存中并会自动重试
+        controller.setStorageFailureHandler(ex -> SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(this,
+                        "Failed to save changes, retrying in the background: " + ex.getMessage(),
+                        "Save Failed",
+                        JOptionPane.ERROR_MESSAGE)));
         setLocationRelativeTo(null);
 
         // 设置应用图标
@@ -47,8 +69,12 @@ public class MainFrame extends JFrame {
             if (tabbedPane.getSelectedComponent() == dashboardPanel) {
                 dashboardPanel.refreshData(); // 切换到仪表盘时刷新
             }
+            if (tabbedPane.getSelectedComponent() == transactionPanel) {
+                transactionPanel.refreshData(); // 交易列表在第一次打开时才加载
+            }
             if (tabbedPane.getSelectedComponent() == analysisPanel) {
                 analysisPanel.refreshData(); // 切换到分析页时刷新
+                analysisPanel.refreshAiAnalysisData();
             }
         });
 
@@ -96,6 +122,8 @@ public class MainFrame extends JFrame {
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
+            // 写入尚未落盘的修改，新的会话会重新从存储加载
+            controller.close();
             dispose();
             new MainSystem().startApplication();
         }
@@ -0,0 +1,100 @@
+package com.personalfinance.view.component;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 输入框的异步分类推荐
+ * <p>
+ * 连续输入在短时间窗口内合并为一次匹配，匹配在后台线程执行，
+ * 新的输入会取消尚未完成的旧任务，只有最新一次的结果会在事件线程上应用。
+ */
+public class CategorySuggester {
+    private static final int DEBOUNCE_MILLIS = 250;
+
+    // 所有推荐共用一个后台线程，保证匹配按提交顺序执行
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "category-suggester");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JTextComponent field;
+    private final Function<String, String> matcher;
+    private final Consumer<String> onSuggestion;
+    private final Timer debounceTimer;
+    // 请求代数，只在事件线程上读写
+    private long generation;
+    private Future<?> pending;
+
+    /**
+     * @param field 监听的输入框
+     * @param matcher 根据描述返回分类，在后台线程调用，返回 null 表示无推荐
+     * @param onSuggestion 在事件线程上接收推荐结果
+     */
+    public CategorySuggester(JTextComponent field, Function<String, String> matcher, Consumer<String> onSuggestion) {
+        this.field = field;
+        this.matcher = matcher;
+        this.onSuggestion = onSuggestion;
+        this.debounceTimer = new Timer(DEBOUNCE_MILLIS, e -> submit());
+        this.debounceTimer.setRepeats(false);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                schedule();
+            }
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                schedule();
+            }
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                schedule();
+            }
+        });
+    }
+
+    /**
+     * 输入变化时重新计时，并使已提交的结果失效
+     */
+    private void schedule() {
+        generation++;
+        cancelPending();
+        debounceTimer.restart();
+    }
+
+    private void submit() {
+        String description = field.getText().trim();
+        if (description.isEmpty()) {
+            return;
+        }
+        long requested = ++generation;
+        cancelPending();
+        pending = EXECUTOR.submit(() -> {
+            String category = matcher.apply(description);
+            if (category != null && !Thread.currentThread().isInterrupted()) {
+                SwingUtilities.invokeLater(() -> {
+                    // 结果返回前又有新的输入，丢弃过期结果
+                    if (requested == generation) {
+                        onSuggestion.accept(category);
+                    }
+                });
+            }
+        });
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+}
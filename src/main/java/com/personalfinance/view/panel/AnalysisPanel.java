@@ -44,14 +44,19 @@ public class AnalysisPanel extends JPanel {
         refreshData(); // 初始加载数据
     }
 
+    /**
+     * 刷新图表和汇总，数据取自控制器的预聚合结果
+     */
     public void refreshData() {
         refreshCategoryChart();
         refreshMonthlyTrendChart();
         refreshBudgetChart();
         refreshSummaryPanels();
-        refreshAiAnalysisData();
     }
 
+    /**
+     * 重新生成分析报告；报告要遍历全部交易（可能加载较早的月份），只在切换到分析页时调用
+     */
     public void refreshAiAnalysisData(){
         analysisReport.setText(controller.getAIAnalyzer().getSpendingHabitsReport());
     }
@@ -68,7 +73,7 @@ public class AnalysisPanel extends JPanel {
         // 3. 预算分析
         tabbedPane.addTab("Budget Analysis", createBudgetAnalysisPanel());
 
-        analysisReport = new JTextArea(controller.getAIAnalyzer().getSpendingHabitsReport());
+        analysisReport = new JTextArea();
         analysisReport.setEditable(false);
         tabbedPane.addTab("AI Analysis", new JScrollPane(analysisReport));
 
@@ -1,15 +1,18 @@
 package com.personalfinance.view.panel;
 
 import com.personalfinance.controller.FileParser;
+import com.personalfinance.controller.FileParserRegistry;
 import com.personalfinance.controller.FinanceController;
-import com.personalfinance.controller.TxtFileParser;
+import com.personalfinance.controller.ImportReport;
 import com.personalfinance.model.Transaction;
 import com.personalfinance.view.MainFrame;
 import com.personalfinance.view.component.CategoryComboBox;
+import com.personalfinance.view.component.CategorySuggester;
 import com.personalfinance.view.component.CurrencyTextField;
 import com.personalfinance.view.component.MyDatePicker;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -18,6 +21,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -27,6 +31,8 @@ public class TransactionPanel extends JPanel {
     private JTable transactionTable;
     private TransactionTableModel tableModel;
     private CategoryComboBox categoryCombo;
+    private static final int MAX_SHOWN_DIAGNOSTICS = 10;
+    private final FileParserRegistry parserRegistry = new FileParserRegistry();
 
     public TransactionPanel(FinanceController controller) {
         this.controller = controller;
@@ -100,32 +106,10 @@ public class TransactionPanel extends JPanel {
         gbc.gridx = 0; gbc.gridy = 3;
         formPanel.add(new JLabel("Description:"), gbc);
         JTextField descField = new JTextField(20);
-        // 添加描述字段的监听器，用于智能匹配分类
-        descField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
-            @Override
-            public void changedUpdate(javax.swing.event.DocumentEvent e) {
-                matchCategory();
-            }
-            @Override
-            public void removeUpdate(javax.swing.event.DocumentEvent e) {
-                matchCategory();
-            }
-            @Override
-            public void insertUpdate(javax.swing.event.DocumentEvent e) {
-                matchCategory();
-            }
-
-            private void matchCategory() {
-                String description = descField.getText().trim();
-                if (!description.isEmpty()) {
-                    // 使用AI分析器智能匹配分类
-                    String matchedCategory = controller.getAIAnalyzer().matchCategory(description);
-                    if (matchedCategory != null) {
-                        categoryCombo.setSelectedItem(matchedCategory);
-                    }
-                }
-            }
-        });
+        // 输入描述时在后台智能匹配分类，停止输入片刻后才匹配，只应用最新结果
+        new CategorySuggester(descField,
+                description -> controller.getAIAnalyzer().matchCategory(description),
+                categoryCombo::setSelectedItem);
 
         gbc.gridx = 1; gbc.gridy = 3;
         formPanel.add(descField, gbc);
@@ -346,28 +330,38 @@ public class TransactionPanel extends JPanel {
     //导入
     private void importTransactions(ActionEvent e) {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
-            @Override
-            public boolean accept(File f) {
-                return f.isDirectory() || f.getName().toLowerCase().endsWith(".txt");
-            }
-
-            @Override
-            public String getDescription() {
-                return "Text files (*.txt)";
-            }
-        });
+        // 可选的扩展名来自已注册的解析器
+        String[] extensions = parserRegistry.getExtensions().toArray(new String[0]);
+        StringBuilder description = new StringBuilder("Statement files (");
+        for (int i = 0; i < extensions.length; i++) {
+            description.append(i == 0 ? "*." : ", *.").append(extensions[i]);
+        }
+        fileChooser.setFileFilter(new FileNameExtensionFilter(description.append(")").toString(), extensions));
 
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
             try {
-                FileParser parser = new TxtFileParser(this.controller);
-                List<Transaction> imported = parser.parse(selectedFile);
+                FileParser parser = parserRegistry.select(selectedFile, controller);
+                if (parser == null) {
+                    JOptionPane.showMessageDialog(this,
+                            "Unsupported file format: " + selectedFile.getName(),
+                            "Import Failed",
+                            JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                // 容错解析：不合法的行收集到报告中，由用户决定是否导入其余的行
+                ImportReport report = new ImportReport();
+                List<Transaction> imported = parser.parse(selectedFile, report);
+                if (report.hasErrors() && !confirmPartialImport(imported.size(), report)) {
+                    return;
+                }
                 if (!imported.isEmpty()) {
                     int count = processImportedTransactions(imported);
+                    int duplicates = imported.size() - count;
                     JOptionPane.showMessageDialog(this,
-                            "Successfully imported " + count + " transaction records",
+                            "Successfully imported " + count + " transaction records"
+                                    + (duplicates > 0 ? ", skipped " + duplicates + " already imported" : ""),
                             "Import Completed",
                             JOptionPane.INFORMATION_MESSAGE);
 
@@ -390,22 +384,50 @@ public class TransactionPanel extends JPanel {
                         "File format error: " + ex.getMessage(),
                         "Import Failed",
                         JOptionPane.ERROR_MESSAGE);
+            } catch (RuntimeException ex) {
+                JOptionPane.showMessageDialog(this,
+                        "Failed to save imported transactions: " + ex.getMessage(),
+                        "Import Failed",
+                        JOptionPane.ERROR_MESSAGE);
             }
         }
     }
 
 
-    private int processImportedTransactions(List<Transaction> imported) {
-        int count = 0;
-        for (Transaction t : imported) {
-            try {
-                controller.addTransaction(t);
-                count++;
-            } catch (Exception e) {
-                System.err.println("Import failed: " + e.getMessage());
-            }
+    /**
+     * 列出前几条错误，询问是否只导入合法的行
+     */
+    private boolean confirmPartialImport(int validCount, ImportReport report) {
+        StringBuilder message = new StringBuilder();
+        message.append(report.getErrorCount()).append(" invalid lines were skipped, ")
+                .append(validCount).append(" transactions are valid.\n\n");
+        List<ImportReport.Diagnostic> diagnostics = report.getDiagnostics();
+        int shown = Math.min(MAX_SHOWN_DIAGNOSTICS, diagnostics.size());
+        for (int i = 0; i < shown; i++) {
+            message.append(diagnostics.get(i)).append('\n');
+        }
+        if (report.getErrorCount() > shown) {
+            message.append("... and ").append(report.getErrorCount() - shown).append(" more\n");
         }
-        return count;
+        if (validCount == 0) {
+            JOptionPane.showMessageDialog(this, message.toString(), "Import Failed", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        message.append("\nImport the valid transactions?");
+        return JOptionPane.showConfirmDialog(this, message.toString(), "Import Errors",
+                JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+    }
+
+    private int processImportedTransactions(List<Transaction> imported) {
+        // 跳过已导入过的行，其余整批写入，只持久化一次
+        return controller.importTransactions(imported);
+    }
+
+    /**
+     * 重新读取交易列表，切换到本页时调用
+     */
+    public void refreshData() {
+        tableModel.refresh();
     }
 
     private void updateFormWithSelectedTransaction() {
@@ -420,9 +442,10 @@ public class TransactionPanel extends JPanel {
         private final FinanceController controller;
         private List<Transaction> transactions;
 
+        // 全部交易可能需要从存储加载较早的月份，切换到本页时才读取
         public TransactionTableModel(FinanceController controller) {
             this.controller = controller;
-            this.transactions = controller.getTransactions();
+            this.transactions = new ArrayList<>();
         }
 
         public Transaction getTransactionAt(int row) {
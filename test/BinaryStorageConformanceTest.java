@@ -0,0 +1,13 @@
+package com.test;
+
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.StorageFactory;
+
+import java.nio.file.Path;
+
+public class BinaryStorageConformanceTest extends StorageConformanceTest {
+    @Override
+    protected StorageBackend open(Path dataDir) {
+        return StorageFactory.create(StorageFactory.BINARY, dataDir.toString());
+    }
+}
@@ -1,14 +1,49 @@
 package com.test;
 
+import com.personalfinance.model.Budget;
 import com.personalfinance.model.User;
 import com.personalfinance.model.Transaction;
+import com.personalfinance.controller.FileParserRegistry;
 import com.personalfinance.controller.FinanceController;
+import com.personalfinance.controller.ImportReport;
+import com.personalfinance.controller.NaiveBayesCategorizer;
+import com.personalfinance.controller.OfxFileParser;
+import com.personalfinance.controller.ParallelTxtFileParser;
+import com.personalfinance.controller.QifFileParser;
+import com.personalfinance.controller.TxtFileParser;
+import com.personalfinance.controller.XlsFileParser;
+import com.personalfinance.storage.BinaryTransactionStore;
+import com.personalfinance.storage.DurableFiles;
+import com.personalfinance.storage.InMemoryStorage;
+import com.personalfinance.storage.JournaledTransactionStore;
+import com.personalfinance.storage.JsonDataManager;
+import com.personalfinance.storage.PartitionedTransactionStore;
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.StorageFactory;
+import com.personalfinance.storage.StorageRecovery;
+import com.personalfinance.storage.WriteBehindStorage;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,7 +52,7 @@ public class CoreFunctionalityTest {
     private FinanceController controller;
 
     @BeforeEach
-    public void setup() {
+    public void setup() throws Exception {
         controller = new FinanceController();
 
         // Simulate user login
@@ -26,6 +61,15 @@ public class CoreFunctionalityTest {
         user.setPassword("123456");
         controller.registerUser(user.getUsername(), "123456");  // Registration initialization
         controller.loginUser(user.getUsername(), "123456");     // Login initialization
+
+        // testuser's data persists between runs, so start every test from an empty history
+        controller.getTransactions().forEach(t -> controller.deleteTransaction(t.getId()));
+    }
+
+    // pending background writes must not leak into the next test
+    @AfterEach
+    public void tearDown() {
+        controller.close();
     }
 
     // 1. Test User password hashing and validation
@@ -82,4 +126,938 @@ public class CoreFunctionalityTest {
         assertEquals(new BigDecimal("500"), spending.get("Food"));
         assertEquals(new BigDecimal("100"), spending.get("Transportation"));
     }
+
+    // 7. Test FinanceController.addTransactions batch import
+    @Test
+    public void testAddTransactionsBatch() {
+        int before = controller.getTransactions().size();
+        List<Transaction> batch = Arrays.asList(
+                new Transaction(new BigDecimal("10"), "Food", "EXPENSE", new Date(), "Coffee"),
+                new Transaction(new BigDecimal("20"), "Food", "EXPENSE", new Date(), "Lunch"));
+
+        assertEquals(2, controller.addTransactions(batch));
+        assertEquals(before + 2, controller.getTransactions().size());
+        assertNotEquals(batch.get(0).getId(), batch.get(1).getId());
+
+        Transaction invalid = new Transaction(null, "Food", "EXPENSE", new Date(), "Broken");
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.addTransactions(Collections.singletonList(invalid)));
+        assertEquals(before + 2, controller.getTransactions().size());
+    }
+
+    // 8. Test FinanceController.getRecentTransactions / getTransactionsByMonth date index
+    @Test
+    public void testRecentTransactionsOrderedByDate() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DATE, 1);
+        Transaction tomorrow = new Transaction(new BigDecimal("1"), "Food", "EXPENSE", cal.getTime(), "Tomorrow");
+        cal.add(Calendar.YEAR, 1);
+        Transaction nextYear = new Transaction(new BigDecimal("2"), "Food", "EXPENSE", cal.getTime(), "Next year");
+        controller.addTransaction(tomorrow);
+        controller.addTransaction(nextYear);
+
+        List<Transaction> recent = controller.getRecentTransactions(2);
+        assertEquals(nextYear.getId(), recent.get(0).getId());
+        assertEquals(tomorrow.getId(), recent.get(1).getId());
+
+        List<Transaction> month = controller.getTransactionsByMonth(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+        assertTrue(month.contains(nextYear));
+        assertFalse(month.contains(tomorrow));
+
+        controller.deleteTransaction(nextYear.getId());
+        assertEquals(tomorrow.getId(), controller.getRecentTransactions(1).get(0).getId());
+    }
+
+    // 9. Test FinanceController.updateTransaction keeps the record in place
+    @Test
+    public void testUpdateTransactionKeepsOrder() {
+        Transaction first = new Transaction(new BigDecimal("10"), "Food", "EXPENSE", new Date(), "First");
+        Transaction second = new Transaction(new BigDecimal("20"), "Food", "EXPENSE", new Date(), "Second");
+        controller.addTransaction(first);
+        controller.addTransaction(second);
+
+        first.setCategory("Shopping");
+        controller.updateTransaction(first);
+
+        List<Transaction> all = controller.getTransactions();
+        assertEquals(2, all.size());
+        assertEquals(first.getId(), all.get(0).getId());
+        assertEquals("Shopping", all.get(0).getCategory());
+
+        assertTrue(controller.deleteTransaction(first.getId()));
+        assertFalse(controller.deleteTransaction(first.getId()));
+        assertEquals(1, controller.getTransactions().size());
+    }
+
+    // 10. Test budget spending follows add/update/delete of transactions
+    @Test
+    public void testBudgetSpendingIsMaintained() {
+        Calendar cal = Calendar.getInstance();
+        cal.add(Calendar.DATE, -1);
+        Date start = cal.getTime();
+        cal.add(Calendar.DATE, 2);
+        Budget budget = new Budget("Gifts", new BigDecimal("100"), start, cal.getTime());
+        controller.addBudget(budget);
+        try {
+            Transaction t = new Transaction(new BigDecimal("30"), "Gifts", "EXPENSE", new Date(), "Flowers");
+            controller.addTransaction(t);
+            assertEquals(0, new BigDecimal("30").compareTo(budget.getSpentAmount()));
+
+            t.setAmount(new BigDecimal("120"));
+            controller.updateTransaction(t);
+            assertTrue(budget.isOverBudget());
+
+            t.setCategory("Food");
+            controller.updateTransaction(t);
+            assertEquals(0, BigDecimal.ZERO.compareTo(budget.getSpentAmount()));
+
+            t.setCategory("Gifts");
+            controller.updateTransaction(t);
+            controller.deleteTransaction(t.getId());
+            assertEquals(0, BigDecimal.ZERO.compareTo(budget.getSpentAmount()));
+        } finally {
+            controller.deleteBudget(budget.getId());
+        }
+    }
+
+    // 11. Test materialized totals stay equal to a full recomputation
+    @Test
+    public void testAggregatesMatchRecomputation() {
+        Transaction salary = new Transaction(new BigDecimal("1000"), "Salary", "INCOME", new Date(), "Pay");
+        Transaction rent = new Transaction(new BigDecimal("400"), "Housing", "EXPENSE", new Date(), "Rent");
+        Transaction food = new Transaction(new BigDecimal("100"), "Food", "EXPENSE", new Date(), "Food");
+        controller.addTransaction(salary);
+        controller.addTransactions(Arrays.asList(rent, food));
+        assertEquals(0, new BigDecimal("500").compareTo(controller.getCurrentBalance()));
+        assertEquals(0, new BigDecimal("250").compareTo(controller.getAverageSpending()));
+
+        rent.setType("INCOME");
+        controller.updateTransaction(rent);
+        controller.deleteTransaction(food.getId());
+        assertEquals(0, new BigDecimal("1400").compareTo(controller.getTotalIncome()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(controller.getTotalSpending()));
+        assertTrue(controller.verifyAggregates());
+    }
+
+    // 12. Test month/category rollup follows edits
+    @Test
+    public void testMonthlyRollup() {
+        Calendar cal = Calendar.getInstance();
+        Transaction food = new Transaction(new BigDecimal("40"), "Food", "EXPENSE", cal.getTime(), "Dinner");
+        cal.add(Calendar.MONTH, -1);
+        Transaction old = new Transaction(new BigDecimal("60"), "Food", "EXPENSE", cal.getTime(), "Dinner");
+        controller.addTransactions(Arrays.asList(food, old));
+
+        assertEquals(0, new BigDecimal("40").compareTo(controller.getMonthlyExpense()));
+        assertEquals(0, new BigDecimal("40").compareTo(controller.getCurrentMonthCategorySpending().get("Food")));
+        assertEquals(0, new BigDecimal("100").compareTo(controller.getCategorySpending().get("Food")));
+
+        food.setDate(cal.getTime());
+        controller.updateTransaction(food);
+        Map<String, BigDecimal> trend = controller.getMonthlySpendingTrend();
+        assertEquals(12, trend.size());
+        assertEquals(0, new BigDecimal("100").compareTo(trend.values().toArray(new BigDecimal[0])[1]));
+        assertEquals(0, BigDecimal.ZERO.compareTo(controller.getMonthlyExpense()));
+    }
+
+    // 13. Test category suggestion from similar descriptions in history
+    @Test
+    public void testMatchCategoryFromHistory() {
+        controller.addTransaction(new Transaction(new BigDecimal("35"), "Health", "EXPENSE", new Date(), "Pharmacy Walgreens"));
+        controller.addTransaction(new Transaction(new BigDecimal("15"), "Health", "EXPENSE", new Date(), "walgreens vitamins"));
+        Transaction other = new Transaction(new BigDecimal("5"), "Gifts", "EXPENSE", new Date(), "walgreens card");
+        controller.addTransaction(other);
+
+        assertEquals("Health", controller.getAIAnalyzer().matchCategory("Walgreens"));
+        assertEquals("Health", controller.getAIAnalyzer().matchCategory("walgr"));
+        assertEquals("Gifts", controller.getAIAnalyzer().matchCategory("walgreens card"));
+
+        controller.deleteTransaction(other.getId());
+        assertNotEquals("Gifts", controller.getAIAnalyzer().matchCategory("walgreens card"));
+        assertEquals("Health", controller.getAIAnalyzer().matchCategory("walgreens"));
+    }
+
+    // 14. Test learned category model is persisted and reloaded on login
+    @Test
+    public void testCategoryModelPersisted() {
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            batch.add(new Transaction(new BigDecimal(20 + i), "Health", "EXPENSE", new Date(), "Zumba class " + i));
+        }
+        controller.addTransactions(batch);
+        controller.flush(); // writes are asynchronous, wait until the model is on disk
+        assertNotNull(new JsonDataManager().loadDocument(
+                "testuser", "category_model.json", NaiveBayesCategorizer.class));
+
+        FinanceController reloaded = new FinanceController();
+        reloaded.loginUser("testuser", "123456");
+        assertEquals("Health", reloaded.getAIAnalyzer().matchCategory("zumba", "EXPENSE", new BigDecimal("25")));
+    }
+
+    // 15. Test parallel import matches sequential parsing, including error line numbers
+    @Test
+    public void testParallelImport() throws Exception {
+        File file = File.createTempFile("import", ".txt");
+        file.deleteOnExit();
+        StringBuilder content = new StringBuilder("Amount,Type,Date,Description\n");
+        for (int i = 0; i < 20000; i++) {
+            content.append(i + 1).append(i % 3 == 0 ? ",Income," : ",Expense,")
+                    .append("2024-03-").append(String.format("%02d", i % 28 + 1))
+                    .append(i % 2 == 0 ? ",Lunch at cafe " : ",Taxi ride ").append(i).append('\n');
+            if (i % 500 == 0) {
+                content.append('\n');
+            }
+        }
+        Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<Transaction> sequential = new TxtFileParser(controller).parse(file);
+        List<Transaction> parallel = new ParallelTxtFileParser(controller, pool).parse(file);
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getDescription(), parallel.get(i).getDescription());
+            assertEquals(sequential.get(i).getCategory(), parallel.get(i).getCategory());
+            assertEquals(sequential.get(i).getType(), parallel.get(i).getType());
+        }
+
+        // corrupt a line near the end: both parsers must report the same line number
+        content.append("12,Expense,not-a-date,Broken\n");
+        Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+        String expected = assertThrows(IllegalArgumentException.class,
+                () -> new TxtFileParser(controller).parse(file)).getMessage();
+        String actual = assertThrows(IllegalArgumentException.class,
+                () -> new ParallelTxtFileParser(controller, pool).parse(file)).getMessage();
+        assertEquals(expected, actual);
+        pool.shutdown();
+    }
+
+    // 16. Test streaming XLSX import: shared strings, inline strings and date serials
+    @Test
+    public void testXlsxImport() throws Exception {
+        File file = File.createTempFile("import", ".xlsx");
+        file.deleteOnExit();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+            zip.write(("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                    + "<si><t>Amount</t></si><si><t>Expense</t></si><si><r><t>Taxi </t></r><r><t>home</t></r></si>"
+                    + "</sst>").getBytes("UTF-8"));
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            zip.write(("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                    + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"inlineStr\"><is><t>Type</t></is></c></row>"
+                    + "<row r=\"2\"><c r=\"A2\"><v>25.5</v></c><c r=\"B2\" t=\"s\"><v>1</v></c>"
+                    + "<c r=\"C2\"><v>45366</v></c><c r=\"D2\" t=\"s\"><v>2</v></c></row>"
+                    + "<row r=\"4\"><c r=\"A4\"><v>3000</v></c><c r=\"B4\" t=\"inlineStr\"><is><t>Income</t></is></c>"
+                    + "<c r=\"C4\" t=\"inlineStr\"><is><t>2024-03-01</t></is></c><c r=\"D4\" t=\"inlineStr\"><is><t>Salary</t></is></c></row>"
+                    + "</sheetData></worksheet>").getBytes("UTF-8"));
+        }
+
+        List<Transaction> imported = new XlsFileParser(controller).parse(file);
+        assertEquals(2, imported.size());
+        assertEquals(0, new BigDecimal("25.5").compareTo(imported.get(0).getAmount()));
+        assertEquals("EXPENSE", imported.get(0).getType());
+        assertEquals("Taxi home", imported.get(0).getDescription());
+        assertEquals("2024-03-15", new SimpleDateFormat("yyyy-MM-dd").format(imported.get(0).getDate()));
+        assertEquals("INCOME", imported.get(1).getType());
+        assertEquals("Salary", imported.get(1).getDescription());
+    }
+
+    // 17. Test CSV quoting, header-driven column mapping and custom delimiters
+    @Test
+    public void testCsvQuotingAndColumnMapping() throws Exception {
+        File file = File.createTempFile("import", ".csv");
+        file.deleteOnExit();
+        String content = "Date,Description,Category,Amount,Type,Account\r\n"
+                + "2024-05-01,\"Dinner, drinks and \"\"dessert\"\"\",Food,88.50,Expense,Visa\r\n"
+                + "\r\n"
+                + "2024-05-02,\"Refund\nfrom shop\",,12,Income,\r\n";
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+
+        List<Transaction> sequential = new TxtFileParser(controller).parse(file);
+        List<Transaction> parallel = new ParallelTxtFileParser(controller).parse(file);
+        for (List<Transaction> imported : Arrays.asList(sequential, parallel)) {
+            assertEquals(2, imported.size());
+            assertEquals("Dinner, drinks and \"dessert\"", imported.get(0).getDescription());
+            assertEquals("Food", imported.get(0).getCategory());
+            assertEquals("Visa", imported.get(0).getAccount());
+            assertEquals(0, new BigDecimal("88.50").compareTo(imported.get(0).getAmount()));
+            assertEquals("Refund\nfrom shop", imported.get(1).getDescription());
+            assertEquals("INCOME", imported.get(1).getType());
+            assertNotNull(imported.get(1).getCategory());
+        }
+
+        Files.write(file.toPath(),
+                "Amount;Type;Date;Description\n9.50;Expense;2024-05-03;Bus\n".getBytes("UTF-8"));
+        List<Transaction> semicolon = new TxtFileParser(controller, ';').parse(file);
+        assertEquals(1, semicolon.size());
+        assertEquals("Bus", semicolon.get(0).getDescription());
+    }
+
+    // 18. Test OFX (SGML and XML) and QIF statement import
+    @Test
+    public void testOfxAndQifImport() throws Exception {
+        SimpleDateFormat day = new SimpleDateFormat("yyyy-MM-dd");
+        File sgml = File.createTempFile("statement", ".ofx");
+        sgml.deleteOnExit();
+        Files.write(sgml.toPath(), ("OFXHEADER:100\nDATA:OFXSGML\nCHARSET:1252\n\n"
+                + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20240310120000[-5:EST]\n<TRNAMT>-42.10\n"
+                + "<NAME>AT&amp;T Wireless\n<MEMO>Monthly bill\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20240315\n<TRNAMT>2500.00\n<NAME>ACME PAYROLL\n</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n").getBytes("UTF-8"));
+        List<Transaction> ofx = new OfxFileParser(controller).parse(sgml);
+        assertEquals(2, ofx.size());
+        assertEquals("EXPENSE", ofx.get(0).getType());
+        assertEquals(0, new BigDecimal("42.10").compareTo(ofx.get(0).getAmount()));
+        assertEquals("AT&T Wireless - Monthly bill", ofx.get(0).getDescription());
+        assertEquals("2024-03-10", day.format(ofx.get(0).getDate()));
+        assertEquals("INCOME", ofx.get(1).getType());
+        assertNotNull(ofx.get(1).getCategory());
+
+        File xml = File.createTempFile("statement", ".ofx");
+        xml.deleteOnExit();
+        Files.write(xml.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<?OFX OFXHEADER=\"200\"?>\n"
+                + "<OFX><BANKTRANLIST><STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20240401</DTPOSTED>"
+                + "<TRNAMT>-8.5</TRNAMT><NAME>Starbucks</NAME><MEMO/></STMTTRN></BANKTRANLIST></OFX>").getBytes("UTF-8"));
+        List<Transaction> ofx2 = new OfxFileParser(controller).parse(xml);
+        assertEquals(1, ofx2.size());
+        assertEquals("Starbucks", ofx2.get(0).getDescription());
+
+        File qif = File.createTempFile("statement", ".qif");
+        qif.deleteOnExit();
+        Files.write(qif.toPath(), ("!Type:Bank\nD03/05'24\nT-1,234.50\nPLandlord\nMMarch rent\nLHousing:Rent\n^\n"
+                + "D3/6/2024\nT15.00\nPRefund\n").getBytes("UTF-8"));
+        List<Transaction> quicken = new QifFileParser(controller).parse(qif);
+        assertEquals(2, quicken.size());
+        assertEquals(0, new BigDecimal("1234.50").compareTo(quicken.get(0).getAmount()));
+        assertEquals("2024-03-05", day.format(quicken.get(0).getDate()));
+        assertEquals("Landlord - March rent", quicken.get(0).getDescription());
+        assertEquals("INCOME", quicken.get(1).getType());
+    }
+
+    // 19. Test parser registry discovery and content sniffing
+    @Test
+    public void testParserRegistry() throws Exception {
+        FileParserRegistry registry = new FileParserRegistry();
+        assertTrue(registry.getExtensions().containsAll(Arrays.asList("txt", "csv", "xlsx", "ofx", "qfx", "qif")));
+
+        File csv = File.createTempFile("statement", ".csv");
+        csv.deleteOnExit();
+        Files.write(csv.toPath(), "Amount,Type,Date,Description\n1,Expense,2024-01-01,Tea\n".getBytes("UTF-8"));
+        assertTrue(registry.select(csv, controller) instanceof ParallelTxtFileParser);
+
+        // OFX content saved with a .txt extension is recognised by its header
+        File ofx = File.createTempFile("statement", ".txt");
+        ofx.deleteOnExit();
+        Files.write(ofx.toPath(), "OFXHEADER:100\nDATA:OFXSGML\n\n<OFX>\n</OFX>\n".getBytes("UTF-8"));
+        assertTrue(registry.select(ofx, controller) instanceof OfxFileParser);
+
+        File unknown = File.createTempFile("statement", ".bin");
+        unknown.deleteOnExit();
+        Files.write(unknown.toPath(), new byte[]{0, 1, 2, 3});
+        assertNull(registry.select(unknown, controller));
+    }
+
+    // 20. Test lenient import: bad lines are reported with line and field, valid lines are kept
+    @Test
+    public void testLenientImport() throws Exception {
+        File file = File.createTempFile("import", ".txt");
+        file.deleteOnExit();
+        StringBuilder content = new StringBuilder("Amount,Type,Date,Description\n");
+        for (int i = 0; i < 20000; i++) {
+            if (i % 4000 == 10) {
+                content.append("abc,Expense,2024-03-01,Bad amount\n");
+            } else if (i % 4000 == 20) {
+                content.append("5,Expense,not-a-date,Bad date\n");
+            } else {
+                content.append(i + 1).append(",Expense,2024-03-01,Coffee ").append(i).append('\n');
+            }
+        }
+        Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+
+        ImportReport sequentialReport = new ImportReport();
+        List<Transaction> sequential = new TxtFileParser(controller).parse(file, sequentialReport);
+        assertEquals(19990, sequential.size());
+        assertEquals(10, sequentialReport.getErrorCount());
+        ImportReport.Diagnostic first = sequentialReport.getDiagnostics().get(0);
+        assertEquals(12, first.getLine()); // header is line 1, row i=10 is line 12
+        assertEquals("amount", first.getField());
+        assertEquals("date", sequentialReport.getDiagnostics().get(1).getField());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ImportReport parallelReport = new ImportReport();
+        List<Transaction> parallel = new ParallelTxtFileParser(controller, pool).parse(file, parallelReport);
+        pool.shutdown();
+        assertEquals(sequential.size(), parallel.size());
+        assertEquals(sequentialReport.getDiagnostics().toString(), parallelReport.getDiagnostics().toString());
+
+        // the report keeps only the first diagnostics but counts every error
+        ImportReport bounded = new ImportReport(3);
+        new TxtFileParser(controller).parse(file, bounded);
+        assertEquals(10, bounded.getErrorCount());
+        assertEquals(3, bounded.getDiagnostics().size());
+        assertTrue(bounded.isTruncated());
+    }
+
+    // 21. Test re-importing an overlapping statement only adds the new rows
+    @Test
+    public void testImportDeduplication() throws Exception {
+        File first = File.createTempFile("import", ".txt");
+        first.deleteOnExit();
+        Files.write(first.toPath(), ("Amount,Type,Date,Description\n"
+                + "4.50,Expense,2024-05-01,Coffee\n"
+                + "4.50,Expense,2024-05-01,Coffee\n"
+                + "30,Expense,2024-05-02,Groceries\n").getBytes("UTF-8"));
+        File overlapping = File.createTempFile("import", ".txt");
+        overlapping.deleteOnExit();
+        // same rows with different formatting, plus a third coffee and a new day
+        Files.write(overlapping.toPath(), ("Amount,Type,Date,Description\n"
+                + "4.5,Expense,2024-05-01,coffee\n"
+                + "4.50,Expense,2024-05-01,Coffee\n"
+                + "4.50,Expense,2024-05-01,Coffee \n"
+                + "30.00,Expense,2024-05-02,Groceries\n"
+                + "12,Expense,2024-05-03,Taxi\n").getBytes("UTF-8"));
+
+        int before = controller.getTransactions().size();
+        TxtFileParser parser = new TxtFileParser(controller);
+        assertEquals(3, controller.importTransactions(parser.parse(first)));
+        assertEquals(0, controller.importTransactions(parser.parse(first)));
+        assertEquals(2, controller.importTransactions(parser.parse(overlapping)));
+        assertEquals(before + 5, controller.getTransactions().size());
+
+        // fingerprints survive a reload
+        controller.loginUser("testuser", "123456");
+        assertEquals(0, controller.importTransactions(parser.parse(overlapping)));
+
+        // a deleted row is imported again, its identical twin is still skipped
+        Transaction taxi = controller.getTransactions().stream()
+                .filter(t -> "Taxi".equals(t.getDescription())).findFirst().get();
+        Transaction coffee = controller.getTransactions().stream()
+                .filter(t -> "Coffee".equals(t.getDescription())).findFirst().get();
+        controller.deleteTransaction(taxi.getId());
+        controller.deleteTransaction(coffee.getId());
+        controller.loginUser("testuser", "123456");
+        assertEquals(2, controller.importTransactions(parser.parse(overlapping)));
+        assertEquals(before + 5, controller.getTransactions().size());
+    }
+
+    // 22. Test month-partitioned storage: range loading, partition rewrites and legacy migration
+    @Test
+    public void testPartitionedTransactionStore(@TempDir Path dataDir) throws Exception {
+        JsonDataManager dataManager = new JsonDataManager(dataDir.toString());
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        Transaction jan = new Transaction(new BigDecimal("10"), "Food", Transaction.TYPE_EXPENSE, format.parse("2024-01-05"), "Lunch");
+        Transaction feb = new Transaction(new BigDecimal("20"), "Food", Transaction.TYPE_EXPENSE, format.parse("2024-02-10"), "Dinner");
+        Transaction mar = new Transaction(new BigDecimal("30"), "Transport", Transaction.TYPE_EXPENSE, format.parse("2024-03-15"), "Taxi");
+
+        PartitionedTransactionStore store = new PartitionedTransactionStore(dataManager);
+        store.saveTransactions("partitionuser", Arrays.asList(jan, feb, mar));
+        Path dir = Paths.get(dataManager.getUserDataPath("partitionuser", "transactions"));
+        assertTrue(Files.exists(dir.resolve("2024-02.json")));
+
+        // a fresh store only reads the requested month
+        PartitionedTransactionStore reader = new PartitionedTransactionStore(dataManager);
+        assertEquals(Arrays.asList(YearMonth.of(2024, 1), YearMonth.of(2024, 2), YearMonth.of(2024, 3)),
+                reader.listPartitions("partitionuser"));
+        List<Transaction> february = reader.loadRange("partitionuser", YearMonth.of(2024, 2), YearMonth.of(2024, 2));
+        assertEquals(1, february.size());
+        assertEquals("Dinner", february.get(0).getDescription());
+
+        // moving a transaction to another month rewrites both partitions and leaves the others alone
+        byte[] january = Files.readAllBytes(dir.resolve("2024-01.json"));
+        feb.setDate(format.parse("2024-03-20"));
+        store.recordChanges("partitionuser", Collections.singletonList(feb), Collections.emptyList(), Arrays.asList(jan, feb, mar));
+        assertFalse(Files.exists(dir.resolve("2024-02.json")));
+        assertArrayEquals(january, Files.readAllBytes(dir.resolve("2024-01.json")));
+        assertEquals(2, new PartitionedTransactionStore(dataManager).getPartitionSize("partitionuser", YearMonth.of(2024, 3)));
+
+        store.recordChanges("partitionuser", Collections.emptyList(), Collections.singletonList(jan.getId()), Arrays.asList(feb, mar));
+        assertEquals(2, new PartitionedTransactionStore(dataManager).loadTransactions("partitionuser").size());
+
+        // an existing single-file history is converted on first load
+        new JournaledTransactionStore(dataManager).saveTransactions("legacyuser", Arrays.asList(jan, mar));
+        List<Transaction> migrated = new PartitionedTransactionStore(dataManager).loadTransactions("legacyuser");
+        assertEquals(2, migrated.size());
+        assertEquals(2, new PartitionedTransactionStore(dataManager).listPartitions("legacyuser").size());
+    }
+
+    // 23. Test binary columnar storage round trip and conversion from transactions.json
+    @Test
+    public void testBinaryTransactionStore(@TempDir Path dataDir) throws Exception {
+        JsonDataManager dataManager = new JsonDataManager(dataDir.toString());
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        Transaction salary = new Transaction(new BigDecimal("3000.50"), "Salary", Transaction.TYPE_INCOME, format.parse("2024-03-01"), "Monthly salary");
+        salary.setRecurring(true);
+        salary.setAccount("Checking");
+        Transaction coffee = new Transaction(new BigDecimal("4.125"), null, Transaction.TYPE_EXPENSE, format.parse("2024-03-02"), "咖啡");
+        Transaction lunch = new Transaction(new BigDecimal("25"), "Food", Transaction.TYPE_EXPENSE, format.parse("2024-03-02"), "Monthly salary");
+
+        // write the legacy JSON first, the binary store converts it on first load
+        new JournaledTransactionStore(dataManager).saveTransactions("binaryuser", Arrays.asList(salary, coffee, lunch));
+        List<Transaction> loaded = new BinaryTransactionStore(dataManager).loadTransactions("binaryuser");
+        assertTrue(Files.exists(Paths.get(dataManager.getUserDataPath("binaryuser", "transactions.bin"))));
+
+        assertEquals(3, loaded.size());
+        assertEquals(salary.getId(), loaded.get(0).getId());
+        assertEquals(0, new BigDecimal("3000.50").compareTo(loaded.get(0).getAmount()));
+        assertEquals(Transaction.TYPE_INCOME, loaded.get(0).getType());
+        assertTrue(loaded.get(0).isRecurring());
+        assertEquals("Checking", loaded.get(0).getAccount());
+        assertEquals("2024-03-01", format.format(loaded.get(0).getDate()));
+        // an amount with more than two decimals is kept exactly
+        assertEquals(new BigDecimal("4.125"), loaded.get(1).getAmount());
+        assertNull(loaded.get(1).getCategory());
+        assertEquals("咖啡", loaded.get(1).getDescription());
+        assertNull(loaded.get(1).getAccount());
+        assertEquals("Food", loaded.get(2).getCategory());
+
+        // a truncated file is rejected instead of returning partial data
+        Path bin = Paths.get(dataManager.getUserDataPath("binaryuser", "transactions.bin"));
+        byte[] bytes = Files.readAllBytes(bin);
+        Files.write(bin, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(RuntimeException.class, () -> new BinaryTransactionStore(dataManager).loadTransactions("binaryuser"));
+    }
+
+    // 24. Test write-behind storage coalesces a burst of edits into one write
+    @Test
+    public void testWriteBehindCoalescesWrites() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        final List<Integer> batchSizes = new ArrayList<>();
+        InMemoryStorage memory = new InMemoryStorage() {
+            @Override
+            public synchronized void recordChanges(String username, Collection<Transaction> upserted,
+                                                   Collection<String> deletedIds, Collection<Transaction> all) {
+                writes.incrementAndGet();
+                batchSizes.add(upserted.size() + deletedIds.size());
+                super.recordChanges(username, upserted, deletedIds, all);
+            }
+        };
+        // a delay far longer than the test, so only the explicit flush writes
+        WriteBehindStorage storage = new WriteBehindStorage(
+                new StorageBackend(memory, memory, memory, memory), 60 * 60 * 1000);
+        FinanceController local = new FinanceController(storage);
+        local.registerUser("writebehind", "123456");
+        local.loginUser("writebehind", "123456");
+
+        for (int i = 0; i < 50; i++) {
+            local.addTransaction(new Transaction(new BigDecimal(i + 1), "Food", "EXPENSE", new Date(), "Snack " + i));
+        }
+        Transaction removed = local.getTransactions().get(0);
+        local.deleteTransaction(removed.getId());
+        assertEquals(0, writes.get()); // nothing written yet, the edits only touched memory
+
+        storage.flush();
+        assertEquals(1, writes.get());
+        // the deleted transaction was never written, so the batch holds 49 upserts and one delete
+        assertEquals(Collections.singletonList(50), batchSizes);
+        assertEquals(49, memory.loadTransactions("writebehind").size());
+
+        local.close();
+
+        // without an explicit flush the background thread writes after the default delay
+        WriteBehindStorage background = new WriteBehindStorage(new StorageBackend(memory, memory, memory, memory));
+        List<Transaction> all = new ArrayList<>(memory.loadTransactions("writebehind"));
+        Transaction late = new Transaction(new BigDecimal("3"), "Food", "EXPENSE", new Date(), "Late snack");
+        late.setId(UUID.randomUUID().toString());
+        all.add(late);
+        background.getTransactionStore().recordChanges("writebehind",
+                Collections.singletonList(late), Collections.emptyList(), all);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writes.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, writes.get());
+        assertEquals(50, memory.loadTransactions("writebehind").size());
+        background.close();
+    }
+
+    // 25. Test atomic saves, group commit and the startup recovery check
+    @Test
+    public void testCrashRecovery(@TempDir Path dir) throws Exception {
+        FinanceController local = new FinanceController(StorageFactory.create(
+                StorageFactory.PARTITIONED, dir.toString()));
+        local.registerUser("crashuser", "123456");
+        local.loginUser("crashuser", "123456");
+        local.addTransaction(new Transaction(new BigDecimal("12"), "Food", "EXPENSE", new Date(), "Lunch"));
+        local.addTransaction(new Transaction(new BigDecimal("900"), "Salary", "INCOME", new Date(), "Pay"));
+        local.close();
+        // saves go through a temp file that is renamed into place, nothing is left behind
+        try (Stream<Path> files = Files.walk(dir)) {
+            assertFalse(files.anyMatch(f -> f.toString().endsWith(".tmp")));
+        }
+
+        // writes in a group only become visible together when the group commits
+        Path first = dir.resolve("group/a.json");
+        Path second = dir.resolve("group/b.json");
+        DurableFiles.group(() -> {
+            try {
+                DurableFiles.write(first, out -> out.write("[1]".getBytes("UTF-8")));
+                DurableFiles.write(second, out -> out.write("[2]".getBytes("UTF-8")));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            assertFalse(Files.exists(first));
+        });
+        assertEquals("[1]", new String(Files.readAllBytes(first), "UTF-8"));
+        assertEquals("[2]", new String(Files.readAllBytes(second), "UTF-8"));
+
+        // simulate a crash: a stale temp file, a torn manifest and an empty file from an old non-atomic save
+        // (files from an older version have not been checked yet)
+        Files.delete(dir.resolve(StorageRecovery.CHECKED_MARKER));
+        Path userDir = dir.resolve("crashuser");
+        Files.write(dir.resolve("users.json.tmp"), "[{\"user".getBytes("UTF-8"));
+        Path manifest = userDir.resolve("transactions/manifest.json");
+        byte[] manifestBytes = Files.readAllBytes(manifest);
+        Files.write(manifest, Arrays.copyOf(manifestBytes, manifestBytes.length / 2));
+        Files.write(userDir.resolve("budgets.json"), new byte[0]);
+
+        StorageRecovery.Report report = StorageRecovery.recover(dir);
+        assertEquals(1, report.getRemovedTempFiles().size());
+        assertEquals(2, report.getQuarantinedFiles().size());
+        assertTrue(Files.exists(userDir.resolve("budgets.json.corrupt")));
+        assertTrue(StorageRecovery.recover(dir).isClean());
+        // once checked, later startups no longer parse every JSON file
+        assertTrue(Files.exists(dir.resolve(StorageRecovery.CHECKED_MARKER)));
+
+        // a damaged user list is reported but never moved away, and is checked again until it is fixed
+        Path users = dir.resolve("users.json");
+        byte[] usersBytes = Files.readAllBytes(users);
+        Files.delete(dir.resolve(StorageRecovery.CHECKED_MARKER));
+        Files.write(users, Arrays.copyOf(usersBytes, usersBytes.length / 2));
+        report = StorageRecovery.recover(dir);
+        assertEquals(Collections.singletonList(users), report.getUnreadableFiles());
+        assertTrue(Files.exists(users));
+        assertFalse(Files.exists(dir.resolve(StorageRecovery.CHECKED_MARKER)));
+        Files.write(users, usersBytes);
+        assertTrue(StorageRecovery.recover(dir).isClean());
+
+        // the manifest is rebuilt from the partition files, so no transactions are lost
+        local = new FinanceController(StorageFactory.create(
+                StorageFactory.PARTITIONED, dir.toString()));
+        assertTrue(local.loginUser("crashuser", "123456"));
+        assertEquals(2, local.getTransactions().size());
+        assertTrue(Files.exists(manifest));
+        local.close();
+
+        // a half-written journal record is cut off, so records appended afterwards are replayed
+        JsonDataManager dataManager = new JsonDataManager(dir.toString());
+        JournaledTransactionStore journal = new JournaledTransactionStore(dataManager);
+        Transaction coffee = new Transaction(new BigDecimal("4"), "Food", "EXPENSE", new Date(), "Coffee");
+        journal.recordChanges("journaluser", Collections.singletonList(coffee), Collections.emptyList(), Collections.singletonList(coffee));
+        Files.write(Paths.get(dataManager.getUserDataPath("journaluser", "transactions.journal")),
+                "{\"op\":\"PUT\",\"id\":\"x".getBytes("UTF-8"), StandardOpenOption.APPEND);
+        report = StorageRecovery.recover(dir);
+        assertEquals(1, report.getTruncatedJournals().size());
+
+        journal = new JournaledTransactionStore(dataManager);
+        Transaction tea = new Transaction(new BigDecimal("3"), "Food", "EXPENSE", new Date(), "Tea");
+        journal.recordChanges("journaluser", Collections.singletonList(tea), Collections.emptyList(), Arrays.asList(coffee, tea));
+        assertEquals(2, new JournaledTransactionStore(dataManager).loadTransactions("journaluser").size());
+    }
+
+    // 26. Test the category model is saved on close and invalidated by same-size changes to the history
+    @Test
+    public void testCategoryModelSavedOnCloseAndVersioned() {
+        StorageBackend memory = StorageFactory.create(
+                StorageFactory.MEMORY, null);
+        FinanceController local = new FinanceController(memory);
+        local.registerUser("modeluser", "123456");
+        local.loginUser("modeluser", "123456");
+        Transaction lunch = new Transaction(new BigDecimal("30"), "Food", "EXPENSE", new Date(), "Team lunch");
+        local.addTransaction(lunch);
+        local.addTransaction(new Transaction(new BigDecimal("12"), "Food", "EXPENSE", new Date(), "Coffee"));
+        // fewer updates than the save interval: only close() writes them
+        local.close();
+        NaiveBayesCategorizer saved = memory.getDocumentStore().loadDocument(
+                "modeluser", "category_model.json", NaiveBayesCategorizer.class);
+        assertEquals(2, saved.getDocuments());
+
+        // re-categorize a row behind the model's back: same number of samples, different content
+        List<Transaction> stored = memory.getTransactionStore().loadTransactions("modeluser");
+        Transaction changed = stored.stream().filter(t -> t.getId().equals(lunch.getId())).findFirst().get();
+        changed.setCategory("Entertainment");
+        memory.getTransactionStore().recordChanges("modeluser", Collections.singletonList(changed), Collections.emptyList(), stored);
+
+        FinanceController reloaded = new FinanceController(memory);
+        reloaded.loginUser("modeluser", "123456");
+        NaiveBayesCategorizer retrained = memory.getDocumentStore().loadDocument(
+                "modeluser", "category_model.json", NaiveBayesCategorizer.class);
+        long expected = 0;
+        for (Transaction t : stored) {
+            expected += NaiveBayesCategorizer.sampleHash(t.getDescription(), t.getType(), t.getAmount(), t.getCategory());
+        }
+        assertEquals(2, retrained.getDocuments());
+        assertNotEquals(saved.getChecksum(), retrained.getChecksum());
+        assertEquals(expected, retrained.getChecksum());
+        reloaded.close();
+    }
+
+    // 27. Test parallel import streams ordered chunks and falls back to sequential parsing at a multi-line record
+    @Test
+    public void testParallelImportStreamsInOrder() throws Exception {
+        File file = File.createTempFile("import", ".txt");
+        file.deleteOnExit();
+        StringBuilder content = new StringBuilder("Amount,Type,Date,Description\n");
+        for (int i = 0; i < 40000; i++) {
+            if (i == 5000) {
+                content.append("abc,Expense,2024-03-01,Bad amount\n");
+            } else if (i == 35000) {
+                // a quoted line break late in the file, after several segments have been parsed in parallel
+                content.append("7,Expense,2024-03-02,\"Taxi\nhome\"\n");
+            } else if (i == 38000) {
+                content.append("5,Expense,not-a-date,Bad date\n");
+            } else {
+                content.append(i + 1).append(",Expense,2024-03-01,Coffee ").append(i).append('\n');
+            }
+        }
+        Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+
+        ImportReport sequentialReport = new ImportReport();
+        List<Transaction> sequential = new TxtFileParser(controller).parse(file, sequentialReport);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ImportReport parallelReport = new ImportReport();
+        List<List<Transaction>> chunks = new ArrayList<>();
+        new ParallelTxtFileParser(controller, pool).parse(file, 777, chunks::add, parallelReport);
+        pool.shutdown();
+
+        assertEquals(39998, sequential.size());
+        assertEquals(sequentialReport.getDiagnostics().toString(), parallelReport.getDiagnostics().toString());
+        List<Transaction> parallel = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i < chunks.size() - 1) {
+                assertEquals(777, chunks.get(i).size());
+            }
+            parallel.addAll(chunks.get(i));
+        }
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getDescription(), parallel.get(i).getDescription());
+            assertEquals(sequential.get(i).getCategory(), parallel.get(i).getCategory());
+        }
+    }
+
+    // 28. Test a group commit keeps writes and deletes of the same files in call order
+    @Test
+    public void testGroupCommitKeepsOrder(@TempDir Path dir) throws Exception {
+        Path snapshot = dir.resolve("transactions.json");
+        Path journal = dir.resolve("transactions.journal");
+        Files.write(journal, "{}\n".getBytes("UTF-8"));
+        DurableFiles.group(() -> {
+            try {
+                DurableFiles.write(snapshot, out -> out.write("[1]".getBytes("UTF-8")));
+                DurableFiles.delete(journal);
+                DurableFiles.write(snapshot, out -> out.write("[2]".getBytes("UTF-8")));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals("[2]", new String(Files.readAllBytes(snapshot), "UTF-8"));
+        assertFalse(Files.exists(journal));
+
+        // a delete that fails part way through the commit must find the first snapshot already in place
+        Path busy = dir.resolve("busy");
+        Files.createDirectories(busy.resolve("child"));
+        assertThrows(RuntimeException.class, () -> DurableFiles.group(() -> {
+            try {
+                DurableFiles.write(snapshot, out -> out.write("[3]".getBytes("UTF-8")));
+                DurableFiles.delete(busy);
+                DurableFiles.write(snapshot, out -> out.write("[4]".getBytes("UTF-8")));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        assertEquals("[3]", new String(Files.readAllBytes(snapshot), "UTF-8"));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertFalse(files.anyMatch(f -> f.toString().endsWith(".tmp")));
+        }
+    }
+
+    // 29. Test a batch add learns every row but saves the category model only once
+    @Test
+    public void testBatchAddSavesModelOnce() {
+        AtomicInteger modelSaves = new AtomicInteger();
+        InMemoryStorage memory = new InMemoryStorage() {
+            @Override
+            public synchronized void saveDocument(String username, String name, Object document) {
+                if ("category_model.json".equals(name)) {
+                    modelSaves.incrementAndGet();
+                }
+                super.saveDocument(username, name, document);
+            }
+        };
+        FinanceController local = new FinanceController(new StorageBackend(memory, memory, memory, memory));
+        local.registerUser("batchuser", "123456");
+        local.loginUser("batchuser", "123456");
+        modelSaves.set(0);
+
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(new Transaction(new BigDecimal(i + 1), "Food", "EXPENSE", new Date(), "Snack " + i));
+        }
+        assertEquals(1000, local.addTransactions(batch));
+        assertEquals(1, modelSaves.get());
+        assertEquals(1000, memory.loadDocument("batchuser", "category_model.json", NaiveBayesCategorizer.class).getDocuments());
+        local.close();
+    }
+
+    // 30. Test deleting a row defers the import fingerprint save and a clean login does not reseed them
+    @Test
+    public void testFingerprintsSavedLazily() {
+        AtomicInteger fingerprintSaves = new AtomicInteger();
+        InMemoryStorage memory = new InMemoryStorage() {
+            @Override
+            public synchronized void saveDocument(String username, String name, Object document) {
+                if ("import_fingerprints.json".equals(name)) {
+                    fingerprintSaves.incrementAndGet();
+                }
+                super.saveDocument(username, name, document);
+            }
+        };
+        StorageBackend backend = new StorageBackend(memory, memory, memory, memory);
+        FinanceController local = new FinanceController(backend);
+        local.registerUser("fingerprintuser", "123456");
+        local.loginUser("fingerprintuser", "123456");
+        List<Transaction> statement = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            statement.add(new Transaction(new BigDecimal(i + 1), "Food", "EXPENSE", new Date(), "Snack " + i));
+        }
+        assertEquals(3, local.importTransactions(statement));
+        fingerprintSaves.set(0);
+
+        local.deleteTransaction(local.getTransactions().get(0).getId());
+        assertEquals(0, fingerprintSaves.get());
+        local.close();
+        assertEquals(1, fingerprintSaves.get());
+
+        // the saved table matches the history, so login uses it as is
+        FinanceController reloaded = new FinanceController(backend);
+        reloaded.loginUser("fingerprintuser", "123456");
+        reloaded.close();
+        assertEquals(1, fingerprintSaves.get());
+        List<Transaction> again = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            again.add(new Transaction(new BigDecimal(i + 1), "Food", "EXPENSE", new Date(), "Snack " + i));
+        }
+        FinanceController third = new FinanceController(backend);
+        third.loginUser("fingerprintuser", "123456");
+        assertEquals(1, third.importTransactions(again));
+        third.close();
+    }
+
+    // 31. Test parallel import splits LF, CRLF and CR files like the sequential parser
+    @Test
+    public void testParallelImportLineEndings(@TempDir Path dir) throws Exception {
+        for (String newline : new String[]{"\n", "\r\n", "\r"}) {
+            StringBuilder content = new StringBuilder("Amount,Type,Date,Description").append(newline);
+            for (int i = 0; i < 40000; i++) {
+                if (i == 30000) {
+                    content.append("abc,Expense,2024-03-01,Bad amount").append(newline);
+                } else {
+                    content.append(i + 1).append(",Expense,2024-03-01,Coffee ").append(i).append(newline);
+                }
+            }
+            File file = dir.resolve("import" + newline.length() + newline.charAt(0) + ".txt").toFile();
+            Files.write(file.toPath(), content.toString().getBytes("UTF-8"));
+
+            ImportReport sequentialReport = new ImportReport();
+            List<Transaction> sequential = new TxtFileParser(controller).parse(file, sequentialReport);
+            ForkJoinPool pool = new ForkJoinPool(4);
+            ImportReport parallelReport = new ImportReport();
+            List<Transaction> parallel = new ArrayList<>();
+            new ParallelTxtFileParser(controller, pool).parse(file, 1000, parallel::addAll, parallelReport);
+            pool.shutdown();
+
+            assertEquals(39999, sequential.size());
+            assertEquals(sequentialReport.getDiagnostics().toString(), parallelReport.getDiagnostics().toString());
+            assertEquals(sequential.size(), parallel.size());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.get(i).getDescription(), parallel.get(i).getDescription());
+            }
+        }
+    }
+
+    // 32. Test XLSX import maps columns by header and reads Chinese types like the TXT import
+    @Test
+    public void testXlsxHeaderMapping(@TempDir Path dir) throws Exception {
+        File file = dir.resolve("import.xlsx").toFile();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            zip.write(("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                    + "<row r=\"2\"><c r=\"B2\" t=\"inlineStr\"><is><t>日期</t></is></c><c r=\"C2\" t=\"inlineStr\"><is><t>备注</t></is></c>"
+                    + "<c r=\"D2\" t=\"inlineStr\"><is><t>分类</t></is></c><c r=\"E2\" t=\"inlineStr\"><is><t>金额</t></is></c>"
+                    + "<c r=\"F2\" t=\"inlineStr\"><is><t>收支</t></is></c></row>"
+                    + "<row r=\"3\"><c r=\"B3\" t=\"inlineStr\"><is><t>2024-05-01</t></is></c><c r=\"C3\" t=\"inlineStr\"><is><t>工资</t></is></c>"
+                    + "<c r=\"D3\" t=\"inlineStr\"><is><t>Salary</t></is></c><c r=\"E3\"><v>8000</v></c>"
+                    + "<c r=\"F3\" t=\"inlineStr\"><is><t>收入</t></is></c></row>"
+                    + "<row r=\"4\"><c r=\"B4\"><v>45414</v></c><c r=\"C4\" t=\"inlineStr\"><is><t>午饭</t></is></c>"
+                    + "<c r=\"F4\" t=\"inlineStr\"><is><t>支出</t></is></c></row>"
+                    + "<row r=\"5\"><c r=\"B5\"><v>45415</v></c><c r=\"E5\"><v>35</v></c>"
+                    + "<c r=\"F5\" t=\"inlineStr\"><is><t>支出</t></is></c></row>"
+                    + "</sheetData></worksheet>").getBytes("UTF-8"));
+        }
+
+        ImportReport report = new ImportReport();
+        List<Transaction> imported = new ArrayList<>();
+        new XlsFileParser(controller).parse(file, 100, imported::addAll, report);
+        assertEquals(2, imported.size());
+        assertEquals("INCOME", imported.get(0).getType());
+        assertEquals("Salary", imported.get(0).getCategory());
+        assertEquals("工资", imported.get(0).getDescription());
+        assertEquals(0, new BigDecimal("8000").compareTo(imported.get(0).getAmount()));
+        assertEquals("EXPENSE", imported.get(1).getType());
+        assertEquals("2024-05-03", new SimpleDateFormat("yyyy-MM-dd").format(imported.get(1).getDate()));
+        assertEquals(1, report.getDiagnostics().size());
+        assertTrue(report.getDiagnostics().get(0).toString().contains("column E"));
+    }
+
+    // 33. Test the category model predicts held-out rows of a synthetic labelled history
+    @Test
+    public void testCategorizerAccuracy() {
+        String[][] vocabulary = {
+                {"Food", "restaurant", "lunch", "dinner", "coffee", "pizza", "午餐", "外卖", "火锅"},
+                {"Transportation", "taxi", "metro", "bus", "uber", "fuel", "地铁", "打车", "加油"},
+                {"Shopping", "mall", "clothes", "shoes", "amazon", "jd", "淘宝", "衣服", "超市"},
+                {"Entertainment", "movie", "game", "concert", "ktv", "netflix", "电影", "游戏", "演唱会"},
+                {"Housing", "rent", "water", "electricity", "property", "房租", "水费", "电费"},
+                {"Health", "hospital", "pharmacy", "clinic", "dentist", "医院", "药店", "体检"},
+        };
+        String[] noise = {"card", "online", "weekend", "store", "pay", "order", "北京", "上海"};
+        Random random = new Random(42);
+        NaiveBayesCategorizer categorizer = new NaiveBayesCategorizer();
+        for (int i = 0; i < 4000; i++) {
+            String[] words = vocabulary[random.nextInt(vocabulary.length)];
+            categorizer.learn(words[1 + random.nextInt(words.length - 1)] + " " + noise[random.nextInt(noise.length)],
+                    "EXPENSE", BigDecimal.valueOf(1 + random.nextInt(2000)), words[0]);
+        }
+
+        int correct = 0;
+        for (int i = 0; i < 1000; i++) {
+            String[] words = vocabulary[random.nextInt(vocabulary.length)];
+            String predicted = categorizer.classify(words[1 + random.nextInt(words.length - 1)] + " "
+                    + noise[random.nextInt(noise.length)], "EXPENSE", BigDecimal.valueOf(1 + random.nextInt(2000)));
+            if (words[0].equals(predicted)) {
+                correct++;
+            }
+        }
+        assertTrue(correct >= 950, "accuracy " + correct / 10.0 + "%");
+    }
+
+    // 34. Test QIF import detects GBK and BOM-marked UTF-8 files instead of failing on non-UTF-8 bytes
+    @Test
+    public void testQifCharsetDetection(@TempDir Path dir) throws Exception {
+        String statement = "!Type:Bank\nD2024-03-05\nT-35.00\nP海底捞火锅\n^\nD2024-03-06\nT12.00\nP退款\n^\n";
+        Path gbk = dir.resolve("gbk.qif");
+        Files.write(gbk, statement.getBytes("GBK"));
+        Path bom = dir.resolve("bom.qif");
+        Files.write(bom, ("\uFEFF" + statement).getBytes("UTF-8"));
+
+        for (Path file : Arrays.asList(gbk, bom)) {
+            ImportReport report = new ImportReport();
+            List<Transaction> imported = new ArrayList<>();
+            new QifFileParser(controller).parse(file.toFile(), 100, imported::addAll, report);
+            assertFalse(report.hasErrors(), report.getDiagnostics().toString());
+            assertEquals(2, imported.size());
+            assertEquals("海底捞火锅", imported.get(0).getDescription());
+            assertEquals("退款", imported.get(1).getDescription());
+        }
+    }
 }
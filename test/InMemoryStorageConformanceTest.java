@@ -0,0 +1,19 @@
+package com.test;
+
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.StorageFactory;
+
+import java.nio.file.Path;
+
+public class InMemoryStorageConformanceTest extends StorageConformanceTest {
+    private StorageBackend backend;
+
+    // nothing survives the instance, so "reopening" hands back the same one
+    @Override
+    protected StorageBackend open(Path dataDir) {
+        if (backend == null) {
+            backend = StorageFactory.create(StorageFactory.MEMORY, null);
+        }
+        return backend;
+    }
+}
@@ -0,0 +1,47 @@
+package com.test;
+
+import com.personalfinance.model.Transaction;
+import com.personalfinance.storage.JournaledTransactionStore;
+import com.personalfinance.storage.JsonDataManager;
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.StorageFactory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalStorageConformanceTest extends StorageConformanceTest {
+    @Override
+    protected StorageBackend open(Path dataDir) {
+        return StorageFactory.create(StorageFactory.JOURNAL, dataDir.toString());
+    }
+
+    // a half-written record from a crash is cut off on load, so records appended afterwards are replayed
+    @Test
+    public void testTornJournalTailIsTruncatedOnLoad() throws Exception {
+        JsonDataManager dataManager = new JsonDataManager(dataDir.toString());
+        Transaction coffee = new Transaction(new BigDecimal("4"), "Food", Transaction.TYPE_EXPENSE, new Date(), "Coffee");
+        new JournaledTransactionStore(dataManager).recordChanges("alice",
+                Collections.singletonList(coffee), Collections.emptyList(), Collections.singletonList(coffee));
+        Path journal = Paths.get(dataManager.getUserDataPath("alice", JournaledTransactionStore.JOURNAL_FILE));
+        long intact = Files.size(journal);
+        Files.write(journal, "{\"op\":\"PUT\",\"id\":\"x".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        JournaledTransactionStore store = new JournaledTransactionStore(dataManager);
+        assertEquals(1, store.loadTransactions("alice").size());
+        assertEquals(intact, Files.size(journal));
+
+        Transaction tea = new Transaction(new BigDecimal("3"), "Food", Transaction.TYPE_EXPENSE, new Date(), "Tea");
+        store.recordChanges("alice", Collections.singletonList(tea), Collections.emptyList(), Arrays.asList(coffee, tea));
+        assertEquals(2, new JournaledTransactionStore(dataManager).loadTransactions("alice").size());
+    }
+}
@@ -0,0 +1,151 @@
+package com.test;
+
+import com.personalfinance.controller.KeywordMatcher;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The Aho-Corasick matcher must give the same answer as the keyword loop it replaced:
+ * walk the labels in priority order and return the first one with a keyword contained in the lowercased text.
+ */
+public class KeywordMatcherTest {
+
+    // the original matching loop
+    private static String containsLoop(Map<String, List<String>> keywordsByLabel, String text) {
+        if (text == null) {
+            return null;
+        }
+        String lower = text.toLowerCase();
+        for (Map.Entry<String, List<String>> entry : keywordsByLabel.entrySet()) {
+            for (String keyword : entry.getValue()) {
+                if (!keyword.isEmpty() && lower.contains(keyword.toLowerCase())) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, List<String>> keywords(Object... labelsAndKeywords) {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        for (int i = 0; i < labelsAndKeywords.length; i += 2) {
+            map.put((String) labelsAndKeywords[i], Arrays.asList((String[]) labelsAndKeywords[i + 1]));
+        }
+        return map;
+    }
+
+    private static void assertSameAsLoop(Map<String, List<String>> keywordsByLabel, String... texts) {
+        KeywordMatcher matcher = new KeywordMatcher(keywordsByLabel);
+        for (String text : texts) {
+            assertEquals(containsLoop(keywordsByLabel, text), matcher.match(text), "text: " + text);
+        }
+    }
+
+    @Test
+    public void testOverlappingKeywords() {
+        Map<String, List<String>> map = keywords(
+                "A", new String[]{"hers"},
+                "B", new String[]{"his"},
+                "C", new String[]{"she"},
+                "D", new String[]{"he"});
+        KeywordMatcher matcher = new KeywordMatcher(map);
+        // "ushers" contains she, he and hers at overlapping positions
+        assertEquals("A", matcher.match("ushers"));
+        assertEquals("C", matcher.match("ushe"));
+        assertEquals("D", matcher.match("ahem"));
+        // a keyword found only through a failure link: abcd fails at e, bc is still a match
+        KeywordMatcher nested = new KeywordMatcher(keywords("A", new String[]{"abcd"}, "B", new String[]{"bc"}));
+        assertEquals("B", nested.match("abce"));
+        assertEquals("A", nested.match("xabcd"));
+        assertSameAsLoop(map, "ushers", "ushe", "ahem", "hishers", "shhe", "h", "");
+    }
+
+    @Test
+    public void testPriorityOrder() {
+        Map<String, List<String>> map = keywords(
+                "Food", new String[]{"tea", "coffee"},
+                "Shopping", new String[]{"bubble", "mall"},
+                "Transportation", new String[]{"bus"});
+        KeywordMatcher matcher = new KeywordMatcher(map);
+        // the higher-priority label wins even when its keyword appears later in the text
+        assertEquals("Food", matcher.match("bubble tea"));
+        assertEquals("Shopping", matcher.match("bus to the mall"));
+        assertEquals("Transportation", matcher.match("bus pass"));
+        // the same keyword under two labels belongs to the first
+        KeywordMatcher duplicate = new KeywordMatcher(keywords("A", new String[]{"gift"}, "B", new String[]{"gift"}));
+        assertEquals("A", duplicate.match("gift card"));
+        assertSameAsLoop(map, "bubble tea", "bus to the mall", "bus pass", "coffee at the mall", "nothing");
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        Map<String, List<String>> map = keywords(
+                "Food", new String[]{"coffee"},
+                "Entertainment", new String[]{"Netflix"});
+        KeywordMatcher matcher = new KeywordMatcher(map);
+        assertEquals("Food", matcher.match("COFFEE Shop"));
+        assertEquals("Entertainment", matcher.match("netflix subscription"));
+        assertEquals("Entertainment", matcher.match("NETFLIX"));
+        assertSameAsLoop(map, "COFFEE Shop", "CoFfEe", "netflix subscription", "NETFLIX", "tea");
+    }
+
+    @Test
+    public void testCjkInput() {
+        Map<String, List<String>> map = keywords(
+                "餐饮", new String[]{"外卖", "火锅", "奶茶"},
+                "交通", new String[]{"地铁", "打车"},
+                "购物", new String[]{"火车票"});
+        KeywordMatcher matcher = new KeywordMatcher(map);
+        assertEquals("餐饮", matcher.match("周末火锅聚餐"));
+        assertEquals("餐饮", matcher.match("坐地铁去吃火锅"));
+        assertEquals("交通", matcher.match("打车回家"));
+        // 火车票 shares its first character with 火锅 and must not be cut short by it
+        assertEquals("购物", matcher.match("买火车票"));
+        assertNull(matcher.match("工资"));
+        assertSameAsLoop(map, "周末火锅聚餐", "坐地铁去吃火锅", "打车回家", "买火车票", "火火锅", "Lunch 外卖 12元", "工资");
+    }
+
+    @Test
+    public void testEdgeCases() {
+        Map<String, List<String>> map = keywords("A", new String[]{"", "x"});
+        KeywordMatcher matcher = new KeywordMatcher(map);
+        assertNull(matcher.match(null));
+        assertNull(matcher.match(""));
+        assertEquals("A", matcher.match("x"));
+        assertNull(new KeywordMatcher(new LinkedHashMap<>()).match("anything"));
+    }
+
+    @Test
+    public void testRandomInputsMatchContainsLoop() {
+        // a small alphabet makes overlaps and shared prefixes common
+        char[] alphabet = {'a', 'b', 'A', 'c', '火', '锅'};
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            Map<String, List<String>> map = new LinkedHashMap<>();
+            int labels = 1 + random.nextInt(5);
+            for (int l = 0; l < labels; l++) {
+                List<String> words = new ArrayList<>();
+                for (int k = random.nextInt(4); k >= 0; k--) {
+                    words.add(randomString(random, alphabet, 1 + random.nextInt(4)).toLowerCase());
+                }
+                map.put("L" + l, words);
+            }
+            String[] texts = new String[20];
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = randomString(random, alphabet, random.nextInt(12));
+            }
+            assertSameAsLoop(map, texts);
+        }
+    }
+
+    private static String randomString(Random random, char[] alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.test;
+
+import com.personalfinance.controller.FinanceController;
+import com.personalfinance.model.Transaction;
+import com.personalfinance.storage.JsonDataManager;
+import com.personalfinance.storage.MonthSummary;
+import com.personalfinance.storage.PartitionedTransactionStore;
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.StorageFactory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedStorageConformanceTest extends StorageConformanceTest {
+    @Override
+    protected StorageBackend open(Path dataDir) {
+        return StorageFactory.create(StorageFactory.PARTITIONED, dataDir.toString());
+    }
+
+    // login reads the manifest and the recent months only; older months are read when a view asks for them
+    @Test
+    public void testLoginLoadsRecentMonthsOnly() {
+        JsonDataManager dataManager = new JsonDataManager(dataDir.toString());
+        FinanceController writer = new FinanceController(
+                new StorageBackend(new PartitionedTransactionStore(dataManager), dataManager, dataManager, dataManager));
+        writer.registerUser("bob", "123456");
+        writer.loginUser("bob", "123456");
+        List<Transaction> history = new ArrayList<>();
+        for (int i = 0; i < 36; i++) {
+            LocalDate day = LocalDate.now().minusMonths(i).withDayOfMonth(1);
+            history.add(new Transaction(new BigDecimal(10), "Food", Transaction.TYPE_EXPENSE,
+                    Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()), "Lunch " + i));
+        }
+        writer.addTransactions(history);
+        writer.close();
+
+        Set<YearMonth> read = new TreeSet<>();
+        PartitionedTransactionStore store = new PartitionedTransactionStore(dataManager) {
+            @Override
+            public List<Transaction> loadRange(String username, YearMonth from, YearMonth to) {
+                for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+                    read.add(month);
+                }
+                return super.loadRange(username, from, to);
+            }
+        };
+        FinanceController reader = new FinanceController(new StorageBackend(store, dataManager, dataManager, dataManager));
+        assertTrue(reader.loginUser("bob", "123456"));
+        YearMonth now = YearMonth.now();
+        assertEquals(new TreeSet<>(Arrays.asList(now, now.minusMonths(1), now.minusMonths(2))), read);
+        assertEquals(0, new BigDecimal(360).compareTo(reader.getTotalSpending()));
+        assertEquals(3, reader.getRecentTransactions(3).size());
+        assertEquals(3, read.size());
+
+        reader.getTransactionsByMonth(now.minusMonths(30).getYear(), now.minusMonths(30).getMonthValue());
+        assertEquals(4, read.size());
+        assertEquals(36, reader.getTransactions().size());
+        assertEquals(36, read.size());
+        reader.close();
+    }
+
+    // a manifest written before month summaries existed is upgraded from the partition files
+    @Test
+    public void testVersionOneManifestGetsSummaries() throws Exception {
+        JsonDataManager dataManager = new JsonDataManager(dataDir.toString());
+        Date day = Date.from(LocalDate.of(2024, 1, 5).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        new PartitionedTransactionStore(dataManager).saveTransactions("carol", Arrays.asList(
+                new Transaction(new BigDecimal("12.5"), "Food", Transaction.TYPE_EXPENSE, day, "Lunch"),
+                new Transaction(new BigDecimal("7.5"), "Food", Transaction.TYPE_EXPENSE, day, "Coffee")));
+        Path manifest = Paths.get(dataManager.getUserDataPath("carol", "transactions/manifest.json"));
+        Files.write(manifest, "{\"version\":1,\"partitions\":[{\"month\":\"2024-01\",\"count\":2}]}".getBytes("UTF-8"));
+
+        MonthSummary summary = new PartitionedTransactionStore(dataManager).loadSummaries("carol").get(YearMonth.of(2024, 1));
+        assertEquals(2, summary.getCount());
+        assertEquals(0, new BigDecimal("20").compareTo(summary.getTotals().get(0).getAmount()));
+        assertTrue(new String(Files.readAllBytes(manifest), "UTF-8").contains("\"version\": 2"));
+    }
+}
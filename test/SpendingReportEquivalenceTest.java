@@ -0,0 +1,284 @@
+package com.test;
+
+import com.personalfinance.controller.AIAnalyzer;
+import com.personalfinance.controller.FinanceController;
+import com.personalfinance.model.Transaction;
+import com.personalfinance.storage.StorageFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The spending habits report is built from one fused scan plus the controller's rollups.
+ * These tests rebuild it with one plain loop per metric, as the analyzer originally did, and expect the same text.
+ */
+public class SpendingReportEquivalenceTest {
+    private FinanceController controller;
+    private AIAnalyzer analyzer;
+
+    @BeforeEach
+    public void setup() {
+        controller = new FinanceController(StorageFactory.create(StorageFactory.MEMORY, null));
+        controller.registerUser("report", "123456");
+        controller.loginUser("report", "123456");
+        analyzer = new AIAnalyzer(controller);
+    }
+
+    private Transaction add(String amount, String category, String type, LocalDate day, String description) {
+        Date date = Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Transaction t = new Transaction(new BigDecimal(amount), category, type, date, description);
+        controller.addTransaction(t);
+        return t;
+    }
+
+    /**
+     * Recent months for the trend, every holiday range, several transactions on one day, and two outliers
+     */
+    private void addFixedDataset() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 6; i++) {
+            LocalDate month = today.minusMonths(i).withDayOfMonth(3);
+            add("8000", "Salary", Transaction.TYPE_INCOME, month, "salary");
+            add(String.valueOf(2400 + i * 10), "Housing", Transaction.TYPE_EXPENSE, month, "rent");
+            add(String.valueOf(31 + i), "Food", Transaction.TYPE_EXPENSE, month.plusDays(1), "lunch");
+            add("12.35", "Food", Transaction.TYPE_EXPENSE, month.plusDays(1), "coffee");
+            add(String.valueOf(45 + i * 7), "Transportation", Transaction.TYPE_EXPENSE, month.plusDays(2), "taxi");
+        }
+        add("640.40", "Shopping", Transaction.TYPE_EXPENSE, today.minusMonths(1).withDayOfMonth(9), "clothes");
+        add("19.99", "Entertainment", Transaction.TYPE_EXPENSE, today.minusMonths(4).withDayOfMonth(20), "movie");
+        // holidays: several purchases in the spring festival range, one on each other holiday
+        add("188", "Food", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 1, 28), "hotpot");
+        add("320.5", "Shopping", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 2, 4), "gifts");
+        add("77", "Food", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 1, 30), "dinner");
+        add("150", "Entertainment", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 5, 3), "concert");
+        add("66.6", "Shopping", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 6, 1), "toys");
+        // the day before and after a holiday range count as normal days
+        add("25", "Food", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 1, 27), "snack");
+        add("35", "Food", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 2, 5), "snack");
+        // outliers for the anomaly section
+        add("9800", "Shopping", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 3, 14), "laptop");
+        add("7300", "Entertainment", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 8, 2), "vacation");
+    }
+
+    @Test
+    public void testReportMatchesPerMetricRecomputation() {
+        addFixedDataset();
+        String report = analyzer.getSpendingHabitsReport();
+        assertEquals(expectedReport(controller.getTransactions()), report);
+        // the dataset reaches every section that the fused scan computes
+        assertTrue(report.contains("春节period") && report.contains("劳动节period") && report.contains("儿童节period"));
+        assertTrue(report.contains("[Exception] 2025-03-14: ¥9800.00 (laptop)"));
+    }
+
+    @Test
+    public void testAnomalyThreshold() {
+        addFixedDataset();
+        List<Transaction> transactions = controller.getTransactions();
+        List<Map<String, String>> anomalies = analyzer.detectAnomalies(transactions);
+        assertEquals(expectedAnomalies(transactions), anomalies);
+        assertEquals(Arrays.asList("9800", "7300"),
+                anomalies.stream().map(a -> a.get("amount")).collect(Collectors.toList()));
+
+        // values a cent either side of mean + 2σ are classified exactly as the per-element computation does
+        List<Transaction> expenses = transactions.stream().filter(Transaction::isExpense).collect(Collectors.toList());
+        BigDecimal threshold = threshold(expenses);
+        Transaction above = new Transaction(threshold.add(new BigDecimal("0.01")), "Food", Transaction.TYPE_EXPENSE, new Date(), "above");
+        Transaction below = new Transaction(threshold.subtract(new BigDecimal("0.01")), "Food", Transaction.TYPE_EXPENSE, new Date(), "below");
+        for (Transaction probe : Arrays.asList(above, below)) {
+            List<Transaction> withProbe = new ArrayList<>(transactions);
+            withProbe.add(probe);
+            assertEquals(expectedAnomalies(withProbe), analyzer.detectAnomalies(withProbe));
+        }
+
+        // a single expense has no deviation, and incomes are ignored
+        List<Transaction> single = Collections.singletonList(
+                new Transaction(new BigDecimal("10"), "Food", Transaction.TYPE_EXPENSE, new Date(), "only"));
+        assertEquals(expectedAnomalies(single), analyzer.detectAnomalies(single));
+        assertTrue(analyzer.detectAnomalies(Collections.singletonList(
+                new Transaction(new BigDecimal("10"), "Salary", Transaction.TYPE_INCOME, new Date(), "pay"))).isEmpty());
+    }
+
+    @Test
+    public void testReportWithoutHolidayOrNormalDays() {
+        // only holiday spending: there is no normal-day average, so the holiday section is empty
+        add("100", "Food", Transaction.TYPE_EXPENSE, LocalDate.of(2025, 5, 1), "dinner");
+        add("3000", "Salary", Transaction.TYPE_INCOME, LocalDate.of(2025, 5, 2), "salary");
+        String report = analyzer.getSpendingHabitsReport();
+        assertEquals(expectedReport(controller.getTransactions()), report);
+        assertTrue(report.contains("No consumption records detected during holidays"));
+    }
+
+    // ===== straightforward recomputation, one loop per metric =====
+
+    private static Map<String, LocalDate[]> holidays() {
+        Map<String, LocalDate[]> holidays = new HashMap<>();
+        holidays.put("春节", new LocalDate[]{LocalDate.of(2025, 1, 28), LocalDate.of(2025, 2, 4)});
+        holidays.put("劳动节", new LocalDate[]{LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 5)});
+        holidays.put("儿童节", new LocalDate[]{LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 1)});
+        return holidays;
+    }
+
+    private static LocalDate day(Transaction t) {
+        return t.getDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static BigDecimal sum(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static BigDecimal threshold(List<Transaction> expenses) {
+        BigDecimal average = sum(expenses).divide(new BigDecimal(expenses.size()), 2, RoundingMode.HALF_UP);
+        BigDecimal stdDev = BigDecimal.ZERO;
+        if (expenses.size() >= 2) {
+            BigDecimal variance = expenses.stream()
+                    .map(t -> t.getAmount().subtract(average).pow(2))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add)
+                    .divide(new BigDecimal(expenses.size()), 10, RoundingMode.HALF_UP);
+            stdDev = new BigDecimal(Math.sqrt(variance.doubleValue())).setScale(2, RoundingMode.HALF_UP);
+        }
+        return average.add(stdDev.multiply(new BigDecimal(2)));
+    }
+
+    private static List<Map<String, String>> expectedAnomalies(List<Transaction> transactions) {
+        List<Transaction> expenses = transactions.stream().filter(Transaction::isExpense).collect(Collectors.toList());
+        if (expenses.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BigDecimal threshold = threshold(expenses);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        return expenses.stream()
+                .filter(t -> t.getAmount().compareTo(threshold) > 0)
+                .sorted((t1, t2) -> t2.getAmount().compareTo(t1.getAmount()))
+                .map(t -> {
+                    Map<String, String> anomaly = new HashMap<>();
+                    anomaly.put("date", format.format(t.getDate()));
+                    anomaly.put("amount", t.getAmount().toString());
+                    anomaly.put("description", t.getDescription());
+                    anomaly.put("category", t.getCategory());
+                    return anomaly;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static String money(BigDecimal amount) {
+        return "¥" + amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static double percentage(BigDecimal part, BigDecimal total) {
+        if (total.compareTo(BigDecimal.ZERO) == 0) {
+            return 0;
+        }
+        return part.divide(total, 4, RoundingMode.HALF_UP).doubleValue() * 100;
+    }
+
+    private static String expectedReport(List<Transaction> transactions) {
+        List<Transaction> expenses = transactions.stream().filter(Transaction::isExpense).collect(Collectors.toList());
+        BigDecimal totalSpending = sum(expenses);
+        BigDecimal totalIncome = sum(transactions.stream().filter(Transaction::isIncome).collect(Collectors.toList()));
+        Map<String, BigDecimal> categories = expenses.stream().collect(Collectors.groupingBy(
+                Transaction::getCategory, Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)));
+        List<Map.Entry<String, BigDecimal>> sortedCategories = categories.entrySet().stream()
+                .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
+                .collect(Collectors.toList());
+
+        Map<String, BigDecimal> trend = new TreeMap<>();
+        LocalDate now = LocalDate.now();
+        for (int i = 5; i >= 0; i--) {
+            LocalDate month = now.minusMonths(i);
+            BigDecimal total = BigDecimal.ZERO;
+            for (Transaction t : expenses) {
+                if (day(t).getYear() == month.getYear() && day(t).getMonth() == month.getMonth()) {
+                    total = total.add(t.getAmount());
+                }
+            }
+            trend.put(month.getMonthValue() + "Month", total);
+        }
+
+        StringBuilder report = new StringBuilder("=== Consumer Habit Analysis Report ===\n\n");
+        report.append("1. Main consumption categories:\n");
+        for (Map.Entry<String, BigDecimal> entry : sortedCategories) {
+            report.append(String.format(" - %s: %s (%.1f%%)\n", entry.getKey(), money(entry.getValue()),
+                    percentage(entry.getValue(), totalSpending)));
+        }
+        report.append("\n2. Analysis of holiday consumption:\n");
+        int holidayLines = 0;
+        Map<String, LocalDate[]> holidays = holidays();
+        Map<LocalDate, BigDecimal> normalDays = new HashMap<>();
+        for (Transaction t : expenses) {
+            boolean holiday = false;
+            for (LocalDate[] range : holidays.values()) {
+                holiday |= !day(t).isBefore(range[0]) && !day(t).isAfter(range[1]);
+            }
+            if (!holiday) {
+                normalDays.merge(day(t), t.getAmount(), BigDecimal::add);
+            }
+        }
+        List<BigDecimal> positiveDays = normalDays.values().stream()
+                .filter(a -> a.compareTo(BigDecimal.ZERO) > 0).collect(Collectors.toList());
+        BigDecimal normalAverage = positiveDays.isEmpty() ? BigDecimal.ZERO
+                : positiveDays.stream().reduce(BigDecimal.ZERO, BigDecimal::add)
+                        .divide(new BigDecimal(positiveDays.size()), 2, RoundingMode.HALF_UP);
+        if (normalAverage.compareTo(BigDecimal.ZERO) != 0) {
+            for (Map.Entry<String, LocalDate[]> holiday : holidays.entrySet()) {
+                List<Transaction> inRange = expenses.stream()
+                        .filter(t -> !day(t).isBefore(holiday.getValue()[0]) && !day(t).isAfter(holiday.getValue()[1]))
+                        .collect(Collectors.toList());
+                if (inRange.isEmpty()) {
+                    continue;
+                }
+                BigDecimal average = sum(inRange).divide(new BigDecimal(inRange.size()), 2, RoundingMode.HALF_UP);
+                double increase = average.subtract(normalAverage).divide(normalAverage, 4, RoundingMode.HALF_UP).doubleValue() * 100;
+                report.append(String.format(" - %speriod: Average consumption %s (Higher than usual %.1f%%)\n",
+                        holiday.getKey(), money(average), increase));
+                holidayLines++;
+            }
+        }
+        if (holidayLines == 0) {
+            report.append(" - No consumption records detected during holidays\n");
+        }
+        report.append("\n3. Monthly consumption trend:\n");
+        trend.forEach((month, amount) -> report.append(String.format(" - %s: %s\n", month, money(amount))));
+        report.append("\n4. Abnormal consumption detection:\n");
+        List<Map<String, String>> anomalies = expectedAnomalies(transactions);
+        for (Map<String, String> anomaly : anomalies) {
+            report.append(String.format(" - [Exception] %s: %s (%s)\n", anomaly.get("date"),
+                    money(new BigDecimal(anomaly.get("amount"))), anomaly.get("description")));
+        }
+        if (anomalies.isEmpty()) {
+            report.append(" - No obvious abnormal consumption detected\n");
+        }
+        report.append("\n5. Budget recommendations:\n");
+        BigDecimal savingsRate = totalIncome.compareTo(BigDecimal.ZERO) > 0
+                ? totalIncome.subtract(totalSpending).divide(totalIncome, 4, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+        String rate = savingsRate.multiply(new BigDecimal(100)).setScale(1, RoundingMode.HALF_UP) + "%";
+        if (savingsRate.compareTo(new BigDecimal("0.2")) < 0) {
+            report.append(" - The current savings rate is relatively low(" + rate + ")，It is recommended to increase the savings ratio to over 20%\n");
+        } else {
+            report.append(" - The current savings rate is good(" + rate + ")，Continue to maintain\n");
+        }
+        sortedCategories.stream().limit(3).forEach(entry -> report.append(String.format(
+                " - Main expenditure category 【%s】 accounts for%.1f%%, it is recommended to pay attention to it\n",
+                entry.getKey(), percentage(entry.getValue(), totalSpending))));
+        BigDecimal trendAverage = trend.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(new BigDecimal(trend.size()), 2, RoundingMode.HALF_UP);
+        BigDecimal trendVariance = trend.values().stream().map(v -> v.subtract(trendAverage).pow(2))
+                .reduce(BigDecimal.ZERO, BigDecimal::add).divide(new BigDecimal(trend.size()), 10, RoundingMode.HALF_UP);
+        if (new BigDecimal(Math.sqrt(trendVariance.doubleValue())).compareTo(trendAverage.multiply(new BigDecimal("0.3"))) > 0) {
+            report.append(" - Detected significant fluctuations in monthly expenses, it is recommended to balance monthly consumption!\n");
+        }
+        report.append("\n6. Next Month Spending Forecast:\n");
+        BigDecimal forecast = trend.values().stream().limit(3).reduce(BigDecimal.ZERO, BigDecimal::add)
+                .divide(new BigDecimal(3), 2, RoundingMode.HALF_UP);
+        report.append(String.format(" - %s月: %s\n", now.plusMonths(1).getMonthValue(), money(forecast)));
+        return report.toString();
+    }
+}
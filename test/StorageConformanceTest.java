@@ -0,0 +1,295 @@
+package com.test;
+
+import com.personalfinance.controller.FinanceController;
+import com.personalfinance.model.Budget;
+import com.personalfinance.model.Transaction;
+import com.personalfinance.model.User;
+import com.personalfinance.storage.MonthSummary;
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.TransactionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every storage backend must share. Each backend has a subclass that only says how to open it.
+ */
+public abstract class StorageConformanceTest {
+    @TempDir
+    Path dataDir;
+
+    private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+    private StorageBackend storage;
+
+    /**
+     * Opens the backend over dataDir. Calling it again must see everything saved through earlier instances.
+     */
+    protected abstract StorageBackend open(Path dataDir);
+
+    @BeforeEach
+    public void setup() {
+        storage = open(dataDir);
+    }
+
+    private Transaction transaction(String amount, String category, String type, String date, String description) throws Exception {
+        return new Transaction(new BigDecimal(amount), category, type, format.parse(date), description);
+    }
+
+    private Map<String, Transaction> byId(List<Transaction> transactions) {
+        Map<String, Transaction> map = new HashMap<>();
+        transactions.forEach(t -> map.put(t.getId(), t));
+        return map;
+    }
+
+    @Test
+    public void testUnknownUserIsEmpty() {
+        assertTrue(storage.getTransactionStore().loadTransactions("nobody").isEmpty());
+        assertTrue(storage.getBudgetStore().loadBudgets("nobody").isEmpty());
+        assertNull(storage.getDocumentStore().loadDocument("nobody", "model.json", Budget.class));
+        assertTrue(storage.getUserStore().loadUsers().isEmpty());
+    }
+
+    @Test
+    public void testTransactionRoundTrip() throws Exception {
+        Transaction salary = transaction("3000.50", "Salary", Transaction.TYPE_INCOME, "2024-03-01", "Monthly salary");
+        salary.setAccount("Checking");
+        salary.setRecurring(true);
+        Transaction coffee = transaction("4.5", null, Transaction.TYPE_EXPENSE, "2023-12-31", "咖啡");
+        storage.getTransactionStore().saveTransactions("alice", Arrays.asList(salary, coffee));
+
+        Map<String, Transaction> loaded = byId(open(dataDir).getTransactionStore().loadTransactions("alice"));
+        assertEquals(2, loaded.size());
+        Transaction s = loaded.get(salary.getId());
+        assertEquals(0, new BigDecimal("3000.50").compareTo(s.getAmount()));
+        assertEquals(Transaction.TYPE_INCOME, s.getType());
+        assertEquals("Salary", s.getCategory());
+        assertEquals("2024-03-01", format.format(s.getDate()));
+        assertEquals("Monthly salary", s.getDescription());
+        assertEquals("Checking", s.getAccount());
+        assertTrue(s.isRecurring());
+        Transaction c = loaded.get(coffee.getId());
+        assertNull(c.getCategory());
+        assertEquals("咖啡", c.getDescription());
+        assertEquals("2023-12-31", format.format(c.getDate()));
+    }
+
+    @Test
+    public void testRecordChanges() throws Exception {
+        TransactionStore store = storage.getTransactionStore();
+        Transaction a = transaction("10", "Food", Transaction.TYPE_EXPENSE, "2024-01-05", "Lunch");
+        Transaction b = transaction("20", "Food", Transaction.TYPE_EXPENSE, "2024-01-06", "Dinner");
+        List<Transaction> all = new ArrayList<>(Arrays.asList(a, b));
+        store.saveTransactions("alice", all);
+
+        Transaction c = transaction("30", "Transport", Transaction.TYPE_EXPENSE, "2024-02-01", "Taxi");
+        all.add(c);
+        store.recordChanges("alice", Collections.singletonList(c), Collections.emptyList(), all);
+
+        // an edit that also moves the transaction to another month
+        b.setAmount(new BigDecimal("22"));
+        b.setDate(format.parse("2024-03-10"));
+        store.recordChanges("alice", Collections.singletonList(b), Collections.emptyList(), all);
+
+        all.remove(a);
+        store.recordChanges("alice", Collections.emptyList(), Collections.singletonList(a.getId()), all);
+
+        Map<String, Transaction> loaded = byId(open(dataDir).getTransactionStore().loadTransactions("alice"));
+        assertEquals(new HashSet<>(Arrays.asList(b.getId(), c.getId())), loaded.keySet());
+        assertEquals(0, new BigDecimal("22").compareTo(loaded.get(b.getId()).getAmount()));
+        assertEquals("2024-03-10", format.format(loaded.get(b.getId()).getDate()));
+    }
+
+    @Test
+    public void testSaveReplacesHistory() throws Exception {
+        TransactionStore store = storage.getTransactionStore();
+        store.saveTransactions("alice", Arrays.asList(
+                transaction("1", "Food", Transaction.TYPE_EXPENSE, "2024-01-01", "A"),
+                transaction("2", "Food", Transaction.TYPE_EXPENSE, "2024-02-01", "B")));
+        Transaction kept = transaction("3", "Food", Transaction.TYPE_EXPENSE, "2024-02-02", "C");
+        store.saveTransactions("alice", Collections.singletonList(kept));
+
+        List<Transaction> loaded = open(dataDir).getTransactionStore().loadTransactions("alice");
+        assertEquals(1, loaded.size());
+        assertEquals(kept.getId(), loaded.get(0).getId());
+
+        store.saveTransactions("alice", Collections.emptyList());
+        assertTrue(open(dataDir).getTransactionStore().loadTransactions("alice").isEmpty());
+    }
+
+    @Test
+    public void testLoadedTransactionsAreCopies() throws Exception {
+        Transaction t = transaction("10", "Food", Transaction.TYPE_EXPENSE, "2024-01-05", "Lunch");
+        storage.getTransactionStore().saveTransactions("alice", Collections.singletonList(t));
+        t.setDescription("changed without saving");
+        storage.getTransactionStore().loadTransactions("alice").get(0).setCategory("changed without saving");
+
+        Transaction loaded = storage.getTransactionStore().loadTransactions("alice").get(0);
+        assertEquals("Lunch", loaded.getDescription());
+        assertEquals("Food", loaded.getCategory());
+    }
+
+    @Test
+    public void testUsersAreIsolated() throws Exception {
+        storage.getTransactionStore().saveTransactions("alice", Collections.singletonList(
+                transaction("10", "Food", Transaction.TYPE_EXPENSE, "2024-01-05", "Lunch")));
+        storage.getBudgetStore().saveBudgets("alice", Collections.singletonList(
+                new Budget("Food", new BigDecimal("100"), format.parse("2024-01-01"), format.parse("2024-01-31"))));
+
+        assertTrue(storage.getTransactionStore().loadTransactions("bob").isEmpty());
+        assertTrue(storage.getBudgetStore().loadBudgets("bob").isEmpty());
+        assertEquals(1, open(dataDir).getBudgetStore().loadBudgets("alice").size());
+    }
+
+    @Test
+    public void testUsersAndDocuments() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setPassword("secret");
+        storage.getUserStore().saveUsers(Collections.singletonList(user));
+
+        List<User> users = open(dataDir).getUserStore().loadUsers();
+        assertEquals(1, users.size());
+        assertTrue(users.get(0).validatePassword("secret"));
+
+        Budget document = new Budget("Food", new BigDecimal("100"), new Date(), new Date());
+        storage.getDocumentStore().saveDocument("alice", "model.json", document);
+        assertEquals("Food", open(dataDir).getDocumentStore().loadDocument("alice", "model.json", Budget.class).getCategory());
+        storage.getDocumentStore().deleteDocument("alice", "model.json");
+        assertNull(open(dataDir).getDocumentStore().loadDocument("alice", "model.json", Budget.class));
+    }
+
+    @Test
+    public void testControllerPersistsThroughBackend() throws Exception {
+        FinanceController controller = new FinanceController(storage);
+        assertTrue(controller.registerUser("alice", "123456"));
+        assertTrue(controller.loginUser("alice", "123456"));
+        controller.addTransaction(transaction("12.5", "Food", Transaction.TYPE_EXPENSE, "2024-04-01", "Lunch"));
+
+        FinanceController reopened = new FinanceController(open(dataDir));
+        assertTrue(reopened.loginUser("alice", "123456"));
+        assertEquals(1, reopened.getTransactions().size());
+        assertEquals("Lunch", reopened.getTransactions().get(0).getDescription());
+    }
+
+    @Test
+    public void testControllerRejectsIncompleteTransactions() throws Exception {
+        FinanceController controller = new FinanceController(storage);
+        assertTrue(controller.registerUser("alice", "123456"));
+        assertTrue(controller.loginUser("alice", "123456"));
+        Transaction lunch = transaction("12.5", "Food", Transaction.TYPE_EXPENSE, "2024-04-01", "Lunch");
+        controller.addTransaction(lunch);
+
+        Transaction undated = transaction("8", "Food", Transaction.TYPE_EXPENSE, "2024-04-02", "Snack");
+        undated.setDate(null);
+        assertThrows(IllegalArgumentException.class, () -> controller.addTransaction(undated));
+        Transaction noAmount = transaction("8", "Food", Transaction.TYPE_EXPENSE, "2024-04-02", "Snack");
+        noAmount.setAmount(null);
+        assertThrows(IllegalArgumentException.class, () -> controller.addTransaction(noAmount));
+        Transaction edit = transaction("12.5", "Food", Transaction.TYPE_EXPENSE, "2024-04-01", "Lunch");
+        edit.setId(lunch.getId());
+        edit.setDate(null);
+        assertThrows(IllegalArgumentException.class, () -> controller.updateTransaction(edit));
+        assertEquals(1, controller.getTransactions().size());
+        assertEquals("2024-04-01", format.format(controller.getTransactions().get(0).getDate()));
+        controller.close();
+
+        List<Transaction> stored = open(dataDir).getTransactionStore().loadTransactions("alice");
+        assertEquals(1, stored.size());
+        assertEquals("2024-04-01", format.format(stored.get(0).getDate()));
+    }
+
+    @Test
+    public void testLoadRangeAndSummaries() throws Exception {
+        Transaction jan = transaction("10", "Food", Transaction.TYPE_EXPENSE, "2024-01-05", "Lunch");
+        Transaction feb = transaction("20", "Food", Transaction.TYPE_EXPENSE, "2024-02-10", "Dinner");
+        Transaction salary = transaction("3000", "Salary", Transaction.TYPE_INCOME, "2024-02-25", "Salary");
+        Transaction mar = transaction("30", null, Transaction.TYPE_EXPENSE, "2024-03-15", "Taxi");
+        storage.getTransactionStore().saveTransactions("alice", Arrays.asList(jan, feb, salary, mar));
+        feb.setDate(format.parse("2024-03-20"));
+        storage.getTransactionStore().recordChanges("alice", Collections.singletonList(feb),
+                Collections.emptyList(), Arrays.asList(jan, feb, salary, mar));
+
+        TransactionStore reopened = open(dataDir).getTransactionStore();
+        Map<String, Transaction> march = byId(reopened.loadRange("alice", YearMonth.of(2024, 3), YearMonth.of(2024, 3)));
+        assertEquals(new HashSet<>(Arrays.asList(feb.getId(), mar.getId())), march.keySet());
+        assertEquals(1, reopened.loadRange("alice", YearMonth.of(2024, 2), YearMonth.of(2024, 2)).size());
+
+        // summaries are optional; a store that has them must agree with its rows
+        NavigableMap<YearMonth, MonthSummary> summaries = reopened.loadSummaries("alice");
+        if (summaries != null) {
+            assertEquals(Arrays.asList(YearMonth.of(2024, 1), YearMonth.of(2024, 2), YearMonth.of(2024, 3)),
+                    new ArrayList<>(summaries.keySet()));
+            MonthSummary summary = summaries.get(YearMonth.of(2024, 3));
+            assertEquals(2, summary.getCount());
+            assertEquals(1, summary.getCategorized());
+            BigDecimal spent = BigDecimal.ZERO;
+            for (MonthSummary.Total total : summary.getTotals()) {
+                assertEquals(Transaction.TYPE_EXPENSE, total.getType());
+                spent = spent.add(total.getAmount());
+            }
+            assertEquals(0, new BigDecimal("50").compareTo(spent));
+            assertEquals(1, summaries.get(YearMonth.of(2024, 2)).getCount());
+        }
+    }
+
+    @Test
+    public void testControllerLoadsOlderMonthsOnDemand() throws Exception {
+        FinanceController controller = new FinanceController(storage);
+        assertTrue(controller.registerUser("alice", "123456"));
+        assertTrue(controller.loginUser("alice", "123456"));
+        LocalDate today = LocalDate.now();
+        List<Transaction> history = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            LocalDate day = today.minusMonths(i).withDayOfMonth(1);
+            history.add(new Transaction(new BigDecimal(i + 1), "Food", Transaction.TYPE_EXPENSE,
+                    Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant()), "Groceries " + i));
+        }
+        controller.addTransactions(history);
+        LocalDate old = today.minusMonths(20);
+        Date oldStart = Date.from(old.withDayOfMonth(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date oldEnd = Date.from(old.withDayOfMonth(old.lengthOfMonth()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        controller.addBudget(new Budget("Food", new BigDecimal("100"), oldStart, oldEnd));
+        controller.close();
+
+        FinanceController reopened = new FinanceController(open(dataDir));
+        assertTrue(reopened.loginUser("alice", "123456"));
+        // totals cover the whole history whether or not the older months are loaded yet
+        assertEquals(0, new BigDecimal(300).compareTo(reopened.getTotalSpending()));
+        assertEquals(0, new BigDecimal(300).compareTo(reopened.getCategorySpending().get("Food")));
+        assertEquals(0, new BigDecimal(12).compareTo(
+                reopened.getMonthlySpendingTrend().get(YearMonth.now().minusMonths(11).toString())));
+        Budget oldBudget = reopened.getBudgets().stream()
+                .filter(b -> b.getStartDate().equals(oldStart)).findFirst().get();
+        assertEquals(0, new BigDecimal(21).compareTo(oldBudget.getSpentAmount()));
+
+        List<Transaction> month = reopened.getTransactionsByMonth(today.minusMonths(15).getYear(),
+                today.minusMonths(15).getMonthValue());
+        assertEquals(1, month.size());
+        assertEquals("Groceries 15", month.get(0).getDescription());
+        assertTrue(reopened.deleteTransaction(month.get(0).getId()));
+        List<Transaction> recent = reopened.getRecentTransactions(30);
+        assertEquals(23, recent.size());
+        assertEquals("Groceries 0", recent.get(0).getDescription());
+        assertEquals("Groceries 23", recent.get(22).getDescription());
+        assertEquals(23, reopened.getTransactions().size());
+        assertTrue(reopened.verifyAggregates());
+        reopened.close();
+
+        FinanceController third = new FinanceController(open(dataDir));
+        assertTrue(third.loginUser("alice", "123456"));
+        assertEquals(0, new BigDecimal(284).compareTo(third.getTotalSpending()));
+        assertEquals(23, third.getTransactions().size());
+        assertTrue(third.verifyAggregates());
+        third.close();
+    }
+}
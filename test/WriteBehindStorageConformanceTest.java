@@ -0,0 +1,108 @@
+package com.test;
+
+import com.personalfinance.model.Transaction;
+import com.personalfinance.storage.InMemoryStorage;
+import com.personalfinance.storage.StorageBackend;
+import com.personalfinance.storage.StorageFactory;
+import com.personalfinance.storage.WriteBehindStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindStorageConformanceTest extends StorageConformanceTest {
+    private final List<StorageBackend> opened = new ArrayList<>();
+
+    // a new instance only sees what earlier ones have flushed, as after a clean restart
+    @Override
+    protected StorageBackend open(Path dataDir) {
+        opened.forEach(StorageBackend::flush);
+        StorageBackend backend = new WriteBehindStorage(StorageFactory.create(StorageFactory.PARTITIONED, dataDir.toString()));
+        opened.add(backend);
+        return backend;
+    }
+
+    @AfterEach
+    public void closeAll() {
+        opened.forEach(StorageBackend::close);
+    }
+
+    // a failed background write is reported once, stays visible until a write succeeds and is rethrown by flush()
+    @Test
+    public void testBackgroundFailureIsReported() throws Exception {
+        AtomicBoolean diskFull = new AtomicBoolean(true);
+        InMemoryStorage memory = new InMemoryStorage() {
+            @Override
+            public synchronized void recordChanges(String username, Collection<Transaction> upserted,
+                                                   Collection<String> deletedIds, Collection<Transaction> all) {
+                if (diskFull.get()) {
+                    throw new RuntimeException("Save failed: disk full");
+                }
+                super.recordChanges(username, upserted, deletedIds, all);
+            }
+        };
+        WriteBehindStorage storage = new WriteBehindStorage(new StorageBackend(memory, memory, memory, memory));
+        opened.add(storage);
+        AtomicInteger notified = new AtomicInteger();
+        CountDownLatch failed = new CountDownLatch(1);
+        storage.setFailureHandler(e -> {
+            notified.incrementAndGet();
+            failed.countDown();
+        });
+
+        Transaction coffee = new Transaction(new BigDecimal("4"), "Food", Transaction.TYPE_EXPENSE, new Date(), "Coffee");
+        storage.getTransactionStore().recordChanges("alice", Collections.singletonList(coffee),
+                Collections.emptyList(), Collections.singletonList(coffee));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals("Save failed: disk full", storage.getLastFailure().getMessage());
+        assertThrows(RuntimeException.class, storage::flush);
+        assertEquals(1, notified.get());
+
+        diskFull.set(false);
+        storage.flush();
+        assertNull(storage.getLastFailure());
+        assertEquals(1, memory.loadTransactions("alice").size());
+    }
+
+    // the caller's full collection is not kept: a compaction rebuilds it from the stored rows plus the pending changes
+    @Test
+    public void testCompactionUsesStoredHistory() {
+        StorageBackend journal = StorageFactory.create(StorageFactory.JOURNAL, dataDir.toString());
+        WriteBehindStorage storage = new WriteBehindStorage(journal, 60 * 60 * 1000);
+        opened.add(storage);
+        List<Transaction> all = new ArrayList<>();
+        Transaction rent = new Transaction(new BigDecimal("900"), "Housing", Transaction.TYPE_EXPENSE, new Date(), "Rent");
+        all.add(rent);
+        storage.getTransactionStore().recordChanges("alice", Collections.singletonList(rent), Collections.emptyList(), all);
+        storage.flush();
+
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            batch.add(new Transaction(new BigDecimal(i + 1), "Food", Transaction.TYPE_EXPENSE, new Date(), "Snack " + i));
+        }
+        all.addAll(batch);
+        storage.getTransactionStore().recordChanges("alice", batch, Collections.emptyList(), all);
+        // edits the caller makes afterwards without saving must not leak into the write
+        rent.setDescription("Changed in the UI");
+        all.clear();
+        storage.flush();
+
+        List<Transaction> loaded = StorageFactory.create(StorageFactory.JOURNAL, dataDir.toString())
+                .getTransactionStore().loadTransactions("alice");
+        assertEquals(601, loaded.size());
+        assertEquals("Rent", loaded.get(0).getDescription());
+        assertEquals("Snack 599", loaded.get(600).getDescription());
+    }
+}